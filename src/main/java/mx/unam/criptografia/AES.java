@@ -2,13 +2,20 @@ package mx.unam.criptografia;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.math.BigInteger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Clase que contiene los metodos para cifrar y descifrar un archivo utilizando Advanced Encryption Standard (AES).
@@ -17,8 +24,15 @@ public class AES {
 
     private static final String ALGORITHM = "AES";
 
+    /**
+     * Tamaño de los búferes usados para leer y escribir los archivos (64 KiB).
+     */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
     /**
      * Método para cifrar un archivo utilizando Advanced Encryption Standard (AES).
+     * El archivo se escribe en el formato por bloques autenticados de {@link ContenedorAES}; la lectura, el cifrado
+     * y la escritura corren en etapas separadas que se traslapan ({@link PipelineBloques}).
      * @param archivoConContrasenas El nombre del archivo en el que seran guardadas las n contraseñas.
      * @param archivoDocumentoClaro El nombre del archivo con el documento claro.
      * @param contrasena Contraseña.
@@ -26,87 +40,230 @@ public class AES {
     public static void cifrar(String archivoConContrasenas, String archivoDocumentoClaro, byte[] contraseña, int numeroTotalEvaluaciones, int minimoEvaluaciones) {
         try {
             SecretKeySpec key = generarClaveAES(contraseña);
-    
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-    
             File archivoClaro = new File(archivoDocumentoClaro);
-            byte[] datosClaros = Files.readAllBytes(archivoClaro.toPath());
-    
-            byte[] datosCifrados = cipher.doFinal(datosClaros);
-    
             File archivoCifrado = new File(archivoConContrasenas + ".aes");
-            try (FileOutputStream fos = new FileOutputStream(archivoCifrado)) {
-                fos.write(numeroTotalEvaluaciones);
-    
-                fos.write(minimoEvaluaciones);
-    
-                byte[] nombreArchivoClaroBytes = archivoClaro.getName().getBytes();
-                fos.write(nombreArchivoClaroBytes.length); 
-                fos.write(nombreArchivoClaroBytes);
-    
-                fos.write(datosCifrados);
-            }
+            ContenedorAES.cifrar(key, archivoClaro, archivoCifrado, numeroTotalEvaluaciones, minimoEvaluaciones,
+                PipelineBloques.Configuracion.porDefecto());
             System.out.println("Archivo cifrado exitosamente :) ");
         } catch (Exception e) {
             System.err.println("Error al cifrar el archivo: " + e.getMessage());
             e.printStackTrace();
         }
     }
-    
-    
-    
-    
-    
 
     /**
      * Método para descifrar un archivo cifrado utilizando Advanced Encryption Standard (AES).
+     * Detecta el formato del archivo: los archivos por bloques de {@link ContenedorAES} se verifican y descifran
+     * en paralelo, y los archivos del formato anterior (un solo bloque AES) se siguen descifrando como flujo.
      * @param archivoConContrasenas El nombre del archivo con las contraseñas necesarias.
      * @param archivoCifrado El nombre del archivo cifrado.
      */
     public static void descifrar(String archivoConContrasenas, String archivoCifrado) {
-    try {
-        File archivoCifradoFile = new File(archivoCifrado);
-        byte[] datosCifrados = Files.readAllBytes(archivoCifradoFile.toPath());
+        descifrar(archivoConContrasenas, archivoCifrado, false);
+    }
 
-        int numeroTotalEvaluaciones = datosCifrados[0]; 
-        int minimoEvaluaciones = datosCifrados[1];      
-        
-        int nombreArchivoClaroLongitud = datosCifrados[2];
-        String nombreArchivoClaro = new String(
-            datosCifrados, 3, nombreArchivoClaroLongitud
-        );
+    /**
+     * Descifra un archivo como {@link #descifrar(String, String)}, opcionalmente usando todas las contraseñas
+     * del archivo para descartar las dañadas antes de recuperar la clave.
+     * @param archivoConContrasenas El nombre del archivo con las contraseñas necesarias.
+     * @param archivoCifrado El nombre del archivo cifrado.
+     * @param corregir true para corregir contraseñas dañadas con {@link CorreccionErrores}.
+     */
+    public static void descifrar(String archivoConContrasenas, String archivoCifrado, boolean corregir) {
+        try {
+            ClaveRecuperada clave = corregir ? recuperarClaveCorrigiendo(archivoConContrasenas)
+                                             : recuperarClave(archivoConContrasenas);
+            String descifrado = descifrar(clave, new File(archivoCifrado), null, ContenedorAES.ModoES.PIPELINE);
+            System.out.println("Archivo descifrado exitosamente y guardado en: " + descifrado);
+        } catch (Exception e) {
+            System.err.println("Error al descifrar el archivo: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-        byte[] datosRealesCifrados = Arrays.copyOfRange(
-            datosCifrados, 3 + nombreArchivoClaroLongitud, datosCifrados.length
-        );
+    /**
+     * Descifra un archivo con una clave ya recuperada, en cualquiera de los dos formatos.
+     * Permite descifrar muchos archivos con un solo archivo de contraseñas sin repetir la interpolación.
+     * @param clave Clave recuperada con {@link #recuperarClave(String)}.
+     * @param archivoCifrado El archivo cifrado.
+     * @param directorioSalida Directorio donde se escribe el documento claro, o null para el directorio actual.
+     * @param modo Forma de leer y escribir los bloques de los archivos en el formato por bloques.
+     * @return La ruta del documento descifrado junto con n y t.
+     * @throws Exception Si no hay suficientes puntos u ocurre un error al leer, descifrar o escribir.
+     */
+    static String descifrar(ClaveRecuperada clave, File archivoCifrado, File directorioSalida,
+                            ContenedorAES.ModoES modo) throws Exception {
+        try (FileChannel canal = FileChannel.open(archivoCifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            if (encabezado == null) {
+                return descifrarFormatoAnterior(clave, Channels.newInputStream(canal.position(0)), directorioSalida);
+            }
+            clave.verificarMinimo(encabezado.minimoEvaluaciones);
 
-        byte[] contrasena = SecretoShamir.recuperaSecreto(archivoConContrasenas);
-        SecretKeySpec key = generarClaveAES(contrasena);
+            File archivoDescifrado = new File(directorioSalida, encabezado.nombreArchivoClaro);
+            ContenedorAES.descifrar(clave.clave, canal, encabezado, archivoDescifrado, modo);
+            return String.format("%s (n=%d, t=%d)", archivoDescifrado.getPath(),
+                encabezado.numeroTotalEvaluaciones, encabezado.minimoEvaluaciones);
+        }
+    }
 
-        List<BigInteger[]> evaluaciones = SecretoShamir.obtenerPuntos(archivoConContrasenas);
+    /**
+     * Descifra solo un intervalo del documento claro de un archivo cifrado por bloques.
+     * El resultado se guarda en un archivo con el nombre del documento claro y la terminación ".rango".
+     * @param archivoConContrasenas El nombre del archivo con las contraseñas necesarias.
+     * @param archivoCifrado El nombre del archivo cifrado.
+     * @param desplazamiento Posición del primer byte a descifrar.
+     * @param longitud Número de bytes a descifrar.
+     */
+    public static void descifrarRango(String archivoConContrasenas, String archivoCifrado, long desplazamiento, long longitud) {
+        try (FileChannel canal = FileChannel.open(Paths.get(archivoCifrado), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            if (encabezado == null) {
+                throw new IllegalArgumentException("El descifrado por rango solo está disponible para archivos cifrados por bloques.");
+            }
+            ClaveRecuperada clave = recuperarClave(archivoConContrasenas);
+            clave.verificarMinimo(encabezado.minimoEvaluaciones);
 
-        if (evaluaciones.size() < minimoEvaluaciones) {
-            throw new IllegalArgumentException("El archivo con evaluaciones no contiene el número mínimo necesario de puntos (t=" + minimoEvaluaciones + ").");
+            File archivoDescifrado = new File(encabezado.nombreArchivoClaro + ".rango");
+            ContenedorAES.descifrarRango(clave.clave, canal, encabezado, desplazamiento, longitud, archivoDescifrado);
+            // descifrarRango ya validó que desplazamiento <= tamanoClaro
+            long fin = desplazamiento + Math.min(longitud, encabezado.tamanoClaro(canal.size()) - desplazamiento);
+            System.out.printf("Rango [%d, %d) descifrado exitosamente y guardado en: %s%n",
+                desplazamiento, fin, archivoDescifrado.getName());
+        } catch (Exception e) {
+            System.err.println("Error al descifrar el rango: " + e.getMessage());
+            e.printStackTrace();
         }
+    }
+
+    /**
+     * Descifra un archivo del formato anterior: n, t y el nombre del documento claro en un byte cada uno,
+     * seguidos de todo el documento cifrado con AES en un solo bloque.
+     * @param clave Clave recuperada del archivo con contraseñas.
+     * @param flujoCifrado Flujo colocado al inicio del archivo cifrado.
+     * @param directorioSalida Directorio donde se escribe el documento claro, o null para el directorio actual.
+     * @return La ruta del documento descifrado junto con n y t.
+     * @throws Exception Si ocurre un error al leer, descifrar o escribir.
+     */
+    private static String descifrarFormatoAnterior(ClaveRecuperada clave, InputStream flujoCifrado,
+                                                   File directorioSalida) throws Exception {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(flujoCifrado, TAMANO_BUFFER));
+        int numeroTotalEvaluaciones = entrada.readUnsignedByte();
+        int minimoEvaluaciones = entrada.readUnsignedByte();
+
+        int nombreArchivoClaroLongitud = entrada.readUnsignedByte();
+        byte[] nombreArchivoClaroBytes = new byte[nombreArchivoClaroLongitud];
+        entrada.readFully(nombreArchivoClaroBytes);
+        String nombreArchivoClaro = new String(nombreArchivoClaroBytes);
+
+        clave.verificarMinimo(minimoEvaluaciones);
 
         Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, key);
-        byte[] datosDescifrados = cipher.doFinal(datosRealesCifrados);
+        cipher.init(Cipher.DECRYPT_MODE, clave.clave);
 
-        File archivoDescifrado = new File(nombreArchivoClaro);
-        try (FileOutputStream fos = new FileOutputStream(archivoDescifrado)) {
-            fos.write(datosDescifrados);
+        File archivoDescifrado = new File(directorioSalida, nombreArchivoClaro);
+        // El formato anterior solo detecta una clave equivocada al final (relleno inválido), así que el documento
+        // se escribe en un temporal y reemplaza al destino únicamente si se descifró completo
+        ContenedorAES.escribirReemplazando(archivoDescifrado, temporal -> {
+            try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(temporal), TAMANO_BUFFER)) {
+                procesarFlujo(cipher, entrada, salida);
+            }
+            return null;
+        });
+        return String.format("%s (n=%d, t=%d)", archivoDescifrado.getPath(), numeroTotalEvaluaciones, minimoEvaluaciones);
+    }
+
+    /**
+     * Recupera el secreto del archivo con contraseñas y genera la clave AES. El archivo se lee una sola vez.
+     * @param archivoConContrasenas El nombre del archivo con las contraseñas necesarias.
+     * @return Clave AES junto con el número de puntos disponibles.
+     * @throws Exception Si no hay puntos o falla la generación de la clave.
+     */
+    static ClaveRecuperada recuperarClave(String archivoConContrasenas) throws Exception {
+        ConjuntoFragmentos fragmentos;
+        try {
+            fragmentos = ConjuntoFragmentos.cargar(archivoConContrasenas);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer el archivo con evaluaciones.", e);
         }
-        System.out.printf("Archivo descifrado exitosamente y guardado en: %s (n=%d, t=%d)%n", 
-            archivoDescifrado.getName(), numeroTotalEvaluaciones, minimoEvaluaciones);
-    } catch (Exception e) {
-        System.err.println("Error al descifrar el archivo: " + e.getMessage());
-        e.printStackTrace();
+        return recuperarClave(fragmentos);
     }
-}
 
+    /**
+     * Recupera el secreto de contraseñas ya leídas y genera la clave AES.
+     * @param fragmentos Contraseñas leídas una sola vez del archivo, o que ya estaban en memoria.
+     * @return Clave AES junto con el número de puntos disponibles.
+     * @throws Exception Si no hay puntos o falla la generación de la clave.
+     */
+    static ClaveRecuperada recuperarClave(ConjuntoFragmentos fragmentos) throws Exception {
+        byte[] contrasena = SecretoShamir.recuperaSecreto(fragmentos);
+        return new ClaveRecuperada(generarClaveAES(contrasena), fragmentos.tamano());
+    }
 
+    /**
+     * Recupera la clave con todas las contraseñas del archivo, descartando las dañadas. Las x de las contraseñas
+     * descartadas se informan en la salida estándar.
+     * @param archivoConContrasenas El nombre del archivo con las contraseñas.
+     * @return Clave AES junto con el número de puntos correctos.
+     * @throws Exception Si no se conoce t, hay demasiadas contraseñas dañadas o falla la generación de la clave.
+     */
+    static ClaveRecuperada recuperarClaveCorrigiendo(String archivoConContrasenas) throws Exception {
+        ConjuntoFragmentos fragmentos;
+        try {
+            fragmentos = ConjuntoFragmentos.cargarTodos(archivoConContrasenas);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer el archivo con evaluaciones.", e);
+        }
+        CorreccionErrores.Resultado resultado = SecretoShamir.recuperaSecretoCorrigiendo(fragmentos);
+        if (!resultado.xErroneas.isEmpty()) {
+            System.out.println("Contraseñas dañadas descartadas (x): " + resultado.xErroneas);
+        }
+        byte[] contrasena = SecretoShamir.ByteNormalizado(resultado.secreto.toByteArray());
+        return new ClaveRecuperada(generarClaveAES(contrasena), fragmentos.tamano() - resultado.xErroneas.size());
+    }
+
+    /**
+     * Clave AES recuperada de un archivo con contraseñas, junto con el número de puntos que tenía el archivo.
+     */
+    static final class ClaveRecuperada {
+        final SecretKeySpec clave;
+        final int numeroPuntos;
+
+        ClaveRecuperada(SecretKeySpec clave, int numeroPuntos) {
+            this.clave = clave;
+            this.numeroPuntos = numeroPuntos;
+        }
+
+        /**
+         * Verifica que el archivo con contraseñas tenga al menos el número mínimo de puntos de un archivo cifrado.
+         * @param minimoEvaluaciones Número mínimo de evaluaciones indicado en el archivo cifrado.
+         */
+        void verificarMinimo(int minimoEvaluaciones) {
+            if (numeroPuntos < minimoEvaluaciones) {
+                throw new IllegalArgumentException("El archivo con evaluaciones no contiene el número mínimo necesario de puntos (t=" + minimoEvaluaciones + ").");
+            }
+        }
+    }
+
+    /**
+     * Pasa todo el contenido de un flujo por el cifrador usando búferes de tamaño fijo.
+     * Los búferes se reutilizan en cada iteración, de modo que no se guarda el archivo completo en memoria.
+     * @param cipher Cifrador ya inicializado.
+     * @param entrada Flujo con los datos a procesar.
+     * @param salida Flujo donde se escribe el resultado.
+     * @throws Exception Si ocurre un error de lectura, escritura o del cifrador.
+     */
+    private static void procesarFlujo(Cipher cipher, InputStream entrada, OutputStream salida) throws Exception {
+        byte[] bufferEntrada = new byte[TAMANO_BUFFER];
+        byte[] bufferSalida = new byte[cipher.getOutputSize(TAMANO_BUFFER) + cipher.getBlockSize()];
+        int leidos;
+        while ((leidos = entrada.read(bufferEntrada)) != -1) {
+            int producidos = cipher.update(bufferEntrada, 0, leidos, bufferSalida, 0);
+            salida.write(bufferSalida, 0, producidos);
+        }
+        int producidos = cipher.doFinal(bufferSalida, 0);
+        salida.write(bufferSalida, 0, producidos);
+    }
 
     /**
      * Genera una clave AES de 256 bits a partir de la contraseña.
@@ -114,7 +271,7 @@ public class AES {
      * @return Clave AES.
      * @throws Exception Si ocurre un error durante la generacion de la clave.
      */
-    private static SecretKeySpec generarClaveAES(byte[] contrasena) throws Exception {
+    static SecretKeySpec generarClaveAES(byte[] contrasena) throws Exception {
         MessageDigest sha = MessageDigest.getInstance("SHA-256");
         byte[] clave = sha.digest(contrasena);
 
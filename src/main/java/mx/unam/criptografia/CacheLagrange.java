@@ -0,0 +1,136 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caché de los términos de Lagrange en x = 0 de un conjunto de coordenadas x. Cuando el mismo grupo de
+ * custodios recupera varios secretos, las x son las mismas y solo cambian las y, así que con los términos ya
+ * calculados recuperar cada secreto cuesta t multiplicaciones y sumas en vez de una interpolación completa.
+ *
+ * <p>La clave es el campo y las x ordenadas; los términos se guardan en ese orden. Las entradas se desalojan
+ * en orden LRU cuando el total de términos guardados pasa de la capacidad. Todos los métodos son seguros desde
+ * varios hilos: el mapa se consulta con el candado de la caché, pero los términos de un conjunto nuevo se
+ * calculan fuera de él.</p>
+ */
+public final class CacheLagrange {
+
+    private final int capacidad;
+    private final LinkedHashMap<Clave, List<?>> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private int terminosGuardados;
+    private long aciertos;
+    private long fallos;
+
+    /**
+     * @param capacidad Número máximo de términos guardados, sumando todas las entradas.
+     */
+    public CacheLagrange(int capacidad) {
+        if (capacidad < 0) {
+            throw new IllegalArgumentException("La capacidad no puede ser negativa.");
+        }
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Obtiene los términos de Lagrange de un conjunto de x, calculándolos si no están en la caché.
+     * @param x Coordenadas x, ordenadas de menor a mayor.
+     * @param campo Campo de los términos.
+     * @param calcular Calcula los términos en el orden de x si no están guardados.
+     * @return los términos, en el orden de x. Son compartidos: no deben modificarse.
+     */
+    @SuppressWarnings("unchecked")
+    <E extends CampoFinito.Elemento<E>> List<E> terminos(BigInteger[] x, CampoFinito<E> campo,
+                                                         Function<BigInteger[], List<E>> calcular) {
+        Clave clave = new Clave(campo.identificador(), x);
+        synchronized (this) {
+            List<?> guardados = entradas.get(clave);
+            if (guardados != null) {
+                aciertos++;
+                return (List<E>) guardados;
+            }
+            fallos++;
+        }
+        List<E> terminos = Collections.unmodifiableList(new ArrayList<>(calcular.apply(x)));
+        if (terminos.size() <= capacidad) {
+            guardar(clave, terminos);
+        }
+        return terminos;
+    }
+
+    private synchronized void guardar(Clave clave, List<?> terminos) {
+        List<?> anterior = entradas.put(clave, terminos);
+        terminosGuardados += terminos.size() - (anterior == null ? 0 : anterior.size());
+        Iterator<Map.Entry<Clave, List<?>>> antiguas = entradas.entrySet().iterator();
+        while (terminosGuardados > capacidad && antiguas.hasNext()) {
+            terminosGuardados -= antiguas.next().getValue().size();
+            antiguas.remove();
+        }
+    }
+
+    /**
+     * @return el número de consultas que encontraron los términos en la caché.
+     */
+    public synchronized long aciertos() {
+        return aciertos;
+    }
+
+    /**
+     * @return el número de consultas que tuvieron que calcular los términos.
+     */
+    public synchronized long fallos() {
+        return fallos;
+    }
+
+    /**
+     * @return el número de conjuntos de x guardados.
+     */
+    public synchronized int tamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Vacía la caché y reinicia los contadores.
+     */
+    public synchronized void limpiar() {
+        entradas.clear();
+        terminosGuardados = 0;
+        aciertos = 0;
+        fallos = 0;
+    }
+
+    /**
+     * Campo y x ordenadas de una entrada.
+     */
+    private static final class Clave {
+        private final String campo;
+        private final BigInteger[] x;
+        private final int hash;
+
+        Clave(String campo, BigInteger[] x) {
+            this.campo = campo;
+            this.x = x;
+            this.hash = 31 * campo.hashCode() + Arrays.hashCode(x);
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (!(otro instanceof Clave)) {
+                return false;
+            }
+            Clave clave = (Clave) otro;
+            return hash == clave.hash && campo.equals(clave.campo) && Arrays.equals(x, clave.x);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Campo finito sobre el que se hace la aritmética del esquema de Shamir.
+ * El código que divide y recupera el secreto está escrito contra esta interfaz, así que el campo se puede
+ * elegir para cada secreto; el identificador del campo se guarda en el archivo .frg.
+ * @param <E> Tipo de los elementos del campo.
+ */
+public interface CampoFinito<E extends CampoFinito.Elemento<E>> {
+
+    /**
+     * El primo de 257 bits original, con multiplicación de Montgomery.
+     */
+    CampoFinito<ElementoP257> P257 = new ElementoP257.Campo();
+
+    /**
+     * El primo de Mersenne 2^521 - 1, con reducción por corrimientos y sumas.
+     */
+    CampoFinito<ElementoM521> M521 = new ElementoM521.Campo();
+
+    /**
+     * @return el identificador del campo que se guarda en los archivos .frg.
+     */
+    String identificador();
+
+    /**
+     * @return el orden (primo) del campo.
+     */
+    BigInteger modulo();
+
+    /**
+     * @return un elemento nuevo con valor cero.
+     */
+    E elemento();
+
+    /**
+     * @param entero Valor del elemento; se reduce módulo el primo.
+     * @return un elemento nuevo con el valor dado.
+     */
+    default E elemento(BigInteger entero) {
+        return elemento().asignar(entero);
+    }
+
+    /**
+     * @return un elemento nuevo con valor uno.
+     */
+    default E uno() {
+        return elemento().asignarUno();
+    }
+
+    /**
+     * @return los campos disponibles.
+     */
+    static List<CampoFinito<?>> disponibles() {
+        return Arrays.asList(P257, M521);
+    }
+
+    /**
+     * Busca un campo por su identificador.
+     * @param identificador Identificador del campo (por ejemplo, "p257").
+     * @return el campo.
+     * @throws IllegalArgumentException Si no hay un campo con ese identificador.
+     */
+    static CampoFinito<?> porIdentificador(String identificador) {
+        for (CampoFinito<?> campo : disponibles()) {
+            if (campo.identificador().equals(identificador)) {
+                return campo;
+            }
+        }
+        throw new IllegalArgumentException("Campo desconocido: " + identificador + ". Campos disponibles: p257, m521.");
+    }
+
+    /**
+     * Elemento de un campo finito. Las operaciones modifican el elemento sobre el que se llaman, lo regresan
+     * para poder encadenarlas y no crean objetos. Un elemento no debe usarse desde varios hilos a la vez.
+     * @param <E> Tipo de los elementos del campo.
+     */
+    interface Elemento<E extends Elemento<E>> {
+
+        /**
+         * Asigna un entero, reducido módulo el primo.
+         */
+        E asignar(BigInteger entero);
+
+        /**
+         * Copia el valor de otro elemento.
+         */
+        E asignar(E otro);
+
+        E asignarCero();
+
+        E asignarUno();
+
+        /**
+         * @return una copia de este elemento.
+         */
+        E copia();
+
+        /**
+         * @return el valor como entero entre 0 y el primo menos uno.
+         */
+        BigInteger aBigInteger();
+
+        boolean esCero();
+
+        E sumar(E otro);
+
+        E restar(E otro);
+
+        E negar();
+
+        /**
+         * Multiplica este elemento por otro (puede ser él mismo).
+         */
+        E multiplicar(E otro);
+
+        /**
+         * Multiplica este elemento por un entero pequeño no negativo (menor a 2^31).
+         */
+        E multiplicar(int entero);
+
+        /**
+         * Reemplaza este elemento por su inverso multiplicativo.
+         * @throws ArithmeticException Si el elemento es cero.
+         */
+        E invertir();
+    }
+}
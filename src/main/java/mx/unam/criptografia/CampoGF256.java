@@ -0,0 +1,113 @@
+package mx.unam.criptografia;
+
+/**
+ * Aritmética del campo GF(2^8) con el polinomio irreducible x^8 + x^4 + x^3 + x + 1 (0x11B, el de AES)
+ * y generador 3. La suma es el XOR de los bytes; la multiplicación usa tablas de logaritmos y antilogaritmos
+ * calculadas una sola vez, y de ellas se obtiene una tabla completa de productos para que los ciclos sobre
+ * arreglos solo hagan lecturas de tabla, sin ramas ni objetos.
+ */
+public final class CampoGF256 {
+
+    /**
+     * Polinomio irreducible del campo.
+     */
+    private static final int POLINOMIO = 0x11B;
+
+    /**
+     * EXP[i] = 3^i; la tabla está duplicada para sumar dos logaritmos sin reducir módulo 255.
+     */
+    private static final int[] EXP = new int[510];
+
+    /**
+     * LOG[a] = i tal que 3^i = a, para a distinto de cero.
+     */
+    private static final int[] LOG = new int[256];
+
+    /**
+     * PRODUCTOS[c][a] = c·a. Cada renglón ocupa 256 bytes, así que el renglón de una constante cabe en caché.
+     */
+    private static final byte[][] PRODUCTOS = new byte[256][256];
+
+    static {
+        int a = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = a;
+            EXP[i + 255] = a;
+            LOG[a] = i;
+            // a·3 = a·2 + a; a·2 es un corrimiento, reducido con el polinomio si pasa de 8 bits
+            int doble = a << 1;
+            if (doble > 0xFF) {
+                doble ^= POLINOMIO;
+            }
+            a = doble ^ a;
+        }
+        for (int c = 1; c < 256; c++) {
+            for (int b = 1; b < 256; b++) {
+                PRODUCTOS[c][b] = (byte) EXP[LOG[c] + LOG[b]];
+            }
+        }
+    }
+
+    private CampoGF256() {
+    }
+
+    /**
+     * Multiplica dos elementos.
+     * @param a Primer factor, entre 0 y 255.
+     * @param b Segundo factor, entre 0 y 255.
+     * @return a·b.
+     */
+    public static int multiplicar(int a, int b) {
+        return PRODUCTOS[a][b] & 0xFF;
+    }
+
+    /**
+     * Calcula el inverso multiplicativo de un elemento.
+     * @param a Elemento distinto de cero.
+     * @return a^(-1).
+     * @throws ArithmeticException Si el elemento es cero.
+     */
+    public static int inverso(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("El cero no tiene inverso.");
+        }
+        return EXP[255 - LOG[a]];
+    }
+
+    /**
+     * Divide dos elementos.
+     * @param a Dividendo.
+     * @param b Divisor distinto de cero.
+     * @return a / b.
+     * @throws ArithmeticException Si el divisor es cero.
+     */
+    public static int dividir(int a, int b) {
+        return multiplicar(a, inverso(b));
+    }
+
+    /**
+     * Calcula destino[desdeDestino + i] ^= c·origen[desdeOrigen + i] para i menor a {@code longitud}: la operación
+     * con la que se evalúan e interpolan los polinomios sobre arreglos completos.
+     * @param c Constante, entre 0 y 255.
+     * @param origen Bytes a multiplicar por la constante.
+     * @param desdeOrigen Primer byte de origen.
+     * @param destino Bytes donde se acumula el producto.
+     * @param desdeDestino Primer byte de destino.
+     * @param longitud Número de bytes.
+     */
+    public static void multiplicarYAcumular(int c, byte[] origen, int desdeOrigen, byte[] destino, int desdeDestino,
+                                            int longitud) {
+        if (c == 0) {
+            return;
+        }
+        OperacionesGF256.multiplicarYAcumular(c, origen, desdeOrigen, destino, desdeDestino, longitud);
+    }
+
+    /**
+     * @param c Constante, entre 0 y 255.
+     * @return el renglón de productos de la constante: renglon[a] = c·a. No debe modificarse.
+     */
+    static byte[] renglon(int c) {
+        return PRODUCTOS[c];
+    }
+}
@@ -0,0 +1,197 @@
+package mx.unam.criptografia;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Comando para cifrar todos los archivos de un directorio (y sus subdirectorios) en una sola ejecución.
+ * Los archivos se cifran de forma concurrente en un conjunto acotado de hilos y el resultado de cada uno
+ * se registra en un manifiesto dentro del directorio.
+ */
+public class ComandoCifrarDirectorio implements Comando {
+
+    /**
+     * Nombre del manifiesto que se escribe en el directorio.
+     */
+    public static final String NOMBRE_MANIFIESTO = "manifiesto.txt";
+
+    private String directorio;
+    private byte[] contraseña;
+    private int numeroTotalEvaluaciones;
+    private int minimoEvaluaciones;
+    private String archivoCompartido;
+    private int hilos;
+    private CampoFinito<?> campo;
+
+    /**
+     * Resultado del cifrado de un archivo.
+     */
+    public static final class Resultado {
+        public final Path archivo;
+        public final boolean exitoso;
+        public final String detalle;
+        public final long milisegundos;
+
+        Resultado(Path archivo, boolean exitoso, String detalle, long milisegundos) {
+            this.archivo = archivo;
+            this.exitoso = exitoso;
+            this.detalle = detalle;
+            this.milisegundos = milisegundos;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param directorio Directorio con los archivos a cifrar.
+     * @param contraseña Contraseña (ya procesada con SHA-256).
+     * @param numeroTotalEvaluaciones Número total de evaluaciones.
+     * @param minimoEvaluaciones Número mínimo de evaluaciones necesarias para descifrar.
+     * @param archivoCompartido Archivo .frg único para todos los archivos, o null para generar un .frg por archivo.
+     * @param hilos Número de archivos que se cifran al mismo tiempo.
+     * @param campo Campo finito en el que se generan las contraseñas.
+     */
+    public ComandoCifrarDirectorio(String directorio, byte[] contraseña, int numeroTotalEvaluaciones, int minimoEvaluaciones,
+                                   String archivoCompartido, int hilos, CampoFinito<?> campo) {
+        this.directorio = directorio;
+        this.contraseña = contraseña;
+        this.numeroTotalEvaluaciones = numeroTotalEvaluaciones;
+        this.minimoEvaluaciones = minimoEvaluaciones;
+        this.archivoCompartido = archivoCompartido == null || archivoCompartido.endsWith(".frg")
+                                 ? archivoCompartido
+                                 : archivoCompartido + ".frg";
+        this.hilos = hilos;
+        this.campo = campo;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Cifrando directorio...");
+        try {
+            List<Resultado> resultados = cifrarTodos();
+            long exitosos = resultados.stream().filter(r -> r.exitoso).count();
+            System.out.printf("Archivos cifrados: %d de %d. Manifiesto guardado en: %s%n",
+                exitosos, resultados.size(), new File(directorio, NOMBRE_MANIFIESTO).getPath());
+        } catch (IOException e) {
+            System.err.println("Error al cifrar el directorio: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Cifra todos los archivos del directorio y escribe el manifiesto.
+     * @return el resultado de cada archivo, en el orden del manifiesto.
+     * @throws IOException Si no se puede recorrer el directorio o escribir el manifiesto.
+     */
+    public List<Resultado> cifrarTodos() throws IOException {
+        List<Path> archivos = listarArchivos();
+        SecretKeySpec clave;
+        try {
+            clave = AES.generarClaveAES(contraseña);
+        } catch (Exception e) {
+            throw new IOException("No se pudo generar la clave AES.", e);
+        }
+        if (archivoCompartido != null) {
+            SecretoShamir.escribeArchivoConContraseñas(archivoCompartido, String.valueOf(numeroTotalEvaluaciones),
+                String.valueOf(minimoEvaluaciones), contraseña, campo, false, false, false);
+        }
+
+        ExecutorService ejecutor = Hilos.ejecutorLote(hilos);
+        List<Resultado> resultados = new ArrayList<>();
+        try {
+            List<Future<Resultado>> pendientes = new ArrayList<>();
+            for (Path archivo : archivos) {
+                pendientes.add(ejecutor.submit(() -> cifrarArchivo(archivo, clave)));
+            }
+            for (int i = 0; i < pendientes.size(); i++) {
+                resultados.add(esperar(archivos.get(i), pendientes.get(i)));
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+        escribirManifiesto(resultados);
+        return resultados;
+    }
+
+    /**
+     * Cifra un archivo; los errores se registran en el resultado en vez de detener el lote.
+     */
+    private Resultado cifrarArchivo(Path archivo, SecretKeySpec clave) {
+        long inicio = System.nanoTime();
+        try {
+            String base = archivo.toString();
+            if (archivoCompartido == null) {
+                SecretoShamir.escribeArchivoConContraseñas(base, String.valueOf(numeroTotalEvaluaciones),
+                    String.valueOf(minimoEvaluaciones), contraseña, campo, false, false, false);
+            }
+            ContenedorAES.cifrar(clave, archivo.toFile(), new File(base + ".aes"),
+                numeroTotalEvaluaciones, minimoEvaluaciones);
+            String fragmentos = archivoCompartido == null ? base + ".frg" : archivoCompartido;
+            return new Resultado(archivo, true, base + ".aes\t" + fragmentos, milisegundosDesde(inicio));
+        } catch (Exception e) {
+            return new Resultado(archivo, false, String.valueOf(e.getMessage()), milisegundosDesde(inicio));
+        }
+    }
+
+    private Resultado esperar(Path archivo, Future<Resultado> pendiente) throws IOException {
+        try {
+            return pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("El cifrado del directorio fue interrumpido.", e);
+        } catch (ExecutionException e) {
+            return new Resultado(archivo, false, String.valueOf(e.getCause().getMessage()), 0);
+        }
+    }
+
+    /**
+     * Lista los archivos a cifrar, sin incluir los resultados de cifrados anteriores ni el manifiesto.
+     */
+    private List<Path> listarArchivos() throws IOException {
+        Path raiz = new File(directorio).toPath();
+        try (Stream<Path> rutas = Files.walk(raiz)) {
+            return rutas.filter(Files::isRegularFile)
+                .filter(ruta -> !esResultado(ruta))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private boolean esResultado(Path ruta) {
+        String nombre = ruta.getFileName().toString();
+        return nombre.endsWith(".aes") || nombre.endsWith(".frg") || nombre.equals(NOMBRE_MANIFIESTO)
+            || (archivoCompartido != null && ruta.toAbsolutePath().equals(new File(archivoCompartido).toPath().toAbsolutePath()));
+    }
+
+    /**
+     * Escribe el manifiesto: una línea por archivo con su estado, los archivos generados o el error, y el tiempo.
+     */
+    private void escribirManifiesto(List<Resultado> resultados) throws IOException {
+        Path manifiesto = new File(directorio, NOMBRE_MANIFIESTO).toPath();
+        try (PrintWriter salida = new PrintWriter(Files.newBufferedWriter(manifiesto, StandardCharsets.UTF_8))) {
+            salida.printf("# n=%d t=%d%n", numeroTotalEvaluaciones, minimoEvaluaciones);
+            for (Resultado resultado : resultados) {
+                salida.printf("%s\t%s\t%s\t%d ms%n", resultado.archivo, resultado.exitoso ? "OK" : "ERROR",
+                    resultado.detalle, resultado.milisegundos);
+            }
+        }
+    }
+
+    private static long milisegundosDesde(long inicio) {
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+}
@@ -0,0 +1,83 @@
+package mx.unam.criptografia;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Comando para cifrar un archivo y dispersar el resultado en n piezas.
+ * La clave se divide con {@link SecretoShamir} igual que con -c; el archivo .aes se divide con
+ * {@link DispersionIDA}, de modo que cada pieza mide |archivo|/t en vez de |archivo| y cualquier grupo de
+ * t piezas lo reconstruye. Al terminar, el archivo .aes completo se borra.
+ */
+public class ComandoCifrarDisperso implements Comando {
+
+    private String archivoConContraseñas;
+    private String archivoDocumentoClaro;
+    private byte[] contraseña;
+    private int numeroTotalEvaluaciones;
+    private int minimoEvaluaciones;
+    private int hilos;
+    private CampoFinito<?> campo;
+
+    /**
+     * Constructor.
+     * @param archivoConContraseñas Nombre base del archivo .frg y de las piezas.
+     * @param archivoDocumentoClaro Nombre del archivo con el documento claro.
+     * @param contraseña Contraseña (ya procesada con SHA-256).
+     * @param numeroTotalEvaluaciones Número total de contraseñas y de piezas.
+     * @param minimoEvaluaciones Número mínimo de contraseñas y de piezas para descifrar.
+     * @param hilos Número de hilos que dispersan el archivo.
+     * @param campo Campo finito en el que se generan las contraseñas.
+     */
+    public ComandoCifrarDisperso(String archivoConContraseñas, String archivoDocumentoClaro, byte[] contraseña,
+                                 int numeroTotalEvaluaciones, int minimoEvaluaciones, int hilos, CampoFinito<?> campo) {
+        this.archivoConContraseñas = archivoConContraseñas.endsWith(".frg")
+                                     ? archivoConContraseñas.substring(0, archivoConContraseñas.length() - 4)
+                                     : archivoConContraseñas;
+        this.archivoDocumentoClaro = archivoDocumentoClaro;
+        this.contraseña = contraseña;
+        this.numeroTotalEvaluaciones = numeroTotalEvaluaciones;
+        this.minimoEvaluaciones = minimoEvaluaciones;
+        this.hilos = hilos;
+        this.campo = campo;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Cifrando y dispersando...");
+        try {
+            List<File> piezas = cifrarYDispersar();
+            System.out.println("Fragmentos guardados en : " + archivoConContraseñas + ".frg");
+            System.out.printf("Piezas guardadas (se necesitan %d de %d):%n", minimoEvaluaciones, piezas.size());
+            for (File pieza : piezas) {
+                System.out.println(pieza.getPath());
+            }
+        } catch (Exception e) {
+            System.err.println("Error al cifrar y dispersar el archivo: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Genera el archivo .frg, cifra el documento y dispersa el archivo cifrado.
+     * @return las piezas escritas.
+     * @throws Exception Si ocurre un error al cifrar o al escribir las piezas.
+     */
+    public List<File> cifrarYDispersar() throws Exception {
+        SecretoShamir.escribeArchivoConContraseñas(archivoConContraseñas, String.valueOf(numeroTotalEvaluaciones),
+            String.valueOf(minimoEvaluaciones), contraseña, campo, false, false, false);
+        SecretKeySpec clave = AES.generarClaveAES(contraseña);
+        File cifrado = new File(archivoConContraseñas + ".aes");
+        ContenedorAES.cifrar(clave, new File(archivoDocumentoClaro), cifrado, numeroTotalEvaluaciones, minimoEvaluaciones);
+        try {
+            return DispersionIDA.dispersar(cifrado, numeroTotalEvaluaciones, minimoEvaluaciones, hilos);
+        } finally {
+            Files.deleteIfExists(cifrado.toPath());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package mx.unam.criptografia;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comando que envía una operación al servidor local ({@link ServidorShamir}) y muestra la respuesta.
+ */
+public class ComandoCliente implements Comando {
+    private int puerto;
+    private String[] argumentos;
+    private byte[] contraseña;
+    private File archivoToken;
+
+    /**
+     * Constructor. El token del servidor se lee de {@link ServidorShamir#archivoToken(int)}.
+     * @param puerto Puerto local donde escucha el servidor.
+     * @param argumentos Operación y sus argumentos, con la sintaxis de la línea de comandos.
+     * @param contraseña Contraseña (ya procesada con SHA-256), o null si la operación no la necesita.
+     */
+    public ComandoCliente(int puerto, String[] argumentos, byte[] contraseña) {
+        this(puerto, argumentos, contraseña, ServidorShamir.archivoToken(puerto));
+    }
+
+    /**
+     * Constructor.
+     * @param puerto Puerto local donde escucha el servidor.
+     * @param argumentos Operación y sus argumentos, con la sintaxis de la línea de comandos.
+     * @param contraseña Contraseña (ya procesada con SHA-256), o null si la operación no la necesita.
+     * @param archivoToken Archivo donde el servidor escribió su token.
+     */
+    public ComandoCliente(int puerto, String[] argumentos, byte[] contraseña, File archivoToken) {
+        this.puerto = puerto;
+        this.argumentos = argumentos;
+        this.contraseña = contraseña;
+        this.archivoToken = archivoToken;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        try {
+            List<String> respuesta = enviar();
+            String estado = respuesta.get(0);
+            if (estado.startsWith("ERROR")) {
+                System.out.println("Error: " + estado.substring(estado.indexOf('\t') + 1));
+            }
+            for (String linea : respuesta.subList(1, respuesta.size())) {
+                System.out.println(linea);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al comunicarse con el servidor: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Envía la solicitud y lee la respuesta.
+     * @return las líneas de la respuesta; la primera es "OK" o "ERROR\t&lt;mensaje&gt;".
+     * @throws IOException Si no se puede leer el token, conectar con el servidor o la respuesta está incompleta.
+     */
+    public List<String> enviar() throws IOException {
+        String token;
+        try {
+            token = new String(Files.readAllBytes(archivoToken.toPath()), StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            throw new IOException("No se pudo leer el token del servidor en " + archivoToken + ".", e);
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), puerto);
+             PrintWriter salida = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            salida.print(token);
+            salida.print('\n');
+            salida.print(String.join("\t", argumentos));
+            salida.print('\n');
+            if (contraseña != null) {
+                salida.print(ServidorShamir.hexadecimal(contraseña));
+                salida.print('\n');
+            }
+            salida.flush();
+
+            List<String> respuesta = new ArrayList<>();
+            String linea;
+            while ((linea = entrada.readLine()) != null && !linea.isEmpty()) {
+                respuesta.add(linea);
+            }
+            if (respuesta.isEmpty()) {
+                throw new IOException("El servidor cerró la conexión sin responder.");
+            }
+            return respuesta;
+        }
+    }
+}
@@ -6,6 +6,7 @@ package mx.unam.criptografia;
 public class ComandoDescifrar implements Comando {
     private String archivoConContraseñasNecesarias;
     private String archivoCifrado;
+    private boolean corregir;
 
     /**
      * Constructor.
@@ -17,13 +18,24 @@ public class ComandoDescifrar implements Comando {
         this.archivoCifrado = archivoCifrado;
     }
 
+    /**
+     * Constructor.
+     * @param archivoConContrasenasNecesarias nombre del archivo con las contraseñas necesarias.
+     * @param archivoCifrado nombre del archivo cifrado.
+     * @param corregir true para usar todas las contraseñas y descartar las dañadas.
+     */
+    public ComandoDescifrar(String archivoConContraseñasNecesarias, String archivoCifrado, boolean corregir) {
+        this(archivoConContraseñasNecesarias, archivoCifrado);
+        this.corregir = corregir;
+    }
+
     /**
      * Ejecuta el comando.
      */
     @Override
     public void ejecutar() {
         System.out.println("Descifrando...");
-        AES.descifrar(archivoConContraseñasNecesarias, archivoCifrado);
+        AES.descifrar(archivoConContraseñasNecesarias, archivoCifrado, corregir);
         System.out.println("Archivo Descifrado : " + archivoCifrado );
     }
 }
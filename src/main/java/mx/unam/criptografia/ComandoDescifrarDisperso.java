@@ -0,0 +1,66 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comando para descifrar un archivo dispersado con -ci.
+ * Con t de las piezas se reconstruye el archivo .aes en un archivo temporal junto a la primera pieza, se
+ * descifra con la clave recuperada del archivo .frg y se borra el temporal. El documento claro se escribe
+ * en el directorio de la primera pieza.
+ */
+public class ComandoDescifrarDisperso implements Comando {
+
+    private String archivoConContraseñas;
+    private List<String> piezas;
+    private int hilos;
+
+    /**
+     * Constructor.
+     * @param archivoConContraseñas Archivo .frg con las contraseñas necesarias.
+     * @param piezas Archivos de las piezas (al menos t).
+     * @param hilos Número de hilos que reconstruyen el archivo.
+     */
+    public ComandoDescifrarDisperso(String archivoConContraseñas, List<String> piezas, int hilos) {
+        this.archivoConContraseñas = archivoConContraseñas;
+        this.piezas = piezas;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Reconstruyendo y descifrando...");
+        try {
+            System.out.println("Archivo Descifrado : " + reconstruirYDescifrar());
+        } catch (Exception e) {
+            System.err.println("Error al descifrar el archivo disperso: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reconstruye el archivo cifrado a partir de las piezas y lo descifra.
+     * @return la ruta del documento descifrado junto con n y t.
+     * @throws Exception Si las piezas no alcanzan o no son válidas, o si falla el descifrado.
+     */
+    public String reconstruirYDescifrar() throws Exception {
+        List<File> archivos = new ArrayList<>();
+        for (String pieza : piezas) {
+            archivos.add(new File(pieza));
+        }
+        AES.ClaveRecuperada clave = AES.recuperarClave(archivoConContraseñas);
+        File directorio = archivos.get(0).getAbsoluteFile().getParentFile();
+        File cifrado = File.createTempFile("reconstruido", ".aes", directorio);
+        try {
+            DispersionIDA.reconstruir(archivos, cifrado, hilos);
+            return AES.descifrar(clave, cifrado, directorio, ContenedorAES.ModoES.MAPEADO);
+        } finally {
+            Files.deleteIfExists(cifrado.toPath());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Comando para descifrar varios archivos que comparten un mismo archivo de contraseñas.
+ * El secreto se interpola y la clave AES se genera una sola vez; después los archivos se descifran de forma
+ * concurrente y se reporta el resultado de cada uno. Cada documento claro se escribe junto a su archivo cifrado.
+ */
+public class ComandoDescifrarLote implements Comando {
+
+    private String archivoConContraseñas;
+    private List<String> archivosCifrados;
+    private int hilos;
+
+    /**
+     * Resultado del descifrado de un archivo.
+     */
+    public static final class Resultado {
+        public final Path archivo;
+        public final boolean exitoso;
+        public final String detalle;
+        public final long milisegundos;
+
+        Resultado(Path archivo, boolean exitoso, String detalle, long milisegundos) {
+            this.archivo = archivo;
+            this.exitoso = exitoso;
+            this.detalle = detalle;
+            this.milisegundos = milisegundos;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param archivoConContraseñas Archivo .frg con las contraseñas necesarias.
+     * @param archivosCifrados Archivos .aes o patrones (por ejemplo, "respaldos/*.aes").
+     * @param hilos Número de archivos que se descifran al mismo tiempo.
+     */
+    public ComandoDescifrarLote(String archivoConContraseñas, List<String> archivosCifrados, int hilos) {
+        this.archivoConContraseñas = archivoConContraseñas;
+        this.archivosCifrados = archivosCifrados;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Descifrando archivos...");
+        try {
+            List<Resultado> resultados = descifrarTodos();
+            long exitosos = 0;
+            for (Resultado resultado : resultados) {
+                System.out.printf("%s\t%s\t%s\t%d ms%n", resultado.archivo, resultado.exitoso ? "OK" : "ERROR",
+                    resultado.detalle, resultado.milisegundos);
+                if (resultado.exitoso) {
+                    exitosos++;
+                }
+            }
+            System.out.printf("Archivos descifrados: %d de %d.%n", exitosos, resultados.size());
+        } catch (Exception e) {
+            System.err.println("Error al descifrar los archivos: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Recupera la clave y descifra todos los archivos.
+     * @return el resultado de cada archivo, en el orden en que se dieron.
+     * @throws Exception Si no se puede recuperar la clave o expandir los patrones.
+     */
+    public List<Resultado> descifrarTodos() throws Exception {
+        List<Path> archivos = expandir(archivosCifrados);
+        if (archivos.isEmpty()) {
+            throw new IllegalArgumentException("Ningún archivo cifrado coincide con los nombres dados.");
+        }
+        AES.ClaveRecuperada clave = AES.recuperarClave(archivoConContraseñas);
+
+        ExecutorService ejecutor = Hilos.ejecutorLote(hilos);
+        List<Resultado> resultados = new ArrayList<>();
+        try {
+            List<Future<Resultado>> pendientes = new ArrayList<>();
+            for (Path archivo : archivos) {
+                pendientes.add(ejecutor.submit(() -> descifrarArchivo(archivo, clave)));
+            }
+            for (int i = 0; i < pendientes.size(); i++) {
+                resultados.add(esperar(archivos.get(i), pendientes.get(i)));
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+        return resultados;
+    }
+
+    /**
+     * Descifra un archivo; los errores se registran en el resultado en vez de detener el lote.
+     * Cada archivo usa el modo mapeado, cuyos bloques se reparten en el pool común, para no crear
+     * los hilos de un pipeline por cada archivo del lote.
+     */
+    private Resultado descifrarArchivo(Path archivo, AES.ClaveRecuperada clave) {
+        long inicio = System.nanoTime();
+        try {
+            if (!archivo.getFileName().toString().endsWith(".aes")) {
+                throw new IllegalArgumentException("El archivo cifrado debe tener extension .aes");
+            }
+            File directorio = archivo.toAbsolutePath().getParent().toFile();
+            String descifrado = AES.descifrar(clave, archivo.toFile(), directorio, ContenedorAES.ModoES.MAPEADO);
+            return new Resultado(archivo, true, descifrado, milisegundosDesde(inicio));
+        } catch (Exception e) {
+            return new Resultado(archivo, false, String.valueOf(e.getMessage()), milisegundosDesde(inicio));
+        }
+    }
+
+    private Resultado esperar(Path archivo, Future<Resultado> pendiente) throws IOException {
+        try {
+            return pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("El descifrado de los archivos fue interrumpido.", e);
+        } catch (ExecutionException e) {
+            return new Resultado(archivo, false, String.valueOf(e.getCause().getMessage()), 0);
+        }
+    }
+
+    /**
+     * Expande los patrones con comodines (*, ?, [...], {...}) en el último componente de la ruta.
+     * Los nombres sin comodines se regresan tal cual, aunque no existan, para reportarlos como error.
+     */
+    static List<Path> expandir(List<String> nombres) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        for (String nombre : nombres) {
+            Path ruta = Paths.get(nombre);
+            String patron = ruta.getFileName().toString();
+            if (!patron.matches(".*[*?\\[{].*")) {
+                archivos.add(ruta);
+                continue;
+            }
+            Path directorio = ruta.getParent() == null ? Paths.get(".") : ruta.getParent();
+            List<Path> coincidencias = new ArrayList<>();
+            try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, patron)) {
+                for (Path archivo : contenido) {
+                    if (Files.isRegularFile(archivo)) {
+                        coincidencias.add(ruta.getParent() == null ? archivo.getFileName() : archivo);
+                    }
+                }
+            }
+            coincidencias.sort(null);
+            archivos.addAll(coincidencias);
+        }
+        return archivos;
+    }
+
+    private static long milisegundosDesde(long inicio) {
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+}
@@ -0,0 +1,34 @@
+package mx.unam.criptografia;
+
+/**
+ * Comando para descifrar solo un intervalo de un archivo cifrado.
+ */
+public class ComandoDescifrarRango implements Comando {
+    private String archivoConContraseñasNecesarias;
+    private String archivoCifrado;
+    private long desplazamiento;
+    private long longitud;
+
+    /**
+     * Constructor.
+     * @param archivoConContraseñasNecesarias nombre del archivo con las contraseñas necesarias.
+     * @param archivoCifrado nombre del archivo cifrado.
+     * @param desplazamiento posición del primer byte a descifrar.
+     * @param longitud número de bytes a descifrar.
+     */
+    public ComandoDescifrarRango(String archivoConContraseñasNecesarias, String archivoCifrado, long desplazamiento, long longitud) {
+        this.archivoConContraseñasNecesarias = archivoConContraseñasNecesarias;
+        this.archivoCifrado = archivoCifrado;
+        this.desplazamiento = desplazamiento;
+        this.longitud = longitud;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Descifrando rango...");
+        AES.descifrarRango(archivoConContraseñasNecesarias, archivoCifrado, desplazamiento, longitud);
+    }
+}
@@ -0,0 +1,40 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Comando para iniciar el servidor local que atiende operaciones sin arrancar una JVM por cada una.
+ */
+public class ComandoServidor implements Comando {
+    private int puerto;
+    private int hilos;
+
+    /**
+     * Constructor.
+     * @param puerto Puerto local donde escucha el servidor.
+     * @param hilos Número de conexiones que se atienden al mismo tiempo.
+     */
+    public ComandoServidor(int puerto, int hilos) {
+        this.puerto = puerto;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Ejecuta el comando. No regresa hasta que se detiene el proceso.
+     */
+    @Override
+    public void ejecutar() {
+        try (ServidorShamir servidor = new ServidorShamir(puerto, hilos)) {
+            System.out.printf("Servidor escuchando en 127.0.0.1:%d (%s)%n", servidor.getPuerto(), Hilos.descripcion(hilos));
+            System.out.println("Token de acceso en: " + servidor.getArchivoToken());
+            // Con Ctrl+C no se llega al cierre del try
+            File archivoToken = servidor.getArchivoToken();
+            Runtime.getRuntime().addShutdownHook(new Thread(archivoToken::delete));
+            servidor.atender();
+        } catch (IOException e) {
+            System.err.println("Error al iniciar el servidor: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
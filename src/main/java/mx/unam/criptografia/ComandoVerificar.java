@@ -0,0 +1,48 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Comando para verificar las contraseñas de un archivo contra sus compromisos de Feldman, antes de recuperar
+ * el secreto.
+ */
+public class ComandoVerificar implements Comando {
+    private String archivoConContraseñas;
+    private String archivoCompromisos;
+
+    /**
+     * Constructor.
+     * @param archivoConContraseñas nombre del archivo con las contraseñas a verificar.
+     * @param archivoCompromisos nombre del archivo .cmp con los compromisos.
+     */
+    public ComandoVerificar(String archivoConContraseñas, String archivoCompromisos) {
+        this.archivoConContraseñas = archivoConContraseñas;
+        this.archivoCompromisos = archivoCompromisos;
+    }
+
+    /**
+     * Ejecuta el comando.
+     */
+    @Override
+    public void ejecutar() {
+        System.out.println("Verificando...");
+        try {
+            CompromisosFeldman compromisos = CompromisosFeldman.leer(new File(archivoCompromisos));
+            ConjuntoFragmentos fragmentos = ConjuntoFragmentos.cargarTodos(archivoConContraseñas);
+            if (fragmentos.campo() != compromisos.campo()) {
+                throw new IllegalArgumentException("Las contraseñas y los compromisos son de campos distintos.");
+            }
+            List<BigInteger> invalidas = compromisos.verificarLote(fragmentos.puntos());
+            if (invalidas.isEmpty()) {
+                System.out.println("Las " + fragmentos.tamano() + " contraseñas son válidas.");
+            } else {
+                System.out.println("Contraseñas inválidas (x): " + invalidas);
+            }
+        } catch (Exception e) {
+            System.err.println("Error al verificar las contraseñas: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package mx.unam.criptografia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compromisos de Feldman de los coeficientes del polinomio, para que cada custodio verifique su contraseña
+ * antes de la recuperación.
+ *
+ * <p>Los compromisos viven en un grupo de Schnorr: el subgrupo de orden q de Z_P^*, donde q es el primo del
+ * campo de las contraseñas y P = k·q + 1 es un primo de 2048 bits. Para el coeficiente a_j se publica
+ * C_j = g^(a_j) mod P, y una contraseña (x, y) es válida si g^y = C_0 · C_1^x · ... · C_(t-1)^(x^(t-1)), con
+ * los exponentes módulo q.</p>
+ *
+ * <p>Los compromisos de Feldman no ocultan el secreto: C_0 = g^secreto permite comprobar cualquier candidato con
+ * una sola potencia. Si el secreto fuera el SHA-256 de una contraseña, cualquiera con el .cmp podría probar
+ * contraseñas de un diccionario sin conexión. Por eso con --verificable se comparte una clave aleatoria de 256
+ * bits ({@link SecretoShamir#secretoAleatorio()}) en lugar de la contraseña, y encontrarla a partir de C_0 es
+ * resolver el logaritmo discreto.</p>
+ *
+ * <p>Como el orden del grupo es el primo del campo, la aritmética de los exponentes se hace con los elementos
+ * de {@link CampoFinito}, sin crear objetos. Las potencias módulo P se calculan con {@link BigInteger#modPow},
+ * que multiplica en forma de Montgomery: un producto suelto con multiply y mod cuesta unas diez veces más, así
+ * que tablas de potencias precalculadas armadas con esos productos resultan más lentas que modPow.</p>
+ *
+ * <ul>
+ *     <li>Una contraseña se verifica con Horner en el exponente: ((C_(t-1)^x · C_(t-2))^x ···)·C_0, con t - 1
+ *     potencias de exponente x en vez de t potencias con exponentes x^j de 257 bits. Con x aleatorias de 100
+ *     bits o con x secuenciales los exponentes son mucho más cortos.</li>
+ *     <li>Muchas contraseñas se verifican juntas con una combinación aleatoria: con r_i aleatorios de 128
+ *     bits, todas son válidas (salvo con probabilidad 2^-128) si g^(Σ r_i·y_i) = Π C_j^(Σ r_i·x_i^j). Eso son
+ *     t + 1 potencias sin importar el número de contraseñas; el resto son O(m·t) operaciones en el campo. Si el
+ *     lote falla, se parte a la mitad para encontrar las contraseñas inválidas.</li>
+ * </ul>
+ */
+public final class CompromisosFeldman {
+
+    /**
+     * Bits de los coeficientes aleatorios de la verificación por lotes.
+     */
+    private static final int BITS_ALEATORIOS = 128;
+
+    /**
+     * Extensión del archivo de compromisos, que se escribe junto al .frg.
+     */
+    static final String EXTENSION = ".cmp";
+
+    private static final String PREFIJO_MINIMO = "Numero de compromisos: ";
+
+    private static final Grupo GRUPO_P257 = new Grupo(CampoFinito.P257, 56);
+    private static final Grupo GRUPO_M521 = new Grupo(CampoFinito.M521, 674);
+
+    private final Grupo grupo;
+    private final BigInteger[] compromisos;
+
+    private CompromisosFeldman(Grupo grupo, BigInteger[] compromisos) {
+        this.grupo = grupo;
+        this.compromisos = compromisos;
+    }
+
+    /**
+     * Calcula los compromisos de los coeficientes de {@link SecretoShamir#generaPolinomio}. El término
+     * independiente debe ser aleatorio, no derivado de una contraseña (ver la descripción de la clase).
+     * @param coeficientes Coeficientes del polinomio, del término independiente al de mayor grado.
+     * @param campo Campo en el que se generan las contraseñas.
+     * @return los compromisos.
+     */
+    public static CompromisosFeldman generar(List<BigInteger> coeficientes, CampoFinito<?> campo) {
+        Grupo grupo = Grupo.paraCampo(campo);
+        BigInteger[] compromisos = new BigInteger[coeficientes.size()];
+        for (int j = 0; j < compromisos.length; j++) {
+            compromisos[j] = grupo.g.modPow(coeficientes.get(j).mod(grupo.q), grupo.p);
+        }
+        return new CompromisosFeldman(grupo, compromisos);
+    }
+
+    /**
+     * @param archivoConContraseñas Nombre del archivo .frg.
+     * @return el nombre del archivo de compromisos que le corresponde: el mismo nombre con la extensión .cmp.
+     */
+    public static String archivoPara(String archivoConContraseñas) {
+        String base = archivoConContraseñas.endsWith(".frg")
+                      ? archivoConContraseñas.substring(0, archivoConContraseñas.length() - 4)
+                      : archivoConContraseñas;
+        return base + EXTENSION;
+    }
+
+    /**
+     * Escribe los compromisos: la línea del campo, la del número de compromisos (t) y un compromiso por línea
+     * en hexadecimal.
+     * @param archivo Archivo de destino.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void escribir(File archivo) throws IOException {
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(archivo),
+                                                                      StandardCharsets.UTF_8))) {
+            salida.write(SecretoShamir.PREFIJO_CAMPO + grupo.campo.identificador() + System.lineSeparator());
+            salida.write(PREFIJO_MINIMO + compromisos.length + System.lineSeparator());
+            for (BigInteger compromiso : compromisos) {
+                salida.write(compromiso.toString(16) + System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Lee un archivo de compromisos y verifica que cada compromiso esté en el subgrupo de orden q; si no, la
+     * verificación por lotes no sería confiable.
+     * @param archivo Archivo escrito con {@link #escribir(File)}.
+     * @return los compromisos.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws IllegalArgumentException Si el archivo no tiene el formato esperado o algún compromiso no es válido.
+     */
+    public static CompromisosFeldman leer(File archivo) throws IOException {
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(new FileInputStream(archivo),
+                                                                              StandardCharsets.UTF_8))) {
+            String campo = entrada.readLine();
+            String minimo = entrada.readLine();
+            if (campo == null || minimo == null || !campo.startsWith(SecretoShamir.PREFIJO_CAMPO)
+                || !minimo.startsWith(PREFIJO_MINIMO)) {
+                throw new IllegalArgumentException("El archivo de compromisos no es válido: " + archivo);
+            }
+            Grupo grupo = Grupo.paraCampo(CampoFinito.porIdentificador(
+                campo.substring(SecretoShamir.PREFIJO_CAMPO.length()).trim()));
+            BigInteger[] compromisos;
+            try {
+                compromisos = new BigInteger[Integer.parseInt(minimo.substring(PREFIJO_MINIMO.length()).trim())];
+                for (int j = 0; j < compromisos.length; j++) {
+                    String linea = entrada.readLine();
+                    compromisos[j] = linea == null ? null : new BigInteger(linea.trim(), 16);
+                }
+            } catch (NumberFormatException | NegativeArraySizeException e) {
+                throw new IllegalArgumentException("El archivo de compromisos no es válido: " + archivo, e);
+            }
+            for (BigInteger compromiso : compromisos) {
+                if (compromiso == null || !grupo.esElemento(compromiso)) {
+                    throw new IllegalArgumentException("El archivo de compromisos no es válido: " + archivo);
+                }
+            }
+            return new CompromisosFeldman(grupo, compromisos);
+        }
+    }
+
+    /**
+     * @return el número de compromisos, que es t.
+     */
+    public int minimo() {
+        return compromisos.length;
+    }
+
+    /**
+     * @return el campo de las contraseñas.
+     */
+    public CampoFinito<?> campo() {
+        return grupo.campo;
+    }
+
+    /**
+     * Verifica una sola contraseña.
+     * @param x Coordenada x.
+     * @param y Coordenada y.
+     * @return true si la contraseña está en el polinomio comprometido.
+     */
+    public boolean verificar(BigInteger x, BigInteger y) {
+        BigInteger xq = x.mod(grupo.q);
+        BigInteger producto = compromisos[compromisos.length - 1];
+        for (int j = compromisos.length - 2; j >= 0; j--) {
+            producto = producto.modPow(xq, grupo.p).multiply(compromisos[j]).mod(grupo.p);
+        }
+        return grupo.g.modPow(y.mod(grupo.q), grupo.p).equals(producto);
+    }
+
+    /**
+     * Verifica muchas contraseñas juntas, con t + 1 potencias en total si todas son válidas.
+     * @param puntos Contraseñas (x, y).
+     * @return las x de las contraseñas inválidas, en orden; vacía si todas son válidas.
+     */
+    public List<BigInteger> verificarLote(List<BigInteger[]> puntos) {
+        SecureRandom random = new SecureRandom();
+        List<BigInteger> invalidas = new ArrayList<>();
+        buscarInvalidas(puntos, 0, puntos.size(), random, invalidas);
+        return invalidas;
+    }
+
+    /**
+     * Verifica puntos[desde, hasta) en lote y, si falla, cada mitad por separado.
+     */
+    private void buscarInvalidas(List<BigInteger[]> puntos, int desde, int hasta, SecureRandom random,
+                                 List<BigInteger> invalidas) {
+        if (desde == hasta) {
+            return;
+        }
+        if (hasta - desde == 1) {
+            if (!verificar(puntos.get(desde)[0], puntos.get(desde)[1])) {
+                invalidas.add(puntos.get(desde)[0]);
+            }
+            return;
+        }
+        BigInteger[] exponentes = exponentesLote(puntos, desde, hasta, random, grupo.campo);
+        BigInteger producto = BigInteger.ONE;
+        for (int j = 0; j < compromisos.length; j++) {
+            producto = producto.multiply(compromisos[j].modPow(exponentes[j + 1], grupo.p)).mod(grupo.p);
+        }
+        if (grupo.g.modPow(exponentes[0], grupo.p).equals(producto)) {
+            return;
+        }
+        int mitad = (desde + hasta) >>> 1;
+        buscarInvalidas(puntos, desde, mitad, random, invalidas);
+        buscarInvalidas(puntos, mitad, hasta, random, invalidas);
+    }
+
+    /**
+     * Exponentes de la verificación por lotes, módulo q: Σ r_i·y_i para g y Σ r_i·x_i^j para cada C_j.
+     * @return el exponente de g seguido de los de C_0, ..., C_(t-1).
+     */
+    private <E extends CampoFinito.Elemento<E>> BigInteger[] exponentesLote(List<BigInteger[]> puntos, int desde,
+                                                                           int hasta, SecureRandom random,
+                                                                           CampoFinito<E> campo) {
+        List<E> sumas = new ArrayList<>(compromisos.length + 1);
+        for (int j = 0; j <= compromisos.length; j++) {
+            sumas.add(campo.elemento());
+        }
+        E x = campo.elemento();
+        E r = campo.elemento();
+        E termino = campo.elemento();
+        for (int i = desde; i < hasta; i++) {
+            x.asignar(puntos.get(i)[0]);
+            r.asignar(new BigInteger(BITS_ALEATORIOS, random));
+            sumas.get(0).sumar(termino.asignar(puntos.get(i)[1]).multiplicar(r));
+            termino.asignar(r);
+            for (int j = 1; j <= compromisos.length; j++) {
+                sumas.get(j).sumar(termino);
+                termino.multiplicar(x);
+            }
+        }
+        BigInteger[] exponentes = new BigInteger[sumas.size()];
+        for (int j = 0; j < exponentes.length; j++) {
+            exponentes[j] = sumas.get(j).aBigInteger();
+        }
+        return exponentes;
+    }
+
+    /**
+     * Grupo de Schnorr de un campo: P = k·q + 1 con k = 2^(2048 - bits de q) + 2c, donde c es el menor entero
+     * no negativo con el que P es primo, y g = 2^k mod P, que tiene orden q.
+     */
+    static final class Grupo {
+        final CampoFinito<?> campo;
+        final BigInteger q;
+        final BigInteger p;
+        final BigInteger g;
+
+        Grupo(CampoFinito<?> campo, int c) {
+            this.campo = campo;
+            this.q = campo.modulo();
+            BigInteger k = BigInteger.ONE.shiftLeft(2048 - q.bitLength()).add(BigInteger.valueOf(2L * c));
+            this.p = k.multiply(q).add(BigInteger.ONE);
+            this.g = BigInteger.valueOf(2).modPow(k, p);
+        }
+
+        static Grupo paraCampo(CampoFinito<?> campo) {
+            if (campo == CampoFinito.P257) {
+                return GRUPO_P257;
+            } else if (campo == CampoFinito.M521) {
+                return GRUPO_M521;
+            }
+            throw new IllegalArgumentException("No hay un grupo para los compromisos del campo " + campo.identificador() + ".");
+        }
+
+        /**
+         * @return true si h está en el subgrupo de orden q.
+         */
+        boolean esElemento(BigInteger h) {
+            return h.signum() > 0 && h.compareTo(p) < 0 && h.modPow(q, p).equals(BigInteger.ONE);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contraseñas (puntos) de un secreto junto con sus datos: n, t y el campo. Es inmutable: se lee una vez del
+ * archivo .frg y se pasa tanto a la recuperación del secreto como a la verificación del número mínimo de puntos,
+ * en vez de volver a leer el archivo para cada cosa. También se puede crear con puntos que ya están en memoria.
+ */
+public final class ConjuntoFragmentos {
+
+    private final BigInteger[] x;
+    private final BigInteger[] y;
+    private final int numeroTotal;
+    private final int minimo;
+    private final CampoFinito<?> campo;
+
+    /**
+     * @param puntos Puntos (x, y); se copian.
+     * @param numeroTotal Número total de contraseñas (n), o 0 si no se conoce.
+     * @param minimo Número necesario de contraseñas (t), o 0 si no se conoce.
+     * @param campo Campo en el que se generaron los puntos.
+     */
+    public ConjuntoFragmentos(List<BigInteger[]> puntos, int numeroTotal, int minimo, CampoFinito<?> campo) {
+        if (numeroTotal < 0 || minimo < 0 || campo == null) {
+            throw new IllegalArgumentException("Los datos del conjunto de contraseñas no son válidos.");
+        }
+        x = new BigInteger[puntos.size()];
+        y = new BigInteger[puntos.size()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = puntos.get(i)[0];
+            y[i] = puntos.get(i)[1];
+        }
+        this.numeroTotal = numeroTotal;
+        this.minimo = minimo;
+        this.campo = campo;
+    }
+
+    /**
+     * Lee un archivo con contraseñas, de texto o binario ({@link FormatoBinarioFrg}), en una sola pasada.
+     * Como t puntos bastan para recuperar el secreto, primero se lee t (del encabezado binario o del final del
+     * archivo de texto) y la lectura se detiene al tener t puntos. Los archivos de texto sin la línea del campo
+     * usan {@link CampoFinito#P257}; si les faltan las líneas de n o t, esos valores quedan en 0 y se leen
+     * todos los puntos.
+     * @param archivoConContraseñas Nombre del archivo con contraseñas.
+     * @return las contraseñas del archivo.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public static ConjuntoFragmentos cargar(String archivoConContraseñas) throws IOException {
+        return cargar(archivoConContraseñas, false);
+    }
+
+    /**
+     * Lee todas las contraseñas de un archivo, no solo las primeras t, para poder detectar las dañadas con
+     * {@link CorreccionErrores}.
+     * @param archivoConContraseñas Nombre del archivo con contraseñas.
+     * @return las contraseñas del archivo.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public static ConjuntoFragmentos cargarTodos(String archivoConContraseñas) throws IOException {
+        return cargar(archivoConContraseñas, true);
+    }
+
+    private static ConjuntoFragmentos cargar(String archivoConContraseñas, boolean todos) throws IOException {
+        File archivo = new File(archivoConContraseñas);
+        List<BigInteger[]> puntos = new ArrayList<>();
+        if (FormatoBinarioFrg.esBinario(archivo)) {
+            FormatoBinarioFrg.Encabezado encabezado = FormatoBinarioFrg.leerEncabezado(archivo);
+            FormatoBinarioFrg.leer(archivo, puntos, todos ? Integer.MAX_VALUE : encabezado.minimo);
+            return new ConjuntoFragmentos(puntos, encabezado.numeroTotal, encabezado.minimo, encabezado.campo);
+        }
+        int numeroTotal = 0;
+        int minimo = 0;
+        CampoFinito<?> campo = CampoFinito.P257;
+        for (String linea : FormatoTextoFrg.leerPie(archivo)) {
+            if (linea.startsWith(FormatoTextoFrg.PREFIJO_TOTAL)) {
+                numeroTotal = entero(linea.substring(FormatoTextoFrg.PREFIJO_TOTAL.length()));
+            } else if (linea.startsWith(FormatoTextoFrg.PREFIJO_MINIMO)) {
+                minimo = entero(linea.substring(FormatoTextoFrg.PREFIJO_MINIMO.length()));
+            } else if (linea.startsWith(SecretoShamir.PREFIJO_CAMPO)) {
+                campo = CampoFinito.porIdentificador(linea.substring(SecretoShamir.PREFIJO_CAMPO.length()).trim());
+            }
+        }
+        FormatoTextoFrg.leer(archivo, puntos, null, minimo > 0 && !todos ? minimo : Integer.MAX_VALUE);
+        return new ConjuntoFragmentos(puntos, numeroTotal, minimo, campo);
+    }
+
+    /**
+     * @return el número de puntos.
+     */
+    public int tamano() {
+        return x.length;
+    }
+
+    /**
+     * @param i Índice del punto.
+     * @return la coordenada x del punto.
+     */
+    public BigInteger x(int i) {
+        return x[i];
+    }
+
+    /**
+     * @param i Índice del punto.
+     * @return la coordenada y del punto.
+     */
+    public BigInteger y(int i) {
+        return y[i];
+    }
+
+    /**
+     * @return una copia de los puntos (x, y), en orden.
+     */
+    public List<BigInteger[]> puntos() {
+        return puntos(x.length);
+    }
+
+    /**
+     * @param cuantos Número de puntos, a lo más {@link #tamano()}.
+     * @return una copia de los primeros puntos (x, y), en orden.
+     */
+    public List<BigInteger[]> puntos(int cuantos) {
+        List<BigInteger[]> puntos = new ArrayList<>(cuantos);
+        for (int i = 0; i < cuantos; i++) {
+            puntos.add(new BigInteger[]{x[i], y[i]});
+        }
+        return puntos;
+    }
+
+    /**
+     * @return el número total de contraseñas (n), o 0 si no se conoce.
+     */
+    public int numeroTotal() {
+        return numeroTotal;
+    }
+
+    /**
+     * @return el número necesario de contraseñas (t), o 0 si no se conoce.
+     */
+    public int minimo() {
+        return minimo;
+    }
+
+    /**
+     * @return el campo en el que se generaron los puntos.
+     */
+    public CampoFinito<?> campo() {
+        return campo;
+    }
+
+    /**
+     * @return el valor de una línea de n o t, o 0 si no es un número.
+     */
+    private static int entero(String valor) {
+        try {
+            return Math.max(0, Integer.parseInt(valor.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,705 @@
+package mx.unam.criptografia;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Contenedor cifrado por bloques autenticados (AES-GCM) para los archivos .aes.
+ *
+ * El archivo comienza con un encabezado con la firma "SHMR", la versión, n, t, el nombre del documento claro,
+ * el tamaño de bloque y un prefijo aleatorio para los nonces. Después vienen los bloques, cada uno cifrado de
+ * forma independiente con AES-GCM. El nonce de cada bloque se forma con el prefijo, el índice del bloque y una
+ * bandera que marca el último bloque (construcción STREAM), de modo que no se pueden reordenar, repetir ni
+ * truncar bloques sin que falle la autenticación. El encabezado completo se usa como dato asociado de cada bloque.
+ *
+ * Como los bloques son independientes, se cifran y descifran en paralelo sobre el ForkJoinPool común.
+ * Por defecto la entrada se mapea en memoria y el resultado se escribe desde búferes directos (ver {@link ModoES}).
+ */
+public class ContenedorAES {
+
+    /**
+     * Firma con la que empiezan los archivos en este formato.
+     */
+    static final byte[] MAGIA = {'S', 'H', 'M', 'R'};
+
+    /**
+     * Versión del formato que escribe esta clase.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Tamaño por defecto de cada bloque de texto claro (64 KiB).
+     */
+    static final int TAMANO_BLOQUE = 64 * 1024;
+
+    /**
+     * Tamaño en bytes de la etiqueta de autenticación de cada bloque.
+     */
+    static final int TAMANO_ETIQUETA = 16;
+
+    private static final int TAMANO_PREFIJO = 7;
+    private static final int TAMANO_NONCE = 12;
+    private static final String TRANSFORMACION = "AES/GCM/NoPadding";
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    /**
+     * Cifradores por hilo; un Cipher no se puede compartir entre hilos.
+     */
+    private static final ThreadLocal<Cipher> CIFRADORES = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMACION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM no está disponible.", e);
+        }
+    });
+
+    /**
+     * Forma de mover los bloques entre los archivos y el cifrador.
+     */
+    public enum ModoES {
+        /**
+         * Lecturas posicionales a búferes del heap y escrituras desde búferes del heap.
+         */
+        BUFERES,
+        /**
+         * Entrada mapeada en memoria con {@link FileChannel#map} y salida en búferes directos, de modo que
+         * los datos no pasan por arreglos del heap.
+         */
+        MAPEADO,
+        /**
+         * Lectura, cifrado y escritura en etapas separadas que se traslapan (ver {@link PipelineBloques}).
+         */
+        PIPELINE
+    }
+
+    /**
+     * Encabezado de un archivo cifrado por bloques.
+     */
+    public static final class Encabezado {
+        public final int version;
+        public final int numeroTotalEvaluaciones;
+        public final int minimoEvaluaciones;
+        public final String nombreArchivoClaro;
+        public final int tamanoBloque;
+        private final byte[] prefijo;
+        private final byte[] bytes;
+
+        Encabezado(int version, int numeroTotalEvaluaciones, int minimoEvaluaciones, String nombreArchivoClaro,
+                   int tamanoBloque, byte[] prefijo) {
+            this.version = version;
+            this.numeroTotalEvaluaciones = numeroTotalEvaluaciones;
+            this.minimoEvaluaciones = minimoEvaluaciones;
+            this.nombreArchivoClaro = nombreArchivoClaro;
+            this.tamanoBloque = tamanoBloque;
+            this.prefijo = prefijo.clone();
+            this.bytes = serializar();
+        }
+
+        /**
+         * Longitud en bytes del encabezado dentro del archivo.
+         * @return la posición donde empieza el primer bloque.
+         */
+        public int longitud() {
+            return bytes.length;
+        }
+
+        /**
+         * Tamaño de un bloque completo ya cifrado (bloque claro más etiqueta).
+         * @return tamaño del bloque cifrado.
+         */
+        public int tamanoBloqueCifrado() {
+            return tamanoBloque + TAMANO_ETIQUETA;
+        }
+
+        /**
+         * Posición dentro del archivo cifrado donde empieza un bloque. Todos los bloques, salvo el último,
+         * miden lo mismo, así que el índice de bloques se obtiene directamente del encabezado.
+         * @param indice índice del bloque.
+         * @return posición del bloque en el archivo .aes.
+         */
+        public long posicionBloque(long indice) {
+            return longitud() + indice * tamanoBloqueCifrado();
+        }
+
+        /**
+         * Calcula el tamaño del documento claro a partir del tamaño del archivo cifrado.
+         * @param tamanoArchivo tamaño total del archivo .aes.
+         * @return tamaño del documento claro.
+         */
+        public long tamanoClaro(long tamanoArchivo) {
+            long bloques = numeroBloques(tamanoArchivo);
+            long ultimo = tamanoArchivo - posicionBloque(bloques - 1) - TAMANO_ETIQUETA;
+            return (bloques - 1) * tamanoBloque + Math.max(0, ultimo);
+        }
+
+        /**
+         * Calcula cuántos bloques hay en un archivo cifrado de cierto tamaño.
+         * @param tamanoArchivo tamaño total del archivo .aes.
+         * @return número de bloques.
+         */
+        public long numeroBloques(long tamanoArchivo) {
+            long cuerpo = tamanoArchivo - longitud();
+            return Math.max(1, (cuerpo + tamanoBloqueCifrado() - 1) / tamanoBloqueCifrado());
+        }
+
+        private byte[] serializar() {
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                DataOutputStream salida = new DataOutputStream(buffer);
+                byte[] nombre = nombreArchivoClaro.getBytes(StandardCharsets.UTF_8);
+                salida.write(MAGIA);
+                salida.writeByte(version);
+                salida.writeInt(numeroTotalEvaluaciones);
+                salida.writeInt(minimoEvaluaciones);
+                salida.writeShort(nombre.length);
+                salida.write(nombre);
+                salida.writeInt(tamanoBloque);
+                salida.write(prefijo);
+                salida.flush();
+                return buffer.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Cifra un archivo en el formato por bloques usando la entrada mapeada en memoria.
+     * @param clave Clave AES.
+     * @param archivoClaro Archivo con el documento claro.
+     * @param archivoCifrado Archivo donde se escribe el resultado.
+     * @param numeroTotalEvaluaciones Número total de evaluaciones (n).
+     * @param minimoEvaluaciones Número mínimo de evaluaciones para descifrar (t).
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void cifrar(SecretKeySpec clave, File archivoClaro, File archivoCifrado,
+                              int numeroTotalEvaluaciones, int minimoEvaluaciones) throws IOException {
+        cifrar(clave, archivoClaro, archivoCifrado, numeroTotalEvaluaciones, minimoEvaluaciones, ModoES.MAPEADO);
+    }
+
+    /**
+     * Cifra un archivo en el formato por bloques.
+     * @param clave Clave AES.
+     * @param archivoClaro Archivo con el documento claro.
+     * @param archivoCifrado Archivo donde se escribe el resultado.
+     * @param numeroTotalEvaluaciones Número total de evaluaciones (n).
+     * @param minimoEvaluaciones Número mínimo de evaluaciones para descifrar (t).
+     * @param modo Forma de leer y escribir los bloques.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void cifrar(SecretKeySpec clave, File archivoClaro, File archivoCifrado,
+                              int numeroTotalEvaluaciones, int minimoEvaluaciones, ModoES modo) throws IOException {
+        cifrar(clave, archivoClaro, archivoCifrado, numeroTotalEvaluaciones, minimoEvaluaciones, modo,
+            PipelineBloques.Configuracion.porDefecto());
+    }
+
+    /**
+     * Cifra un archivo en el formato por bloques con el pipeline de lectura, cifrado y escritura.
+     * @param clave Clave AES.
+     * @param archivoClaro Archivo con el documento claro.
+     * @param archivoCifrado Archivo donde se escribe el resultado.
+     * @param numeroTotalEvaluaciones Número total de evaluaciones (n).
+     * @param minimoEvaluaciones Número mínimo de evaluaciones para descifrar (t).
+     * @param configuracion Parámetros del pipeline.
+     * @return los contadores de cada etapa del pipeline.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static PipelineBloques.Estadisticas cifrar(SecretKeySpec clave, File archivoClaro, File archivoCifrado,
+                                                      int numeroTotalEvaluaciones, int minimoEvaluaciones,
+                                                      PipelineBloques.Configuracion configuracion) throws IOException {
+        return cifrar(clave, archivoClaro, archivoCifrado, numeroTotalEvaluaciones, minimoEvaluaciones,
+            ModoES.PIPELINE, configuracion);
+    }
+
+    private static PipelineBloques.Estadisticas cifrar(SecretKeySpec clave, File archivoClaro, File archivoCifrado,
+                                                       int numeroTotalEvaluaciones, int minimoEvaluaciones,
+                                                       ModoES modo, PipelineBloques.Configuracion configuracion)
+            throws IOException {
+        byte[] prefijo = new byte[TAMANO_PREFIJO];
+        ALEATORIO.nextBytes(prefijo);
+        Encabezado encabezado = new Encabezado(VERSION, numeroTotalEvaluaciones, minimoEvaluaciones,
+            archivoClaro.getName(), TAMANO_BLOQUE, prefijo);
+
+        try (FileChannel entrada = FileChannel.open(archivoClaro.toPath(), StandardOpenOption.READ);
+             FileChannel salida = FileChannel.open(archivoCifrado.toPath(), StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            escribirCompleto(salida, ByteBuffer.wrap(encabezado.bytes));
+
+            long tamanoClaro = entrada.size();
+            long totalBloques = Math.max(1, (tamanoClaro + encabezado.tamanoBloque - 1) / encabezado.tamanoBloque);
+            validarNumeroBloques(totalBloques);
+            return procesarBloques(clave, encabezado, true, modo, configuracion, entrada, salida, totalBloques,
+                0, totalBloques - 1, 0, tamanoClaro);
+        }
+    }
+
+    /**
+     * Lee el encabezado de un archivo cifrado.
+     * @param canal Canal abierto sobre el archivo .aes.
+     * @return el encabezado, o null si el archivo no tiene la firma del formato por bloques.
+     * @throws IOException Si ocurre un error de lectura o el encabezado está incompleto.
+     */
+    public static Encabezado leerEncabezado(FileChannel canal) throws IOException {
+        ByteBuffer fijo = ByteBuffer.allocate(MAGIA.length + 1 + 4 + 4 + 2);
+        if (leerCompleto(canal, fijo, 0) < fijo.capacity()) {
+            return null;
+        }
+        fijo.flip();
+        byte[] magia = new byte[MAGIA.length];
+        fijo.get(magia);
+        if (!Arrays.equals(magia, MAGIA)) {
+            return null;
+        }
+        int version = fijo.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de archivo cifrado no soportada: " + version);
+        }
+        int numeroTotalEvaluaciones = fijo.getInt();
+        int minimoEvaluaciones = fijo.getInt();
+        int longitudNombre = fijo.getShort() & 0xFFFF;
+
+        ByteBuffer resto = ByteBuffer.allocate(longitudNombre + 4 + TAMANO_PREFIJO);
+        if (leerCompleto(canal, resto, fijo.capacity()) < resto.capacity()) {
+            throw new IllegalArgumentException("El encabezado del archivo cifrado está incompleto.");
+        }
+        resto.flip();
+        byte[] nombre = new byte[longitudNombre];
+        resto.get(nombre);
+        int tamanoBloque = resto.getInt();
+        byte[] prefijo = new byte[TAMANO_PREFIJO];
+        resto.get(prefijo);
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("Tamaño de bloque inválido en el archivo cifrado.");
+        }
+        return new Encabezado(version, numeroTotalEvaluaciones, minimoEvaluaciones,
+            new String(nombre, StandardCharsets.UTF_8), tamanoBloque, prefijo);
+    }
+
+    /**
+     * Descifra un archivo en el formato por bloques usando la entrada mapeada en memoria.
+     * Cada bloque se autentica antes de escribirse.
+     * @param clave Clave AES.
+     * @param entrada Canal abierto sobre el archivo .aes.
+     * @param encabezado Encabezado leído con {@link #leerEncabezado(FileChannel)}.
+     * @param archivoDescifrado Archivo donde se escribe el documento claro.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void descifrar(SecretKeySpec clave, FileChannel entrada, Encabezado encabezado,
+                                 File archivoDescifrado) throws IOException {
+        descifrar(clave, entrada, encabezado, archivoDescifrado, ModoES.MAPEADO);
+    }
+
+    /**
+     * Descifra un archivo en el formato por bloques. Cada bloque se autentica antes de escribirse.
+     * @param clave Clave AES.
+     * @param entrada Canal abierto sobre el archivo .aes.
+     * @param encabezado Encabezado leído con {@link #leerEncabezado(FileChannel)}.
+     * @param archivoDescifrado Archivo donde se escribe el documento claro.
+     * @param modo Forma de leer y escribir los bloques.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void descifrar(SecretKeySpec clave, FileChannel entrada, Encabezado encabezado,
+                                 File archivoDescifrado, ModoES modo) throws IOException {
+        descifrarRango(clave, entrada, encabezado, 0, encabezado.tamanoClaro(entrada.size()), archivoDescifrado, modo);
+    }
+
+    /**
+     * Descifra un archivo en el formato por bloques con el pipeline de lectura, descifrado y escritura.
+     * @param clave Clave AES.
+     * @param entrada Canal abierto sobre el archivo .aes.
+     * @param encabezado Encabezado leído con {@link #leerEncabezado(FileChannel)}.
+     * @param archivoDescifrado Archivo donde se escribe el documento claro.
+     * @param configuracion Parámetros del pipeline.
+     * @return los contadores de cada etapa del pipeline.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static PipelineBloques.Estadisticas descifrar(SecretKeySpec clave, FileChannel entrada,
+                                                         Encabezado encabezado, File archivoDescifrado,
+                                                         PipelineBloques.Configuracion configuracion)
+            throws IOException {
+        return descifrarRango(clave, entrada, encabezado, 0, encabezado.tamanoClaro(entrada.size()),
+            archivoDescifrado, ModoES.PIPELINE, configuracion);
+    }
+
+    /**
+     * Descifra solo el intervalo [desplazamiento, desplazamiento + longitud) del documento claro.
+     * Únicamente se leen, con lecturas posicionales, y se autentican los bloques que cubren el intervalo,
+     * así que el costo no depende del tamaño del archivo sino del tamaño del intervalo.
+     * @param clave Clave AES.
+     * @param entrada Canal abierto sobre el archivo .aes.
+     * @param encabezado Encabezado leído con {@link #leerEncabezado(FileChannel)}.
+     * @param desplazamiento Posición del primer byte a descifrar dentro del documento claro.
+     * @param longitud Número de bytes a descifrar; se recorta si el intervalo pasa del final del documento.
+     * @param archivoDescifrado Archivo donde se escribe el intervalo descifrado.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void descifrarRango(SecretKeySpec clave, FileChannel entrada, Encabezado encabezado,
+                                      long desplazamiento, long longitud, File archivoDescifrado) throws IOException {
+        descifrarRango(clave, entrada, encabezado, desplazamiento, longitud, archivoDescifrado, ModoES.BUFERES);
+    }
+
+    /**
+     * Descifra solo el intervalo [desplazamiento, desplazamiento + longitud) del documento claro.
+     * @param clave Clave AES.
+     * @param entrada Canal abierto sobre el archivo .aes.
+     * @param encabezado Encabezado leído con {@link #leerEncabezado(FileChannel)}.
+     * @param desplazamiento Posición del primer byte a descifrar dentro del documento claro.
+     * @param longitud Número de bytes a descifrar; se recorta si el intervalo pasa del final del documento.
+     * @param archivoDescifrado Archivo donde se escribe el intervalo descifrado.
+     * @param modo Forma de leer y escribir los bloques.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static void descifrarRango(SecretKeySpec clave, FileChannel entrada, Encabezado encabezado,
+                                      long desplazamiento, long longitud, File archivoDescifrado,
+                                      ModoES modo) throws IOException {
+        descifrarRango(clave, entrada, encabezado, desplazamiento, longitud, archivoDescifrado, modo,
+            PipelineBloques.Configuracion.porDefecto());
+    }
+
+    private static PipelineBloques.Estadisticas descifrarRango(SecretKeySpec clave, FileChannel entrada,
+                                                               Encabezado encabezado, long desplazamiento,
+                                                               long longitud, File archivoDescifrado, ModoES modo,
+                                                               PipelineBloques.Configuracion configuracion)
+            throws IOException {
+        long tamanoArchivo = entrada.size();
+        long totalBloques = encabezado.numeroBloques(tamanoArchivo);
+        validarNumeroBloques(totalBloques);
+        long tamanoClaro = encabezado.tamanoClaro(tamanoArchivo);
+        if (desplazamiento < 0 || longitud < 0) {
+            throw new IllegalArgumentException("El desplazamiento y la longitud no pueden ser negativos.");
+        }
+        if (desplazamiento > tamanoClaro) {
+            throw new IllegalArgumentException("El desplazamiento está fuera del documento (tamaño " + tamanoClaro + ").");
+        }
+        // Sin sumar desplazamiento + longitud directamente, que se desborda con longitudes como Long.MAX_VALUE
+        long fin = desplazamiento + Math.min(longitud, tamanoClaro - desplazamiento);
+        long primerBloque = desplazamiento / encabezado.tamanoBloque;
+        long ultimoBloque = fin == desplazamiento
+            ? primerBloque - 1
+            : Math.min(totalBloques - 1, (fin - 1) / encabezado.tamanoBloque);
+
+        // Si un bloque no se autentica, el archivo que ya existía con ese nombre queda intacto
+        return escribirReemplazando(archivoDescifrado, temporal -> {
+            try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                return procesarBloques(clave, encabezado, false, modo, configuracion, entrada, salida, totalBloques,
+                    primerBloque, ultimoBloque, desplazamiento, fin);
+            }
+        });
+    }
+
+    /**
+     * Cifra o descifra los bloques [primerBloque, ultimoBloque]. Al descifrar, solo se escribe la parte de cada
+     * bloque que cae dentro del intervalo [desplazamiento, fin) del documento claro.
+     * @return los contadores del pipeline, o null si el modo no es {@link ModoES#PIPELINE}.
+     */
+    private static PipelineBloques.Estadisticas procesarBloques(SecretKeySpec clave, Encabezado encabezado,
+                                                                boolean cifrando, ModoES modo,
+                                                                PipelineBloques.Configuracion configuracion,
+                                                                FileChannel entrada, FileChannel salida,
+                                                                long totalBloques, long primerBloque,
+                                                                long ultimoBloque, long desplazamiento, long fin)
+            throws IOException {
+        int tamanoEntrada = cifrando ? encabezado.tamanoBloque : encabezado.tamanoBloqueCifrado();
+        int tamanoSalida = cifrando ? encabezado.tamanoBloqueCifrado() : encabezado.tamanoBloque;
+        long tamanoArchivoEntrada = entrada.size();
+        if (modo == ModoES.PIPELINE) {
+            PipelineBloques.Trabajo trabajo = new PipelineBloques.Trabajo() {
+                @Override
+                public long posicion(long indice) {
+                    return cifrando ? indice * encabezado.tamanoBloque : encabezado.posicionBloque(indice);
+                }
+
+                @Override
+                public int longitud(long indice) {
+                    return (int) Math.max(0, Math.min(tamanoEntrada, tamanoArchivoEntrada - posicion(indice)));
+                }
+
+                @Override
+                public void procesar(long indice, ByteBuffer bloqueEntrada, ByteBuffer bloqueSalida) {
+                    procesarBloque(clave, encabezado, cifrando, indice, indice == totalBloques - 1,
+                        bloqueEntrada, bloqueSalida, desplazamiento, fin);
+                }
+            };
+            return new PipelineBloques(configuracion).ejecutar(entrada, salida, primerBloque, ultimoBloque,
+                tamanoEntrada, tamanoSalida, trabajo);
+        }
+
+        procesarPorLotes(clave, encabezado, cifrando, modo, entrada, salida, totalBloques,
+            primerBloque, ultimoBloque, desplazamiento, fin, tamanoEntrada, tamanoSalida, tamanoArchivoEntrada);
+        return null;
+    }
+
+    /**
+     * Procesa los bloques por lotes: cada lote se lee completo, sus bloques se procesan en paralelo en el
+     * ForkJoinPool común y luego se escriben en orden.
+     */
+    private static void procesarPorLotes(SecretKeySpec clave, Encabezado encabezado, boolean cifrando, ModoES modo,
+                                         FileChannel entrada, FileChannel salida, long totalBloques,
+                                         long primerBloque, long ultimoBloque, long desplazamiento, long fin,
+                                         int tamanoEntrada, int tamanoSalida, long tamanoArchivoEntrada)
+            throws IOException {
+        int porLote = bloquesPorLote();
+        Lector lector = modo == ModoES.MAPEADO
+            ? new LectorMapeado(entrada)
+            : new LectorBuferes(entrada, porLote, tamanoEntrada);
+        ByteBuffer[] bloquesEntrada = new ByteBuffer[porLote];
+        ByteBuffer[] bloquesSalida = new ByteBuffer[porLote];
+        for (int i = 0; i < porLote; i++) {
+            bloquesSalida[i] = modo == ModoES.MAPEADO
+                ? ByteBuffer.allocateDirect(tamanoSalida)
+                : ByteBuffer.allocate(tamanoSalida);
+        }
+
+        for (long primero = primerBloque; primero <= ultimoBloque; primero += porLote) {
+            int cantidad = (int) Math.min(porLote, ultimoBloque - primero + 1);
+            for (int i = 0; i < cantidad; i++) {
+                long indice = primero + i;
+                long posicion = cifrando ? indice * encabezado.tamanoBloque : encabezado.posicionBloque(indice);
+                int longitud = (int) Math.max(0, Math.min(tamanoEntrada, tamanoArchivoEntrada - posicion));
+                bloquesEntrada[i] = lector.leer(i, posicion, longitud);
+            }
+            long base = primero;
+            IntStream.range(0, cantidad).parallel().forEach(i -> {
+                long indice = base + i;
+                procesarBloque(clave, encabezado, cifrando, indice, indice == totalBloques - 1,
+                    bloquesEntrada[i], bloquesSalida[i], desplazamiento, fin);
+            });
+            for (int i = 0; i < cantidad; i++) {
+                escribirCompleto(salida, bloquesSalida[i]);
+            }
+        }
+    }
+
+    /**
+     * Cifra o descifra un bloque y deja el resultado listo para escribirse. Al descifrar, el resultado se
+     * recorta al intervalo [desplazamiento, fin) del documento claro.
+     */
+    private static void procesarBloque(SecretKeySpec clave, Encabezado encabezado, boolean cifrando, long indice,
+                                       boolean ultimo, ByteBuffer bloqueEntrada, ByteBuffer bloqueSalida,
+                                       long desplazamiento, long fin) {
+        bloqueSalida.clear();
+        if (cifrando) {
+            sellar(clave, encabezado, indice, ultimo, bloqueEntrada, bloqueSalida);
+            bloqueSalida.flip();
+            return;
+        }
+        abrir(clave, encabezado, indice, ultimo, bloqueEntrada, bloqueSalida);
+        bloqueSalida.flip();
+        long inicioBloque = indice * encabezado.tamanoBloque;
+        int desde = (int) Math.max(0, desplazamiento - inicioBloque);
+        int hasta = (int) Math.min(bloqueSalida.limit(), fin - inicioBloque);
+        bloqueSalida.limit(hasta).position(desde);
+    }
+
+    /**
+     * Cifra y autentica un bloque.
+     */
+    private static void sellar(SecretKeySpec clave, Encabezado encabezado, long indice, boolean ultimo,
+                               ByteBuffer claro, ByteBuffer cifrado) {
+        try {
+            Cipher cipher = CIFRADORES.get();
+            cipher.init(Cipher.ENCRYPT_MODE, clave, nonce(encabezado, indice, ultimo));
+            cipher.updateAAD(encabezado.bytes);
+            cipher.doFinal(claro, cifrado);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error al cifrar el bloque " + indice + ".", e);
+        }
+    }
+
+    /**
+     * Verifica y descifra un bloque.
+     */
+    private static void abrir(SecretKeySpec clave, Encabezado encabezado, long indice, boolean ultimo,
+                              ByteBuffer cifrado, ByteBuffer claro) {
+        if (cifrado.remaining() < TAMANO_ETIQUETA) {
+            throw new IllegalArgumentException("El archivo cifrado está truncado en el bloque " + indice + ".");
+        }
+        try {
+            Cipher cipher = CIFRADORES.get();
+            cipher.init(Cipher.DECRYPT_MODE, clave, nonce(encabezado, indice, ultimo));
+            cipher.updateAAD(encabezado.bytes);
+            cipher.doFinal(cifrado, claro);
+        } catch (AEADBadTagException e) {
+            throw new IllegalArgumentException("El bloque " + indice
+                + " no pasó la verificación de integridad: el archivo fue alterado o las contraseñas no son correctas.", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error al descifrar el bloque " + indice + ".", e);
+        }
+    }
+
+    /**
+     * Construye el nonce de un bloque: prefijo || índice (32 bits) || bandera de último bloque.
+     */
+    private static GCMParameterSpec nonce(Encabezado encabezado, long indice, boolean ultimo) {
+        byte[] nonce = new byte[TAMANO_NONCE];
+        System.arraycopy(encabezado.prefijo, 0, nonce, 0, TAMANO_PREFIJO);
+        nonce[7] = (byte) (indice >>> 24);
+        nonce[8] = (byte) (indice >>> 16);
+        nonce[9] = (byte) (indice >>> 8);
+        nonce[10] = (byte) indice;
+        nonce[11] = (byte) (ultimo ? 1 : 0);
+        return new GCMParameterSpec(TAMANO_ETIQUETA * 8, nonce);
+    }
+
+    /**
+     * Fuente de los bloques de entrada de un lote.
+     */
+    private interface Lector {
+        /**
+         * Regresa un búfer listo para leerse con el bloque que empieza en la posición indicada.
+         * @param ranura posición del bloque dentro del lote.
+         * @param posicion posición del bloque en el archivo.
+         * @param longitud longitud del bloque.
+         */
+        ByteBuffer leer(int ranura, long posicion, int longitud) throws IOException;
+    }
+
+    /**
+     * Lee cada bloque con una lectura posicional a un búfer del heap, uno por ranura del lote.
+     */
+    private static final class LectorBuferes implements Lector {
+        private final FileChannel canal;
+        private final ByteBuffer[] buferes;
+
+        LectorBuferes(FileChannel canal, int ranuras, int tamano) {
+            this.canal = canal;
+            this.buferes = new ByteBuffer[ranuras];
+            for (int i = 0; i < ranuras; i++) {
+                buferes[i] = ByteBuffer.allocate(tamano);
+            }
+        }
+
+        @Override
+        public ByteBuffer leer(int ranura, long posicion, int longitud) throws IOException {
+            ByteBuffer buffer = buferes[ranura];
+            buffer.clear().limit(longitud);
+            leerCompleto(canal, buffer, posicion);
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Toma cada bloque de una ventana del archivo mapeada en memoria, sin copiarlo al heap.
+     * La ventana se vuelve a mapear cuando un bloque queda fuera de ella.
+     */
+    private static final class LectorMapeado implements Lector {
+        private static final long TAMANO_VENTANA = 64L * 1024 * 1024;
+        private final FileChannel canal;
+        private MappedByteBuffer ventana;
+        private long inicioVentana;
+
+        LectorMapeado(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        @Override
+        public ByteBuffer leer(int ranura, long posicion, int longitud) throws IOException {
+            if (longitud == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            if (ventana == null || posicion < inicioVentana
+                    || posicion + longitud > inicioVentana + ventana.capacity()) {
+                long tamano = Math.min(Math.max(TAMANO_VENTANA, longitud), canal.size() - posicion);
+                ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, tamano);
+                inicioVentana = posicion;
+            }
+            ByteBuffer bloque = ventana.duplicate();
+            int desde = (int) (posicion - inicioVentana);
+            bloque.limit(desde + longitud).position(desde);
+            return bloque.slice();
+        }
+    }
+
+    /**
+     * Número de bloques que se procesan juntos; acota la memoria usada a unos cuantos bloques por hilo.
+     */
+    private static int bloquesPorLote() {
+        return Math.max(1, ForkJoinPool.getCommonPoolParallelism()) * 4;
+    }
+
+    private static void validarNumeroBloques(long totalBloques) {
+        if (totalBloques > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("El archivo es demasiado grande para el tamaño de bloque.");
+        }
+    }
+
+    /**
+     * Lee desde una posición hasta llenar el búfer o llegar al final del archivo.
+     * @return número de bytes leídos.
+     */
+    static int leerCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int leidos = canal.read(buffer, posicion + total);
+            if (leidos < 0) {
+                break;
+            }
+            total += leidos;
+        }
+        return total;
+    }
+
+    /**
+     * Escritura de un archivo temporal para {@link #escribirReemplazando(File, EscrituraTemporal)}.
+     */
+    interface EscrituraTemporal<T, X extends Exception> {
+        T escribir(Path temporal) throws X;
+    }
+
+    /**
+     * Escribe el contenido en un archivo temporal del mismo directorio que el destino y solo cuando la escritura
+     * termina sin errores lo mueve al destino con un renombrado atómico. Si la escritura falla, el temporal se
+     * borra y el destino no se toca.
+     * @return lo que devuelve la escritura.
+     */
+    static <T, X extends Exception> T escribirReemplazando(File destino, EscrituraTemporal<T, X> escritura)
+            throws X, IOException {
+        Path ruta = destino.toPath().toAbsolutePath();
+        Path temporal = Files.createTempFile(ruta.getParent(), "." + ruta.getFileName(), ".tmp");
+        boolean movido = false;
+        try {
+            T resultado = escritura.escribir(temporal);
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+            movido = true;
+            return resultado;
+        } finally {
+            if (!movido) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    /**
+     * Escribe todo el contenido restante del búfer en el canal.
+     */
+    static void escribirCompleto(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+}
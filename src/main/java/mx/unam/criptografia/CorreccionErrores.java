@@ -0,0 +1,232 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recuperación del secreto que tolera contraseñas dañadas, con el decodificador de Reed-Solomon de Gao.
+ *
+ * <p>Las contraseñas de un secreto son las evaluaciones de un polinomio de grado menor a t, es decir, una
+ * palabra de un código de Reed-Solomon. Con m &gt; t contraseñas se pueden encontrar y descartar hasta
+ * ⌊(m - t)/2⌋ dañadas sin probar los C(m, t) subconjuntos:</p>
+ * <ol>
+ *     <li>g0 = (x - x_0)···(x - x_(m-1)) y g1 es el polinomio que interpola las m contraseñas.</li>
+ *     <li>Se aplica el algoritmo de Euclides extendido a g0 y g1 hasta obtener un residuo g = u·g0 + v·g1 de
+ *     grado menor a (m + t)/2.</li>
+ *     <li>Si v divide a g y el cociente f tiene grado menor a t, f es el polinomio original y las contraseñas
+ *     dañadas son aquellas con f(x_i) ≠ y_i (las raíces de v). Si no, hay demasiadas contraseñas dañadas.</li>
+ * </ol>
+ *
+ * <p>Todo cuesta O(m²) operaciones en el campo. Los polinomios son arreglos de coeficientes del término
+ * independiente al de mayor grado, sin ceros al final; el polinomio cero es el arreglo vacío.</p>
+ */
+public final class CorreccionErrores {
+
+    private CorreccionErrores() {
+    }
+
+    /**
+     * Resultado de la decodificación.
+     */
+    public static final class Resultado {
+        /**
+         * El término independiente del polinomio.
+         */
+        public final BigInteger secreto;
+
+        /**
+         * Las x de las contraseñas que no están en el polinomio, en el orden en que se dieron.
+         */
+        public final List<BigInteger> xErroneas;
+
+        Resultado(BigInteger secreto, List<BigInteger> xErroneas) {
+            this.secreto = secreto;
+            this.xErroneas = Collections.unmodifiableList(xErroneas);
+        }
+    }
+
+    /**
+     * Encuentra el polinomio de grado menor a t que pasa por todas las contraseñas salvo a lo más ⌊(m - t)/2⌋.
+     * @param puntos Contraseñas (x, y), con x distintas.
+     * @param minimo Número necesario de contraseñas (t).
+     * @param campo Campo en el que se generaron las contraseñas.
+     * @return el secreto y las x de las contraseñas dañadas.
+     * @throws IllegalArgumentException Si hay menos de t contraseñas, x repetidas o más contraseñas dañadas de
+     * las que se pueden corregir.
+     */
+    public static Resultado decodificar(List<BigInteger[]> puntos, int minimo, CampoFinito<?> campo) {
+        BigInteger modulo = campo.modulo();
+        int m = puntos.size();
+        if (minimo < 1 || m < minimo) {
+            throw new IllegalArgumentException("Se necesitan al menos t = " + minimo + " contraseñas y hay " + m + ".");
+        }
+        BigInteger[] x = new BigInteger[m];
+        BigInteger[] y = new BigInteger[m];
+        Set<BigInteger> distintas = new HashSet<>();
+        for (int i = 0; i < m; i++) {
+            x[i] = puntos.get(i)[0].mod(modulo);
+            y[i] = puntos.get(i)[1].mod(modulo);
+            if (!distintas.add(x[i])) {
+                throw new IllegalArgumentException("Hay dos contraseñas con x = " + puntos.get(i)[0] + ".");
+            }
+        }
+
+        BigInteger[] g0 = {BigInteger.ONE};
+        for (BigInteger xi : x) {
+            g0 = porLineal(g0, xi, modulo);
+        }
+        BigInteger[] g1 = interpolar(g0, x, y, modulo);
+
+        // Euclides extendido, guardando solo el coeficiente de g1
+        BigInteger[] r0 = g0;
+        BigInteger[] r1 = g1;
+        BigInteger[] v0 = {};
+        BigInteger[] v1 = {BigInteger.ONE};
+        while (2 * grado(r1) >= m + minimo) {
+            BigInteger[][] division = dividir(r0, r1, modulo);
+            r0 = r1;
+            r1 = division[1];
+            BigInteger[] v = restar(v0, EvaluacionMultipunto.multiplicar(division[0], v1, modulo), modulo);
+            v0 = v1;
+            v1 = v;
+        }
+
+        BigInteger[][] division = dividir(r1, v1, modulo);
+        BigInteger[] f = division[0];
+        if (division[1].length != 0 || grado(f) >= minimo) {
+            throw new IllegalArgumentException("Hay más de " + (m - minimo) / 2
+                                               + " contraseñas dañadas; no se puede recuperar el secreto.");
+        }
+        List<BigInteger> xErroneas = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            if (!evaluar(f, x[i], modulo).equals(y[i])) {
+                xErroneas.add(puntos.get(i)[0]);
+            }
+        }
+        return new Resultado(f.length == 0 ? BigInteger.ZERO : f[0], xErroneas);
+    }
+
+    /**
+     * Polinomio de grado menor a m que pasa por los m puntos:
+     * g1 = Σ y_i · g0/(x - x_i) / g0'(x_i). Los m valores g0'(x_i) se invierten con una sola inversión.
+     */
+    private static BigInteger[] interpolar(BigInteger[] g0, BigInteger[] x, BigInteger[] y, BigInteger modulo) {
+        int m = x.length;
+        BigInteger[] derivada = new BigInteger[g0.length - 1];
+        for (int i = 1; i < g0.length; i++) {
+            derivada[i - 1] = g0[i].multiply(BigInteger.valueOf(i)).mod(modulo);
+        }
+        // Inversión simultánea: prefijos[i] = d_0···d_(i-1)
+        BigInteger[] pesos = new BigInteger[m];
+        BigInteger[] prefijos = new BigInteger[m + 1];
+        prefijos[0] = BigInteger.ONE;
+        for (int i = 0; i < m; i++) {
+            pesos[i] = evaluar(derivada, x[i], modulo);
+            prefijos[i + 1] = prefijos[i].multiply(pesos[i]).mod(modulo);
+        }
+        BigInteger inverso = prefijos[m].modInverse(modulo);
+        for (int i = m - 1; i >= 0; i--) {
+            BigInteger di = pesos[i];
+            pesos[i] = inverso.multiply(prefijos[i]).multiply(y[i]).mod(modulo);
+            inverso = inverso.multiply(di).mod(modulo);
+        }
+
+        BigInteger[] g1 = new BigInteger[m];
+        Arrays.fill(g1, BigInteger.ZERO);
+        BigInteger[] cociente = new BigInteger[m];
+        for (int i = 0; i < m; i++) {
+            if (pesos[i].signum() == 0) {
+                continue;
+            }
+            // División sintética de g0 entre (x - x_i)
+            BigInteger acumulado = BigInteger.ZERO;
+            for (int k = m; k >= 1; k--) {
+                acumulado = acumulado.multiply(x[i]).add(g0[k]).mod(modulo);
+                cociente[k - 1] = acumulado;
+            }
+            for (int k = 0; k < m; k++) {
+                g1[k] = g1[k].add(pesos[i].multiply(cociente[k]));
+            }
+        }
+        for (int k = 0; k < m; k++) {
+            g1[k] = g1[k].mod(modulo);
+        }
+        return normalizar(g1);
+    }
+
+    /**
+     * Cociente y residuo de a entre b, con b distinto de cero.
+     */
+    private static BigInteger[][] dividir(BigInteger[] a, BigInteger[] b, BigInteger modulo) {
+        if (a.length < b.length) {
+            return new BigInteger[][]{{}, a};
+        }
+        BigInteger[] r = a.clone();
+        BigInteger[] q = new BigInteger[a.length - b.length + 1];
+        BigInteger inversoPrincipal = b[b.length - 1].modInverse(modulo);
+        for (int k = q.length - 1; k >= 0; k--) {
+            BigInteger c = r[k + b.length - 1].multiply(inversoPrincipal).mod(modulo);
+            q[k] = c;
+            if (c.signum() != 0) {
+                for (int j = 0; j < b.length; j++) {
+                    r[k + j] = r[k + j].subtract(c.multiply(b[j])).mod(modulo);
+                }
+            }
+        }
+        return new BigInteger[][]{normalizar(q), normalizar(Arrays.copyOf(r, b.length - 1))};
+    }
+
+    /**
+     * Producto de a por (x - raiz).
+     */
+    private static BigInteger[] porLineal(BigInteger[] a, BigInteger raiz, BigInteger modulo) {
+        BigInteger[] c = new BigInteger[a.length + 1];
+        c[a.length] = a[a.length - 1];
+        for (int k = a.length - 1; k >= 1; k--) {
+            c[k] = a[k - 1].subtract(raiz.multiply(a[k])).mod(modulo);
+        }
+        c[0] = raiz.multiply(a[0]).negate().mod(modulo);
+        return c;
+    }
+
+    private static BigInteger[] restar(BigInteger[] a, BigInteger[] b, BigInteger modulo) {
+        BigInteger[] c = new BigInteger[Math.max(a.length, b.length)];
+        for (int k = 0; k < c.length; k++) {
+            BigInteger ak = k < a.length ? a[k] : BigInteger.ZERO;
+            BigInteger bk = k < b.length ? b[k] : BigInteger.ZERO;
+            c[k] = ak.subtract(bk).mod(modulo);
+        }
+        return normalizar(c);
+    }
+
+    private static BigInteger evaluar(BigInteger[] a, BigInteger x, BigInteger modulo) {
+        BigInteger valor = BigInteger.ZERO;
+        for (int k = a.length - 1; k >= 0; k--) {
+            valor = valor.multiply(x).add(a[k]).mod(modulo);
+        }
+        return valor;
+    }
+
+    /**
+     * @return el grado, o -1 para el polinomio cero.
+     */
+    private static int grado(BigInteger[] a) {
+        return a.length - 1;
+    }
+
+    /**
+     * Quita los coeficientes cero de mayor grado.
+     */
+    private static BigInteger[] normalizar(BigInteger[] a) {
+        int longitud = a.length;
+        while (longitud > 0 && a[longitud - 1].signum() == 0) {
+            longitud--;
+        }
+        return longitud == a.length ? a : Arrays.copyOf(a, longitud);
+    }
+}
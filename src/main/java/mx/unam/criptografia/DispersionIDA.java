@@ -0,0 +1,396 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Dispersión de información de Rabin (IDA) en {@link CampoGF256}: divide un archivo en n piezas de tamaño
+ * |archivo|/t de modo que cualquier grupo de t piezas lo reconstruye. A diferencia de {@link SecretoGF256},
+ * las piezas no ocultan nada por sí solas, así que se usa sobre el archivo .aes ya cifrado y solo la clave se
+ * divide con {@link SecretoShamir}.
+ *
+ * <p>El archivo se parte en t segmentos consecutivos de la misma longitud (el último se completa con ceros).
+ * La pieza de coordenada x es la combinación de los segmentos con el renglón de Vandermonde (1, x, x^2, ...):
+ * pieza = suma de x^k·segmento_k. Para reconstruir se invierte la matriz de Vandermonde de las t piezas
+ * disponibles y cada segmento es la combinación de las piezas con un renglón de la inversa.</p>
+ *
+ * <p>Cada pieza empieza con un encabezado con la firma "SIDA", la versión, x, n, t, el tamaño del archivo
+ * original y un identificador aleatorio común a las piezas de una misma dispersión. Los segmentos se procesan por franjas de {@link #TAMANO_FRANJA} bytes con la misma posición en
+ * todos los segmentos; las franjas son independientes y se reparten entre varios hilos, cada uno con sus
+ * propios búferes y con lecturas y escrituras posicionales.</p>
+ */
+public final class DispersionIDA {
+
+    /**
+     * Firma con la que empiezan las piezas.
+     */
+    static final byte[] MAGIA = {'S', 'I', 'D', 'A'};
+
+    /**
+     * Versión del formato de las piezas.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Bytes del encabezado: firma, versión, x, n, t, tamaño original e identificador.
+     */
+    static final int TAMANO_ENCABEZADO = MAGIA.length + 4 + 8 + 8;
+
+    /**
+     * Bytes de cada segmento que se procesan juntos.
+     */
+    static final int TAMANO_FRANJA = 64 * 1024;
+
+    /**
+     * Terminación de las piezas, seguida de su coordenada x: archivo.aes.ida1, archivo.aes.ida2, ...
+     */
+    static final String EXTENSION = ".ida";
+
+    private DispersionIDA() {
+    }
+
+    /**
+     * Encabezado de una pieza.
+     */
+    public static final class Pieza {
+        public final File archivo;
+        public final int x;
+        public final int numeroPiezas;
+        public final int minimoPiezas;
+        public final long tamanoOriginal;
+        public final long identificador;
+
+        Pieza(File archivo, int x, int numeroPiezas, int minimoPiezas, long tamanoOriginal, long identificador) {
+            this.archivo = archivo;
+            this.x = x;
+            this.numeroPiezas = numeroPiezas;
+            this.minimoPiezas = minimoPiezas;
+            this.tamanoOriginal = tamanoOriginal;
+            this.identificador = identificador;
+        }
+
+        /**
+         * @return la longitud de cada segmento, que es también la de los datos de la pieza.
+         */
+        long longitudSegmento() {
+            return (tamanoOriginal + minimoPiezas - 1) / minimoPiezas;
+        }
+    }
+
+    /**
+     * Divide un archivo en n piezas, que se escriben junto a él como archivo.ida1 a archivo.idaN.
+     * @param archivo Archivo a dividir.
+     * @param n Número de piezas, entre t y 255.
+     * @param t Número de piezas necesarias para reconstruir el archivo, al menos 1.
+     * @param hilos Número de hilos que procesan las franjas.
+     * @return las piezas escritas, en orden de x.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    public static List<File> dispersar(File archivo, int n, int t, int hilos) throws IOException {
+        if (t < 1 || n < t || n > 255) {
+            throw new IllegalArgumentException("Se necesita 1 <= t <= n <= 255 para dispersar el archivo.");
+        }
+        List<File> piezas = new ArrayList<>();
+        FileChannel[] salidas = new FileChannel[n];
+        try (FileChannel entrada = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = entrada.size();
+            long identificador = new SecureRandom().nextLong();
+            for (int j = 0; j < n; j++) {
+                File pieza = new File(archivo.getPath() + EXTENSION + (j + 1));
+                piezas.add(pieza);
+                salidas[j] = FileChannel.open(pieza.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                ContenedorAES.escribirCompleto(salidas[j], encabezado(j + 1, n, t, tamano, identificador));
+            }
+            long segmento = (tamano + t - 1) / t;
+            procesarFranjas(segmento, hilos, () -> new Franjas(t, n) {
+                @Override
+                void procesar(long desde, int longitud) throws IOException {
+                    for (int k = 0; k < t; k++) {
+                        leerSegmento(entrada, k * segmento + desde, Math.min(longitud, tamano - k * segmento - desde),
+                            entradas[k], longitud);
+                    }
+                    for (int j = 0; j < n; j++) {
+                        int x = j + 1;
+                        Arrays.fill(resultados[j], 0, longitud, (byte) 0);
+                        int potencia = 1;
+                        for (int k = 0; k < t; k++) {
+                            CampoGF256.multiplicarYAcumular(potencia, entradas[k], 0, resultados[j], 0, longitud);
+                            potencia = CampoGF256.multiplicar(potencia, x);
+                        }
+                        escribir(salidas[j], TAMANO_ENCABEZADO + desde, resultados[j], longitud);
+                    }
+                }
+            });
+        } finally {
+            cerrar(salidas);
+        }
+        return piezas;
+    }
+
+    /**
+     * Reconstruye el archivo original a partir de al menos t piezas; si hay más, se usan las primeras t.
+     * @param piezas Archivos de las piezas.
+     * @param archivo Archivo donde se escribe el resultado.
+     * @param hilos Número de hilos que procesan las franjas.
+     * @return el tamaño del archivo reconstruido.
+     * @throws IOException Si ocurre un error al leer o escribir, o si las piezas no son de un mismo archivo.
+     */
+    public static long reconstruir(List<File> piezas, File archivo, int hilos) throws IOException {
+        List<Pieza> encabezados = new ArrayList<>();
+        for (File pieza : piezas) {
+            encabezados.add(leerEncabezado(pieza));
+        }
+        Pieza primera = encabezados.get(0);
+        int t = primera.minimoPiezas;
+        if (encabezados.size() < t) {
+            throw new IllegalArgumentException("Se necesitan " + t + " piezas para reconstruir el archivo y solo se dieron "
+                + encabezados.size() + ".");
+        }
+        int[] x = new int[t];
+        for (int j = 0; j < t; j++) {
+            Pieza pieza = encabezados.get(j);
+            if (pieza.minimoPiezas != t || pieza.numeroPiezas != primera.numeroPiezas
+                    || pieza.tamanoOriginal != primera.tamanoOriginal || pieza.identificador != primera.identificador) {
+                throw new IllegalArgumentException("Las piezas no son del mismo archivo: " + pieza.archivo);
+            }
+            x[j] = pieza.x;
+        }
+        int[][] inversa = inversaVandermonde(x);
+        long tamano = primera.tamanoOriginal;
+        long segmento = primera.longitudSegmento();
+
+        FileChannel[] canales = new FileChannel[t];
+        try (FileChannel salida = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int j = 0; j < t; j++) {
+                canales[j] = FileChannel.open(encabezados.get(j).archivo.toPath(), StandardOpenOption.READ);
+                if (canales[j].size() != TAMANO_ENCABEZADO + segmento) {
+                    throw new IOException("La pieza está incompleta: " + encabezados.get(j).archivo);
+                }
+            }
+            procesarFranjas(segmento, hilos, () -> new Franjas(t, t) {
+                @Override
+                void procesar(long desde, int longitud) throws IOException {
+                    for (int j = 0; j < t; j++) {
+                        leerSegmento(canales[j], TAMANO_ENCABEZADO + desde, longitud, entradas[j], longitud);
+                    }
+                    for (int k = 0; k < t; k++) {
+                        long posicion = k * segmento + desde;
+                        if (posicion >= tamano) {
+                            continue;
+                        }
+                        Arrays.fill(resultados[k], 0, longitud, (byte) 0);
+                        for (int j = 0; j < t; j++) {
+                            CampoGF256.multiplicarYAcumular(inversa[k][j], entradas[j], 0, resultados[k], 0, longitud);
+                        }
+                        escribir(salida, posicion, resultados[k], (int) Math.min(longitud, tamano - posicion));
+                    }
+                }
+            });
+            salida.truncate(tamano);
+        } finally {
+            cerrar(canales);
+        }
+        return tamano;
+    }
+
+    /**
+     * Lee el encabezado de una pieza.
+     * @param pieza Archivo de la pieza.
+     * @return el encabezado.
+     * @throws IOException Si ocurre un error al leer o el archivo no es una pieza.
+     */
+    public static Pieza leerEncabezado(File pieza) throws IOException {
+        try (FileChannel canal = FileChannel.open(pieza.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANO_ENCABEZADO);
+            if (ContenedorAES.leerCompleto(canal, buffer, 0) < TAMANO_ENCABEZADO) {
+                throw new IllegalArgumentException("El archivo no es una pieza dispersa: " + pieza);
+            }
+            buffer.flip();
+            byte[] magia = new byte[MAGIA.length];
+            buffer.get(magia);
+            if (!Arrays.equals(magia, MAGIA)) {
+                throw new IllegalArgumentException("El archivo no es una pieza dispersa: " + pieza);
+            }
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versión de pieza no soportada: " + version);
+            }
+            int x = buffer.get() & 0xFF;
+            int n = buffer.get() & 0xFF;
+            int t = buffer.get() & 0xFF;
+            long tamano = buffer.getLong();
+            long identificador = buffer.getLong();
+            if (x == 0 || t == 0 || n < t || tamano < 0) {
+                throw new IllegalArgumentException("El encabezado de la pieza no es válido: " + pieza);
+            }
+            return new Pieza(pieza, x, n, t, tamano, identificador);
+        }
+    }
+
+    /**
+     * Invierte la matriz de Vandermonde V[j][k] = x[j]^k con eliminación de Gauss-Jordan en GF(256).
+     * @param x Coordenadas distintas entre sí y distintas de cero, de modo que la matriz es invertible.
+     * @return la matriz inversa.
+     * @throws IllegalArgumentException Si hay coordenadas repetidas.
+     */
+    static int[][] inversaVandermonde(int[] x) {
+        int t = x.length;
+        int[][] matriz = new int[t][2 * t];
+        for (int j = 0; j < t; j++) {
+            int potencia = 1;
+            for (int k = 0; k < t; k++) {
+                matriz[j][k] = potencia;
+                potencia = CampoGF256.multiplicar(potencia, x[j]);
+            }
+            matriz[j][t + j] = 1;
+        }
+        for (int columna = 0; columna < t; columna++) {
+            int pivote = columna;
+            while (pivote < t && matriz[pivote][columna] == 0) {
+                pivote++;
+            }
+            if (pivote == t) {
+                throw new IllegalArgumentException("Las piezas tienen coordenadas repetidas.");
+            }
+            int[] renglon = matriz[pivote];
+            matriz[pivote] = matriz[columna];
+            matriz[columna] = renglon;
+            int inverso = CampoGF256.inverso(renglon[columna]);
+            for (int k = 0; k < 2 * t; k++) {
+                renglon[k] = CampoGF256.multiplicar(renglon[k], inverso);
+            }
+            for (int j = 0; j < t; j++) {
+                int factor = matriz[j][columna];
+                if (j != columna && factor != 0) {
+                    for (int k = 0; k < 2 * t; k++) {
+                        matriz[j][k] ^= CampoGF256.multiplicar(factor, renglon[k]);
+                    }
+                }
+            }
+        }
+        int[][] inversa = new int[t][];
+        for (int j = 0; j < t; j++) {
+            inversa[j] = Arrays.copyOfRange(matriz[j], t, 2 * t);
+        }
+        return inversa;
+    }
+
+    /**
+     * Búferes de un hilo y operación que se aplica a cada una de sus franjas.
+     */
+    private abstract static class Franjas {
+        final byte[][] entradas;
+        final byte[][] resultados;
+
+        Franjas(int numeroEntradas, int numeroResultados) {
+            this.entradas = new byte[numeroEntradas][TAMANO_FRANJA];
+            this.resultados = new byte[numeroResultados][TAMANO_FRANJA];
+        }
+
+        /**
+         * Procesa los bytes [desde, desde + longitud) de todos los segmentos.
+         */
+        abstract void procesar(long desde, int longitud) throws IOException;
+    }
+
+    /**
+     * Fábrica de {@link Franjas}: cada hilo crea los suyos.
+     */
+    private interface CreadorFranjas {
+        Franjas crear();
+    }
+
+    /**
+     * Reparte las franjas de los segmentos entre los hilos: el hilo w procesa las franjas w, w + hilos, ...
+     */
+    private static void procesarFranjas(long segmento, int hilos, CreadorFranjas creador) throws IOException {
+        long totalFranjas = (segmento + TAMANO_FRANJA - 1) / TAMANO_FRANJA;
+        int tareas = (int) Math.max(1, Math.min(hilos, totalFranjas));
+        ExecutorService ejecutor = Hilos.ejecutorLote(tareas);
+        try {
+            List<Future<Void>> pendientes = new ArrayList<>();
+            for (int w = 0; w < tareas; w++) {
+                int primera = w;
+                Callable<Void> tarea = () -> {
+                    Franjas franjas = creador.crear();
+                    for (long f = primera; f < totalFranjas; f += tareas) {
+                        long desde = f * TAMANO_FRANJA;
+                        franjas.procesar(desde, (int) Math.min(TAMANO_FRANJA, segmento - desde));
+                    }
+                    return null;
+                };
+                pendientes.add(ejecutor.submit(tarea));
+            }
+            for (Future<Void> pendiente : pendientes) {
+                esperar(pendiente);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private static void esperar(Future<Void> pendiente) throws IOException {
+        try {
+            pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("La dispersión fue interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Lee {@code disponibles} bytes (o ninguno si es negativo) y completa con ceros hasta {@code longitud}.
+     */
+    private static void leerSegmento(FileChannel canal, long posicion, long disponibles, byte[] destino, int longitud)
+            throws IOException {
+        int leer = (int) Math.max(0, Math.min(disponibles, longitud));
+        if (ContenedorAES.leerCompleto(canal, ByteBuffer.wrap(destino, 0, leer), posicion) < leer) {
+            throw new IOException("El archivo terminó antes de lo esperado.");
+        }
+        Arrays.fill(destino, leer, longitud, (byte) 0);
+    }
+
+    private static void escribir(FileChannel canal, long posicion, byte[] datos, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(datos, 0, longitud);
+        while (buffer.hasRemaining()) {
+            posicion += canal.write(buffer, posicion);
+        }
+    }
+
+    private static ByteBuffer encabezado(int x, int n, int t, long tamano, long identificador) {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_ENCABEZADO);
+        buffer.put(MAGIA).put((byte) VERSION).put((byte) x).put((byte) n).put((byte) t).putLong(tamano)
+            .putLong(identificador);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void cerrar(FileChannel[] canales) throws IOException {
+        for (FileChannel canal : canales) {
+            if (canal != null) {
+                canal.close();
+            }
+        }
+    }
+}
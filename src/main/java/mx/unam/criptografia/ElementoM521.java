@@ -0,0 +1,286 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Elemento del campo de enteros módulo el primo de Mersenne p = 2^521 - 1.
+ *
+ * <p>El valor se guarda en forma normal en diecisiete palabras de 32 bits, de la menos a la más significativa;
+ * la última palabra usa solo 9 bits. Como 2^521 es congruente con 1 módulo p, un producto de hasta 1042 bits se
+ * reduce sumando su parte baja (los primeros 521 bits) con su parte alta corrida 521 bits, sin divisiones.</p>
+ *
+ * <p>Las operaciones modifican el elemento sobre el que se llaman y no crean objetos: cada elemento tiene
+ * su propio arreglo de trabajo. Por lo mismo, un elemento no debe usarse desde varios hilos a la vez.</p>
+ */
+public final class ElementoM521 implements CampoFinito.Elemento<ElementoM521> {
+
+    /**
+     * Número de palabras de 32 bits de cada elemento.
+     */
+    static final int PALABRAS = 17;
+
+    /**
+     * Bits de la última palabra.
+     */
+    private static final int BITS_ALTOS = 521 - 32 * (PALABRAS - 1);
+
+    private static final long MASCARA = 0xFFFFFFFFL;
+
+    private static final long MASCARA_ALTA = (1L << BITS_ALTOS) - 1;
+
+    /**
+     * El primo p = 2^521 - 1.
+     */
+    static final BigInteger MODULO = BigInteger.ONE.shiftLeft(521).subtract(BigInteger.ONE);
+
+    /**
+     * Exponente p - 2 para calcular inversos con el pequeño teorema de Fermat.
+     */
+    private static final BigInteger EXPONENTE_INVERSO = MODULO.subtract(BigInteger.valueOf(2));
+
+    /**
+     * El campo de los enteros módulo 2^521 - 1. La única instancia es {@link CampoFinito#M521}; es una clase aparte para
+     * que inicializar esta clase no inicialice la interfaz, que a su vez crea el campo.
+     */
+    static final class Campo implements CampoFinito<ElementoM521> {
+
+        Campo() {
+        }
+
+        @Override
+        public String identificador() {
+            return "m521";
+        }
+
+        @Override
+        public BigInteger modulo() {
+            return MODULO;
+        }
+
+        @Override
+        public ElementoM521 elemento() {
+            return new ElementoM521();
+        }
+    }
+
+    private final long[] valor = new long[PALABRAS];
+    private final long[] producto = new long[2 * PALABRAS];
+    private final long[] auxiliar = new long[PALABRAS];
+
+    /**
+     * Crea el elemento cero.
+     */
+    public ElementoM521() {
+    }
+
+    /**
+     * Crea un elemento a partir de un entero; el entero se reduce módulo p.
+     * @param entero Valor del elemento.
+     */
+    public ElementoM521(BigInteger entero) {
+        asignar(entero);
+    }
+
+    @Override
+    public ElementoM521 asignar(BigInteger entero) {
+        BigInteger reducido = entero.mod(MODULO);
+        for (int i = 0; i < PALABRAS; i++) {
+            valor[i] = reducido.shiftRight(32 * i).longValue() & MASCARA;
+        }
+        return this;
+    }
+
+    @Override
+    public ElementoM521 asignar(ElementoM521 otro) {
+        System.arraycopy(otro.valor, 0, valor, 0, PALABRAS);
+        return this;
+    }
+
+    @Override
+    public ElementoM521 asignarCero() {
+        Arrays.fill(valor, 0);
+        return this;
+    }
+
+    @Override
+    public ElementoM521 asignarUno() {
+        Arrays.fill(valor, 0);
+        valor[0] = 1;
+        return this;
+    }
+
+    @Override
+    public ElementoM521 copia() {
+        return new ElementoM521().asignar(this);
+    }
+
+    @Override
+    public BigInteger aBigInteger() {
+        byte[] bytes = new byte[4 * PALABRAS];
+        for (int i = 0; i < PALABRAS; i++) {
+            long palabra = valor[PALABRAS - 1 - i];
+            bytes[4 * i] = (byte) (palabra >>> 24);
+            bytes[4 * i + 1] = (byte) (palabra >>> 16);
+            bytes[4 * i + 2] = (byte) (palabra >>> 8);
+            bytes[4 * i + 3] = (byte) palabra;
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    @Override
+    public boolean esCero() {
+        for (long palabra : valor) {
+            if (palabra != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ElementoM521 sumar(ElementoM521 otro) {
+        long acarreo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long suma = valor[i] + otro.valor[i] + acarreo;
+            valor[i] = suma & MASCARA;
+            acarreo = suma >>> 32;
+        }
+        normalizar();
+        return this;
+    }
+
+    /**
+     * Resta otro elemento a este, como la suma con p - otro; p - otro es el complemento de sus bits porque
+     * todos los bits de p son unos.
+     */
+    @Override
+    public ElementoM521 restar(ElementoM521 otro) {
+        long acarreo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long complemento = (i == PALABRAS - 1 ? MASCARA_ALTA : MASCARA) - otro.valor[i];
+            long suma = valor[i] + complemento + acarreo;
+            valor[i] = suma & MASCARA;
+            acarreo = suma >>> 32;
+        }
+        normalizar();
+        return this;
+    }
+
+    @Override
+    public ElementoM521 negar() {
+        for (int i = 0; i < PALABRAS; i++) {
+            valor[i] = (i == PALABRAS - 1 ? MASCARA_ALTA : MASCARA) - valor[i];
+        }
+        normalizar();
+        return this;
+    }
+
+    /**
+     * Multiplica este elemento por otro (puede ser él mismo).
+     */
+    @Override
+    public ElementoM521 multiplicar(ElementoM521 otro) {
+        multiplicar(valor, otro.valor);
+        return this;
+    }
+
+    @Override
+    public ElementoM521 multiplicar(int entero) {
+        long acarreo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long x = valor[i] * entero + acarreo;
+            valor[i] = x & MASCARA;
+            acarreo = x >>> 32;
+        }
+        // Lo que pasa de 521 bits (en la última palabra y el acarreo) se suma abajo, pues 2^521 ≡ 1
+        long alta = (valor[PALABRAS - 1] >>> BITS_ALTOS) | (acarreo << (32 - BITS_ALTOS));
+        valor[PALABRAS - 1] &= MASCARA_ALTA;
+        for (int i = 0; i < PALABRAS && alta != 0; i++) {
+            long suma = valor[i] + alta;
+            valor[i] = suma & MASCARA;
+            alta = suma >>> 32;
+        }
+        normalizar();
+        return this;
+    }
+
+    @Override
+    public ElementoM521 invertir() {
+        if (esCero()) {
+            throw new ArithmeticException("El cero no tiene inverso.");
+        }
+        System.arraycopy(valor, 0, auxiliar, 0, PALABRAS);
+        asignarUno();
+        for (int bit = EXPONENTE_INVERSO.bitLength() - 1; bit >= 0; bit--) {
+            multiplicar(valor, valor);
+            if (EXPONENTE_INVERSO.testBit(bit)) {
+                multiplicar(valor, auxiliar);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof ElementoM521 && Arrays.equals(valor, ((ElementoM521) otro).valor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(valor);
+    }
+
+    @Override
+    public String toString() {
+        return aBigInteger().toString();
+    }
+
+    /**
+     * valor = a·b mod p: producto de escuela en 34 palabras y reducción sumando la parte alta, corrida
+     * 521 bits, a la parte baja. a o b pueden ser el arreglo del valor.
+     */
+    private void multiplicar(long[] a, long[] b) {
+        long[] t = producto;
+        Arrays.fill(t, 0);
+        for (int i = 0; i < PALABRAS; i++) {
+            long ai = a[i];
+            long acarreo = 0;
+            for (int j = 0; j < PALABRAS; j++) {
+                long x = t[i + j] + ai * b[j] + acarreo;
+                t[i + j] = x & MASCARA;
+                acarreo = x >>> 32;
+            }
+            t[i + PALABRAS] = acarreo;
+        }
+        long acarreo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long alta = ((t[PALABRAS - 1 + i] >>> BITS_ALTOS) | (t[PALABRAS + i] << (32 - BITS_ALTOS))) & MASCARA;
+            long baja = i == PALABRAS - 1 ? t[i] & MASCARA_ALTA : t[i];
+            long suma = baja + alta + acarreo;
+            valor[i] = suma & MASCARA;
+            acarreo = suma >>> 32;
+        }
+        normalizar();
+    }
+
+    /**
+     * Deja el valor entre 0 y p - 1. El valor debe ser menor a 2^522: se suma el bit 521 a la parte baja
+     * y, si el resultado es p (todos los bits en uno), se cambia por cero.
+     */
+    private void normalizar() {
+        long alta = valor[PALABRAS - 1] >>> BITS_ALTOS;
+        valor[PALABRAS - 1] &= MASCARA_ALTA;
+        for (int i = 0; i < PALABRAS && alta != 0; i++) {
+            long suma = valor[i] + alta;
+            valor[i] = suma & MASCARA;
+            alta = suma >>> 32;
+        }
+        for (int i = 0; i < PALABRAS; i++) {
+            if (valor[i] != (i == PALABRAS - 1 ? MASCARA_ALTA : MASCARA)) {
+                return;
+            }
+        }
+        Arrays.fill(valor, 0);
+    }
+}
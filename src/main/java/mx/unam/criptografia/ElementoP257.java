@@ -0,0 +1,375 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Elemento del campo de enteros módulo el primo de 257 bits de {@link SecretoShamir}, con aritmética de
+ * tamaño fijo y sin objetos intermedios.
+ *
+ * <p>El valor se guarda en forma de Montgomery (a·R mod p, con R = 2^288) en nueve palabras de 32 bits,
+ * de la menos a la más significativa. Se usan palabras de 32 bits porque el primo no cabe en cuatro de 64
+ * y Java 8 no tiene la parte alta del producto de 64 por 64 bits; así, cada producto parcial cabe en un long.</p>
+ *
+ * <p>Las operaciones modifican el elemento sobre el que se llaman y no crean objetos: cada elemento tiene
+ * sus propios arreglos de trabajo. Por lo mismo, un elemento no debe usarse desde varios hilos a la vez.</p>
+ */
+public final class ElementoP257 implements CampoFinito.Elemento<ElementoP257> {
+
+    /**
+     * Número de palabras de 32 bits de cada elemento.
+     */
+    static final int PALABRAS = 9;
+
+    private static final long MASCARA = 0xFFFFFFFFL;
+
+    /**
+     * El primo p.
+     */
+    static final BigInteger MODULO = new BigInteger("208351617316091241234326746312124448251235562226470491514186331217050270460481");
+
+    private static final long[] P = palabras(MODULO);
+
+    /**
+     * -p^(-1) mod 2^32.
+     */
+    private static final long P_PRIMA = MODULO.modInverse(BigInteger.ONE.shiftLeft(32)).negate()
+        .mod(BigInteger.ONE.shiftLeft(32)).longValue();
+
+    /**
+     * R^2 mod p, para pasar un valor a la forma de Montgomery.
+     */
+    private static final long[] R2 = palabras(BigInteger.ONE.shiftLeft(2 * 32 * PALABRAS).mod(MODULO));
+
+    /**
+     * R mod p, el uno en forma de Montgomery.
+     */
+    private static final long[] UNO = palabras(BigInteger.ONE.shiftLeft(32 * PALABRAS).mod(MODULO));
+
+    /**
+     * Exponente p - 2 para calcular inversos con el pequeño teorema de Fermat.
+     */
+    private static final BigInteger EXPONENTE_INVERSO = MODULO.subtract(BigInteger.valueOf(2));
+
+    /**
+     * El campo de los enteros módulo p. La única instancia es {@link CampoFinito#P257}; es una clase aparte para
+     * que inicializar esta clase no inicialice la interfaz, que a su vez crea el campo.
+     */
+    static final class Campo implements CampoFinito<ElementoP257> {
+
+        Campo() {
+        }
+
+        @Override
+        public String identificador() {
+            return "p257";
+        }
+
+        @Override
+        public BigInteger modulo() {
+            return MODULO;
+        }
+
+        @Override
+        public ElementoP257 elemento() {
+            return new ElementoP257();
+        }
+    }
+
+    private final long[] valor = new long[PALABRAS];
+    private final long[] acumulador = new long[PALABRAS + 2];
+    private final long[] auxiliar = new long[PALABRAS];
+
+    /**
+     * Crea el elemento cero.
+     */
+    public ElementoP257() {
+    }
+
+    /**
+     * Crea un elemento a partir de un entero; el entero se reduce módulo p.
+     * @param entero Valor del elemento.
+     */
+    public ElementoP257(BigInteger entero) {
+        asignar(entero);
+    }
+
+    /**
+     * @return el elemento uno.
+     */
+    public static ElementoP257 uno() {
+        ElementoP257 uno = new ElementoP257();
+        System.arraycopy(UNO, 0, uno.valor, 0, PALABRAS);
+        return uno;
+    }
+
+    /**
+     * Asigna un entero, reducido módulo p.
+     * @param entero Valor a asignar.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 asignar(BigInteger entero) {
+        long[] normal = palabras(entero.mod(MODULO));
+        montgomery(normal, R2, valor);
+        return this;
+    }
+
+    /**
+     * Copia el valor de otro elemento.
+     * @param otro Elemento a copiar.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 asignar(ElementoP257 otro) {
+        System.arraycopy(otro.valor, 0, valor, 0, PALABRAS);
+        return this;
+    }
+
+    /**
+     * Asigna el cero.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 asignarCero() {
+        Arrays.fill(valor, 0);
+        return this;
+    }
+
+    /**
+     * Asigna el uno.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 asignarUno() {
+        System.arraycopy(UNO, 0, valor, 0, PALABRAS);
+        return this;
+    }
+
+    /**
+     * @return una copia de este elemento.
+     */
+    @Override
+    public ElementoP257 copia() {
+        return new ElementoP257().asignar(this);
+    }
+
+    /**
+     * @return el valor como entero entre 0 y p - 1.
+     */
+    @Override
+    public BigInteger aBigInteger() {
+        Arrays.fill(auxiliar, 0);
+        auxiliar[0] = 1;
+        long[] normal = new long[PALABRAS];
+        montgomery(valor, auxiliar, normal);
+        byte[] bytes = new byte[4 * PALABRAS];
+        for (int i = 0; i < PALABRAS; i++) {
+            long palabra = normal[PALABRAS - 1 - i];
+            bytes[4 * i] = (byte) (palabra >>> 24);
+            bytes[4 * i + 1] = (byte) (palabra >>> 16);
+            bytes[4 * i + 2] = (byte) (palabra >>> 8);
+            bytes[4 * i + 3] = (byte) palabra;
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * @return true si el elemento es cero.
+     */
+    @Override
+    public boolean esCero() {
+        for (long palabra : valor) {
+            if (palabra != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Suma otro elemento a este.
+     * @param otro Sumando.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 sumar(ElementoP257 otro) {
+        long acarreo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long suma = valor[i] + otro.valor[i] + acarreo;
+            valor[i] = suma & MASCARA;
+            acarreo = suma >>> 32;
+        }
+        reducirUnaVez(valor);
+        return this;
+    }
+
+    /**
+     * Resta otro elemento a este.
+     * @param otro Sustraendo.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 restar(ElementoP257 otro) {
+        long prestamo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long diferencia = valor[i] - otro.valor[i] - prestamo;
+            valor[i] = diferencia & MASCARA;
+            prestamo = diferencia >>> 63;
+        }
+        if (prestamo != 0) {
+            long acarreo = 0;
+            for (int i = 0; i < PALABRAS; i++) {
+                long suma = valor[i] + P[i] + acarreo;
+                valor[i] = suma & MASCARA;
+                acarreo = suma >>> 32;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Cambia el signo de este elemento.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 negar() {
+        if (esCero()) {
+            return this;
+        }
+        long prestamo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long diferencia = P[i] - valor[i] - prestamo;
+            valor[i] = diferencia & MASCARA;
+            prestamo = diferencia >>> 63;
+        }
+        return this;
+    }
+
+    /**
+     * Multiplica este elemento por otro (puede ser él mismo).
+     * @param otro Factor.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 multiplicar(ElementoP257 otro) {
+        montgomery(valor, otro.valor, valor);
+        return this;
+    }
+
+    /**
+     * Multiplica este elemento por un entero pequeño no negativo.
+     * @param entero Factor, menor a 2^31.
+     * @return este elemento.
+     */
+    @Override
+    public ElementoP257 multiplicar(int entero) {
+        Arrays.fill(auxiliar, 0);
+        auxiliar[0] = entero;
+        montgomery(auxiliar, R2, auxiliar);
+        montgomery(valor, auxiliar, valor);
+        return this;
+    }
+
+    /**
+     * Reemplaza este elemento por su inverso multiplicativo, calculado como a^(p-2).
+     * @return este elemento.
+     * @throws ArithmeticException Si el elemento es cero.
+     */
+    @Override
+    public ElementoP257 invertir() {
+        if (esCero()) {
+            throw new ArithmeticException("El cero no tiene inverso.");
+        }
+        System.arraycopy(valor, 0, auxiliar, 0, PALABRAS);
+        System.arraycopy(UNO, 0, valor, 0, PALABRAS);
+        for (int bit = EXPONENTE_INVERSO.bitLength() - 1; bit >= 0; bit--) {
+            montgomery(valor, valor, valor);
+            if (EXPONENTE_INVERSO.testBit(bit)) {
+                montgomery(valor, auxiliar, valor);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof ElementoP257 && Arrays.equals(valor, ((ElementoP257) otro).valor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(valor);
+    }
+
+    @Override
+    public String toString() {
+        return aBigInteger().toString();
+    }
+
+    /**
+     * Producto de Montgomery r = a·b·R^(-1) mod p con el método CIOS (multiplicación y reducción intercaladas
+     * palabra por palabra). r puede ser el mismo arreglo que a o b.
+     */
+    private void montgomery(long[] a, long[] b, long[] r) {
+        long[] t = acumulador;
+        Arrays.fill(t, 0);
+        for (int i = 0; i < PALABRAS; i++) {
+            long bi = b[i];
+            long acarreo = 0;
+            for (int j = 0; j < PALABRAS; j++) {
+                long x = t[j] + a[j] * bi + acarreo;
+                t[j] = x & MASCARA;
+                acarreo = x >>> 32;
+            }
+            long x = t[PALABRAS] + acarreo;
+            t[PALABRAS] = x & MASCARA;
+            t[PALABRAS + 1] = x >>> 32;
+
+            long m = (t[0] * P_PRIMA) & MASCARA;
+            x = t[0] + m * P[0];
+            acarreo = x >>> 32;
+            for (int j = 1; j < PALABRAS; j++) {
+                x = t[j] + m * P[j] + acarreo;
+                t[j - 1] = x & MASCARA;
+                acarreo = x >>> 32;
+            }
+            x = t[PALABRAS] + acarreo;
+            t[PALABRAS - 1] = x & MASCARA;
+            t[PALABRAS] = t[PALABRAS + 1] + (x >>> 32);
+        }
+        System.arraycopy(t, 0, r, 0, PALABRAS);
+        reducirUnaVez(r);
+    }
+
+    /**
+     * Resta p si el valor es mayor o igual a p; el valor debe ser menor a 2p.
+     */
+    private static void reducirUnaVez(long[] v) {
+        for (int i = PALABRAS - 1; i >= 0; i--) {
+            if (v[i] != P[i]) {
+                if (v[i] < P[i]) {
+                    return;
+                }
+                break;
+            }
+        }
+        long prestamo = 0;
+        for (int i = 0; i < PALABRAS; i++) {
+            long diferencia = v[i] - P[i] - prestamo;
+            v[i] = diferencia & MASCARA;
+            prestamo = diferencia >>> 63;
+        }
+    }
+
+    /**
+     * Separa un entero no negativo menor a 2^288 en palabras de 32 bits.
+     */
+    private static long[] palabras(BigInteger entero) {
+        long[] palabras = new long[PALABRAS];
+        for (int i = 0; i < PALABRAS; i++) {
+            palabras[i] = entero.shiftRight(32 * i).longValue() & MASCARA;
+        }
+        return palabras;
+    }
+}
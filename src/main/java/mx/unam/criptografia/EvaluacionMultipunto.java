@@ -0,0 +1,236 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluación de un polinomio en muchos puntos a la vez, módulo un primo, con un árbol de subproductos.
+ *
+ * <p>Para los puntos x_0, ..., x_(s-1) se construye el árbol cuyas hojas son (x - x_i) y cuyos nodos son el
+ * producto de sus hijos. Como f(x_i) = f mod (x - x_i), se baja por el árbol reduciendo el residuo módulo el
+ * producto de cada hijo; cerca de las hojas los residuos ya tienen pocos coeficientes y se terminan de
+ * evaluar con Horner. Con multiplicación rápida de polinomios esto cuesta O(M(s) log s) en vez de los s·t
+ * productos de evaluar cada punto por separado.</p>
+ *
+ * <p>Los polinomios se multiplican con sustitución de Kronecker: cada polinomio se empaqueta en un solo
+ * BigInteger, con un coeficiente por cada ranura de bytes lo bastante ancha para que las sumas de productos no
+ * se mezclen, y el producto de los polinomios se lee del producto de los enteros. Así se aprovechan los
+ * algoritmos de Karatsuba y Toom-Cook de BigInteger. La división usa el inverso de la serie del divisor
+ * invertido, calculado con la iteración de Newton.</p>
+ *
+ * <p>Si t es mucho menor que el número de puntos, los puntos se evalúan en grupos del tamaño de t: el
+ * árbol de un grupo más grande no ayuda, porque el polinomio ya es más chico que el producto de su raíz.</p>
+ */
+public final class EvaluacionMultipunto {
+
+    /**
+     * Por debajo de este número de coeficientes se multiplica con el método de la escuela.
+     */
+    private static final int UMBRAL_ESCUELA = 24;
+
+    /**
+     * Nodos con este número de puntos o menos se evalúan con Horner.
+     */
+    private static final int UMBRAL_HORNER = 32;
+
+    private EvaluacionMultipunto() {
+    }
+
+    /**
+     * Evalúa un polinomio en varios puntos.
+     * @param coeficientes Coeficientes del polinomio, del término independiente al de mayor grado.
+     * @param puntos Puntos donde se evalúa.
+     * @param modulo Primo del campo.
+     * @return el valor del polinomio en cada punto, reducido módulo el primo, en el mismo orden que los puntos.
+     */
+    public static BigInteger[] evaluar(List<BigInteger> coeficientes, List<BigInteger> puntos, BigInteger modulo) {
+        BigInteger[] f = new BigInteger[coeficientes.size()];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = coeficientes.get(i).mod(modulo);
+        }
+        BigInteger[] x = new BigInteger[puntos.size()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = puntos.get(i).mod(modulo);
+        }
+        BigInteger[] valores = new BigInteger[x.length];
+        int grupo = Math.max(f.length, UMBRAL_HORNER);
+        for (int desde = 0; desde < x.length; desde += grupo) {
+            Nodo raiz = new Nodo(x, desde, Math.min(x.length, desde + grupo), modulo);
+            bajar(raiz, residuo(f, raiz.producto, modulo), x, valores, modulo);
+        }
+        return valores;
+    }
+
+    /**
+     * Nodo del árbol de subproductos: el producto de (x - x_i) para i en [desde, hasta).
+     */
+    private static final class Nodo {
+        final int desde;
+        final int hasta;
+        final BigInteger[] producto;
+        final Nodo izquierdo;
+        final Nodo derecho;
+
+        Nodo(BigInteger[] x, int desde, int hasta, BigInteger modulo) {
+            this.desde = desde;
+            this.hasta = hasta;
+            if (hasta - desde <= UMBRAL_HORNER) {
+                izquierdo = null;
+                derecho = null;
+                BigInteger[] producto = {BigInteger.ONE};
+                for (int i = desde; i < hasta; i++) {
+                    producto = multiplicar(producto, new BigInteger[]{modulo.subtract(x[i]).mod(modulo), BigInteger.ONE}, modulo);
+                }
+                this.producto = producto;
+            } else {
+                int mitad = (desde + hasta) >>> 1;
+                izquierdo = new Nodo(x, desde, mitad, modulo);
+                derecho = new Nodo(x, mitad, hasta, modulo);
+                producto = multiplicar(izquierdo.producto, derecho.producto, modulo);
+            }
+        }
+    }
+
+    /**
+     * Baja por el árbol: r ya está reducido módulo el producto del nodo.
+     */
+    private static void bajar(Nodo nodo, BigInteger[] r, BigInteger[] x, BigInteger[] valores, BigInteger modulo) {
+        if (nodo.izquierdo == null) {
+            for (int i = nodo.desde; i < nodo.hasta; i++) {
+                BigInteger valor = BigInteger.ZERO;
+                for (int k = r.length - 1; k >= 0; k--) {
+                    valor = valor.multiply(x[i]).add(r[k]).mod(modulo);
+                }
+                valores[i] = valor;
+            }
+            return;
+        }
+        bajar(nodo.izquierdo, residuo(r, nodo.izquierdo.producto, modulo), x, valores, modulo);
+        bajar(nodo.derecho, residuo(r, nodo.derecho.producto, modulo), x, valores, modulo);
+    }
+
+    /**
+     * Producto de dos polinomios módulo el primo.
+     */
+    static BigInteger[] multiplicar(BigInteger[] a, BigInteger[] b, BigInteger modulo) {
+        if (a.length == 0 || b.length == 0) {
+            return new BigInteger[0];
+        }
+        int menor = Math.min(a.length, b.length);
+        if (menor <= UMBRAL_ESCUELA) {
+            BigInteger[] c = new BigInteger[a.length + b.length - 1];
+            Arrays.fill(c, BigInteger.ZERO);
+            for (int i = 0; i < a.length; i++) {
+                if (a[i].signum() != 0) {
+                    for (int j = 0; j < b.length; j++) {
+                        c[i + j] = c[i + j].add(a[i].multiply(b[j]));
+                    }
+                }
+            }
+            for (int i = 0; i < c.length; i++) {
+                c[i] = c[i].mod(modulo);
+            }
+            return c;
+        }
+        // Cada coeficiente del producto es una suma de 'menor' productos menores a p^2
+        int bits = 2 * modulo.bitLength() + 32 - Integer.numberOfLeadingZeros(menor);
+        int ranura = (bits + 7) / 8;
+        BigInteger producto = empaquetar(a, ranura).multiply(empaquetar(b, ranura));
+        return desempaquetar(producto, ranura, a.length + b.length - 1, modulo);
+    }
+
+    /**
+     * Coloca cada coeficiente en su ranura de bytes: el coeficiente i ocupa los bytes de i·ranura a
+     * (i + 1)·ranura contando desde el menos significativo.
+     */
+    private static BigInteger empaquetar(BigInteger[] a, int ranura) {
+        byte[] bytes = new byte[a.length * ranura];
+        for (int i = 0; i < a.length; i++) {
+            byte[] coeficiente = a[i].toByteArray();
+            int inicio = coeficiente[0] == 0 ? 1 : 0;
+            int longitud = coeficiente.length - inicio;
+            System.arraycopy(coeficiente, inicio, bytes, bytes.length - i * ranura - longitud, longitud);
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    private static BigInteger[] desempaquetar(BigInteger entero, int ranura, int longitud, BigInteger modulo) {
+        byte[] bytes = entero.toByteArray();
+        BigInteger[] c = new BigInteger[longitud];
+        for (int i = 0; i < longitud; i++) {
+            int fin = bytes.length - i * ranura;
+            int inicio = Math.max(0, fin - ranura);
+            c[i] = fin <= 0 ? BigInteger.ZERO : new BigInteger(1, Arrays.copyOfRange(bytes, inicio, fin)).mod(modulo);
+        }
+        return c;
+    }
+
+    /**
+     * Residuo de f entre g, con g mónico: f = q·g + r con grado de r menor al de g.
+     * El cociente se obtiene de rev(f)·rev(g)^(-1) mod x^(d - m + 1), donde rev invierte el orden de los
+     * coeficientes, d es el grado de f y m el de g.
+     */
+    static BigInteger[] residuo(BigInteger[] f, BigInteger[] g, BigInteger modulo) {
+        int m = g.length - 1;
+        int d = f.length - 1;
+        if (d < m) {
+            return f;
+        }
+        int k = d - m + 1;
+        BigInteger[] inverso = inversoSerie(invertir(g, g.length), k, modulo);
+        BigInteger[] cocienteInvertido = truncar(multiplicar(invertir(f, k), inverso, modulo), k);
+        BigInteger[] cociente = invertir(cocienteInvertido, k);
+        BigInteger[] qg = multiplicar(truncar(cociente, Math.min(k, m)), truncar(g, m), modulo);
+        // Solo hacen falta los m coeficientes bajos de q·g; los términos de q y g de grado m o más no los afectan
+        BigInteger[] r = new BigInteger[m];
+        for (int i = 0; i < m; i++) {
+            BigInteger producto = i < qg.length ? qg[i] : BigInteger.ZERO;
+            r[i] = f[i].subtract(producto).mod(modulo);
+        }
+        return r;
+    }
+
+    /**
+     * Inverso de la serie g módulo x^k con la iteración de Newton h ← h·(2 - g·h), que duplica la precisión.
+     */
+    private static BigInteger[] inversoSerie(BigInteger[] g, int k, BigInteger modulo) {
+        BigInteger[] h = {g[0].modInverse(modulo)};
+        int precision = 1;
+        while (precision < k) {
+            precision = Math.min(2 * precision, k);
+            BigInteger[] e = truncar(multiplicar(truncar(g, precision), h, modulo), precision);
+            for (int i = 0; i < e.length; i++) {
+                e[i] = e[i].signum() == 0 ? e[i] : modulo.subtract(e[i]);
+            }
+            e[0] = e[0].add(BigInteger.valueOf(2)).mod(modulo);
+            h = truncar(multiplicar(h, e, modulo), precision);
+        }
+        return h;
+    }
+
+    /**
+     * Los primeros k coeficientes de a (completando con ceros si a es más corto).
+     */
+    private static BigInteger[] truncar(BigInteger[] a, int k) {
+        if (a.length == k) {
+            return a;
+        }
+        BigInteger[] b = Arrays.copyOf(a, k);
+        for (int i = a.length; i < k; i++) {
+            b[i] = BigInteger.ZERO;
+        }
+        return b;
+    }
+
+    /**
+     * Los coeficientes a[d], a[d-1], ..., con d el grado de a, truncados o completados a k coeficientes.
+     */
+    private static BigInteger[] invertir(BigInteger[] a, int k) {
+        BigInteger[] b = new BigInteger[k];
+        for (int i = 0; i < k; i++) {
+            b[i] = i < a.length ? a[a.length - 1 - i] : BigInteger.ZERO;
+        }
+        return b;
+    }
+}
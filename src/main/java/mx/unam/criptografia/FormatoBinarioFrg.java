@@ -0,0 +1,241 @@
+package mx.unam.criptografia;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de los archivos con contraseñas (.frg), alternativo al de texto.
+ *
+ * <p>El archivo empieza con un encabezado de 32 bytes: la firma "SFRG", la versión, el ancho en bytes de cada
+ * número, n, t, el número de puntos, el identificador del campo (10 bytes ASCII completados con ceros) y el
+ * CRC32 del resto del encabezado y de los puntos. Después vienen los puntos, cada uno como x y y sin signo,
+ * big-endian, con el ancho del encabezado: el número de bytes del primo del campo, así que el tamaño del
+ * archivo no depende de las cifras decimales y leerlo no convierte de decimal.</p>
+ *
+ * <p>La lectura mapea el archivo con {@link FileChannel#map} y toma los números directamente del mapa.</p>
+ */
+public final class FormatoBinarioFrg {
+
+    /**
+     * Firma con la que empiezan los archivos en este formato. Los archivos de texto empiezan con '('.
+     */
+    static final byte[] MAGIA = {'S', 'F', 'R', 'G'};
+
+    /**
+     * Versión del formato.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Bytes reservados para el identificador del campo.
+     */
+    private static final int LONGITUD_CAMPO = 10;
+
+    /**
+     * Bytes del encabezado: firma, versión, ancho, n, t, número de puntos, campo y CRC32.
+     */
+    static final int TAMANO_ENCABEZADO = MAGIA.length + 2 + 4 + 4 + 4 + LONGITUD_CAMPO + 4;
+
+    private FormatoBinarioFrg() {
+    }
+
+    /**
+     * Escribe los puntos en formato binario.
+     * @param archivo Archivo de destino.
+     * @param puntos Puntos (x, y); x y y deben ser menores al primo del campo.
+     * @param n Número total de contraseñas.
+     * @param t Número necesario de contraseñas para recuperar el secreto.
+     * @param campo Campo en el que se generaron los puntos.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public static void escribir(File archivo, List<BigInteger[]> puntos, int n, int t, CampoFinito<?> campo)
+            throws IOException {
+        int ancho = ancho(campo);
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_ENCABEZADO + puntos.size() * 2 * ancho);
+        buffer.put(MAGIA).put((byte) VERSION).put((byte) ancho).putInt(n).putInt(t).putInt(puntos.size());
+        byte[] identificador = campo.identificador().getBytes(StandardCharsets.US_ASCII);
+        buffer.put(Arrays.copyOf(identificador, LONGITUD_CAMPO));
+        buffer.position(TAMANO_ENCABEZADO);
+        for (BigInteger[] punto : puntos) {
+            poner(buffer, punto[0], ancho);
+            poner(buffer, punto[1], ancho);
+        }
+        buffer.putInt(TAMANO_ENCABEZADO - 4, crc(buffer, ancho, puntos.size()));
+        buffer.flip();
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ContenedorAES.escribirCompleto(canal, buffer);
+        }
+    }
+
+    /**
+     * @param archivo Archivo con contraseñas.
+     * @return true si el archivo empieza con la firma del formato binario.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public static boolean esBinario(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magia = ByteBuffer.allocate(MAGIA.length);
+            return ContenedorAES.leerCompleto(canal, magia, 0) == MAGIA.length && Arrays.equals(magia.array(), MAGIA);
+        }
+    }
+
+    /**
+     * Lee y valida el encabezado, sin leer los puntos.
+     * @param archivo Archivo con contraseñas en formato binario.
+     * @return el encabezado.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws IllegalArgumentException Si el archivo no está en este formato o el encabezado no es válido.
+     */
+    public static Encabezado leerEncabezado(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANO_ENCABEZADO);
+            if (ContenedorAES.leerCompleto(canal, buffer, 0) < TAMANO_ENCABEZADO) {
+                throw new IllegalArgumentException("El archivo no es un archivo de contraseñas binario: " + archivo);
+            }
+            buffer.flip();
+            return encabezado(buffer, archivo, canal.size());
+        }
+    }
+
+    /**
+     * Lee los puntos de un archivo binario, mapeándolo en memoria, y verifica el CRC32.
+     * @param archivo Archivo con contraseñas en formato binario.
+     * @return los puntos (x, y) en el orden en que se escribieron.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws IllegalArgumentException Si el archivo no está en este formato o está dañado.
+     */
+    public static List<BigInteger[]> leerPuntos(File archivo) throws IOException {
+        List<BigInteger[]> puntos = new ArrayList<>();
+        leer(archivo, puntos, Integer.MAX_VALUE);
+        return puntos;
+    }
+
+    /**
+     * Lee el encabezado y los primeros puntos en una sola pasada sobre el archivo mapeado. El CRC32 se verifica
+     * sobre todo el archivo aunque no se conviertan todos los puntos.
+     * @param archivo Archivo con contraseñas en formato binario.
+     * @param puntos Lista donde se agregan los puntos (x, y).
+     * @param limite Número máximo de puntos que se convierten.
+     * @return el encabezado.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws IllegalArgumentException Si el archivo no está en este formato o está dañado.
+     */
+    static Encabezado leer(File archivo, List<BigInteger[]> puntos, int limite) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < TAMANO_ENCABEZADO) {
+                throw new IllegalArgumentException("El archivo no es un archivo de contraseñas binario: " + archivo);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            Encabezado encabezado = encabezado(mapa.duplicate(), archivo, canal.size());
+            if (crc(mapa, encabezado.ancho, encabezado.puntos) != mapa.getInt(TAMANO_ENCABEZADO - 4)) {
+                throw new IllegalArgumentException("El archivo de contraseñas está dañado (CRC32 incorrecto): " + archivo);
+            }
+            byte[] numero = new byte[encabezado.ancho];
+            mapa.position(TAMANO_ENCABEZADO);
+            for (int i = 0; i < Math.min(encabezado.puntos, limite); i++) {
+                mapa.get(numero);
+                BigInteger x = new BigInteger(1, numero);
+                mapa.get(numero);
+                puntos.add(new BigInteger[]{x, new BigInteger(1, numero)});
+            }
+            return encabezado;
+        }
+    }
+
+    /**
+     * Encabezado de un archivo con contraseñas binario.
+     */
+    public static final class Encabezado {
+        public final int numeroTotal;
+        public final int minimo;
+        public final int puntos;
+        public final CampoFinito<?> campo;
+        final int ancho;
+
+        Encabezado(int numeroTotal, int minimo, int puntos, CampoFinito<?> campo, int ancho) {
+            this.numeroTotal = numeroTotal;
+            this.minimo = minimo;
+            this.puntos = puntos;
+            this.campo = campo;
+            this.ancho = ancho;
+        }
+    }
+
+    /**
+     * Lee el encabezado desde la posición actual del búfer y lo valida contra el tamaño del archivo.
+     */
+    private static Encabezado encabezado(ByteBuffer buffer, File archivo, long tamanoArchivo) {
+        byte[] magia = new byte[MAGIA.length];
+        buffer.get(magia);
+        if (!Arrays.equals(magia, MAGIA)) {
+            throw new IllegalArgumentException("El archivo no es un archivo de contraseñas binario: " + archivo);
+        }
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de archivo de contraseñas no soportada: " + version);
+        }
+        int ancho = buffer.get() & 0xFF;
+        int n = buffer.getInt();
+        int t = buffer.getInt();
+        int puntos = buffer.getInt();
+        byte[] identificador = new byte[LONGITUD_CAMPO];
+        buffer.get(identificador);
+        int longitud = 0;
+        while (longitud < LONGITUD_CAMPO && identificador[longitud] != 0) {
+            longitud++;
+        }
+        CampoFinito<?> campo = CampoFinito.porIdentificador(new String(identificador, 0, longitud, StandardCharsets.US_ASCII));
+        if (ancho != ancho(campo) || t < 1 || n < t || puntos < 0
+            || tamanoArchivo != TAMANO_ENCABEZADO + (long) puntos * 2 * ancho) {
+            throw new IllegalArgumentException("El encabezado del archivo de contraseñas no es válido: " + archivo);
+        }
+        return new Encabezado(n, t, puntos, campo, ancho);
+    }
+
+    /**
+     * @return el número de bytes del primo del campo, que es el ancho de cada número.
+     */
+    static int ancho(CampoFinito<?> campo) {
+        return (campo.modulo().bitLength() + 7) / 8;
+    }
+
+    /**
+     * CRC32 del encabezado sin el propio CRC y de los puntos, sin mover la posición del búfer.
+     */
+    private static int crc(ByteBuffer buffer, int ancho, int puntos) {
+        CRC32 crc = new CRC32();
+        ByteBuffer vista = buffer.duplicate();
+        vista.limit(TAMANO_ENCABEZADO - 4).position(0);
+        crc.update(vista);
+        vista.limit(TAMANO_ENCABEZADO + puntos * 2 * ancho).position(TAMANO_ENCABEZADO);
+        crc.update(vista);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Escribe un número sin signo, big-endian, completado con ceros a la izquierda hasta el ancho.
+     */
+    private static void poner(ByteBuffer buffer, BigInteger numero, int ancho) {
+        byte[] bytes = numero.toByteArray();
+        int inicio = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        int longitud = bytes.length - inicio;
+        if (numero.signum() < 0 || longitud > ancho) {
+            throw new IllegalArgumentException("El número no cabe en " + ancho + " bytes: " + numero);
+        }
+        for (int i = longitud; i < ancho; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put(bytes, inicio, longitud);
+    }
+}
@@ -0,0 +1,190 @@
+package mx.unam.criptografia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato de texto de los archivos con contraseñas (.frg): una línea "(x, y)" por punto, en decimal, seguida de
+ * las líneas con n, t y el campo.
+ *
+ * <p>El archivo se lee línea por línea y cada línea se revisa a mano, sin expresiones regulares: una línea es
+ * un punto si, sin los espacios de los extremos, es '(' seguido de dígitos, ", ", dígitos y ')'. Las demás
+ * líneas se ignoran o se entregan tal cual. Como t está al final, {@link #leerPie} lee solo los últimos bytes
+ * del archivo para que la lectura de los puntos se pueda detener en t. La escritura va directamente a un búfer, punto por punto, sin armar
+ * el archivo completo en memoria.</p>
+ */
+final class FormatoTextoFrg {
+
+    /**
+     * Tamaño de los búferes de lectura y escritura.
+     */
+    private static final int TAMANO_BUFER = 64 * 1024;
+
+    private static final String SEPARADOR = System.lineSeparator();
+
+    /**
+     * Bytes del final del archivo en los que se buscan las líneas de n, t y el campo.
+     */
+    private static final int TAMANO_PIE = 4096;
+
+    /**
+     * Prefijo de la línea con el número total de contraseñas.
+     */
+    static final String PREFIJO_TOTAL = "Numero total de contraseñas: ";
+
+    /**
+     * Prefijo de la línea con el número necesario de contraseñas.
+     */
+    static final String PREFIJO_MINIMO = "Numero necesario de contraseñas para descifrar el archivo: ";
+
+    private FormatoTextoFrg() {
+    }
+
+    /**
+     * Escribe el archivo con contraseñas.
+     * @param archivo Archivo de destino.
+     * @param puntos Puntos (x, y).
+     * @param n Número total de contraseñas.
+     * @param t Número necesario de contraseñas para descifrar el archivo.
+     * @param campo Campo finito usado.
+     * @throws IOException Si ocurre un error durante la escritura.
+     */
+    static void escribir(File archivo, List<BigInteger[]> puntos, String n, String t, CampoFinito<?> campo)
+            throws IOException {
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(archivo),
+                                                                      StandardCharsets.UTF_8), TAMANO_BUFER)) {
+            for (BigInteger[] punto : puntos) {
+                salida.write('(');
+                salida.write(punto[0].toString());
+                salida.write(", ");
+                salida.write(punto[1].toString());
+                salida.write(')');
+                salida.write(SEPARADOR);
+            }
+            salida.write(PREFIJO_TOTAL + n + SEPARADOR);
+            salida.write(PREFIJO_MINIMO + t + SEPARADOR);
+            salida.write(SecretoShamir.PREFIJO_CAMPO + campo.identificador() + SEPARADOR);
+        }
+    }
+
+    /**
+     * Lee el archivo con contraseñas.
+     * @param archivo Archivo con contraseñas en formato de texto.
+     * @param puntos Lista donde se agregan los puntos, en orden; si es null, los puntos no se convierten.
+     * @param otrasLineas Lista donde se agregan las demás líneas no vacías, sin espacios en los extremos; puede
+     *                    ser null.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    static void leer(File archivo, List<BigInteger[]> puntos, List<String> otrasLineas) throws IOException {
+        leer(archivo, puntos, otrasLineas, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lee el archivo con contraseñas hasta tener {@code limite} puntos; el resto del archivo no se lee.
+     * @param archivo Archivo con contraseñas en formato de texto.
+     * @param puntos Lista donde se agregan los puntos, en orden; si es null, los puntos no se convierten.
+     * @param otrasLineas Lista donde se agregan las demás líneas no vacías leídas, sin espacios en los extremos;
+     *                    puede ser null.
+     * @param limite Número de puntos después del cual se deja de leer.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    static void leer(File archivo, List<BigInteger[]> puntos, List<String> otrasLineas, int limite)
+            throws IOException {
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(new FileInputStream(archivo),
+                                                                              StandardCharsets.UTF_8), TAMANO_BUFER)) {
+            leer(entrada, puntos, otrasLineas, limite);
+        }
+    }
+
+    /**
+     * Lee las líneas que no son puntos del final del archivo (n, t y el campo) sin recorrer los puntos, para
+     * conocer t antes de leerlos.
+     * @param archivo Archivo con contraseñas en formato de texto.
+     * @return las líneas no vacías que no son puntos, sin espacios en los extremos.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    static List<String> leerPie(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long desde = Math.max(0, canal.size() - TAMANO_PIE);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (canal.size() - desde));
+            int leidos = ContenedorAES.leerCompleto(canal, buffer, desde);
+            String pie = new String(buffer.array(), 0, leidos, StandardCharsets.UTF_8);
+            if (desde > 0) {
+                // La primera línea puede haber quedado cortada
+                pie = pie.substring(pie.indexOf('\n') + 1);
+            }
+            List<String> otrasLineas = new ArrayList<>();
+            leer(new BufferedReader(new StringReader(pie)), null, otrasLineas, Integer.MAX_VALUE);
+            return otrasLineas;
+        }
+    }
+
+    private static void leer(BufferedReader entrada, List<BigInteger[]> puntos, List<String> otrasLineas, int limite)
+            throws IOException {
+        int leidos = 0;
+        String linea;
+        while (leidos < limite && (linea = entrada.readLine()) != null) {
+            int inicio = 0;
+            int fin = linea.length();
+            while (inicio < fin && linea.charAt(inicio) <= ' ') {
+                inicio++;
+            }
+            while (fin > inicio && linea.charAt(fin - 1) <= ' ') {
+                fin--;
+            }
+            int coma = separador(linea, inicio, fin);
+            if (coma >= 0) {
+                if (puntos != null) {
+                    puntos.add(new BigInteger[]{
+                        new BigInteger(linea.substring(inicio + 1, coma)),
+                        new BigInteger(linea.substring(coma + 2, fin - 1))
+                    });
+                }
+                leidos++;
+            } else if (otrasLineas != null && inicio < fin) {
+                otrasLineas.add(linea.substring(inicio, fin));
+            }
+        }
+    }
+
+    /**
+     * Revisa si linea[inicio, fin) tiene la forma "(dígitos, dígitos)".
+     * @return la posición de la coma, o -1 si no es un punto.
+     */
+    private static int separador(String linea, int inicio, int fin) {
+        if (fin - inicio < 6 || linea.charAt(inicio) != '(' || linea.charAt(fin - 1) != ')') {
+            return -1;
+        }
+        int i = digitos(linea, inicio + 1, fin);
+        if (i == inicio + 1 || i + 1 >= fin || linea.charAt(i) != ',' || linea.charAt(i + 1) != ' ') {
+            return -1;
+        }
+        int j = digitos(linea, i + 2, fin);
+        return j > i + 2 && j == fin - 1 ? i : -1;
+    }
+
+    /**
+     * @return la primera posición desde {@code desde} que no es un dígito ASCII.
+     */
+    private static int digitos(String linea, int desde, int fin) {
+        while (desde < fin && linea.charAt(desde) >= '0' && linea.charAt(desde) <= '9') {
+            desde++;
+        }
+        return desde;
+    }
+}
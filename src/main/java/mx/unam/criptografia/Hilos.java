@@ -0,0 +1,40 @@
+package mx.unam.criptografia;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Crea los ejecutores de los comandos concurrentes (servidor y lotes).
+ * Esta versión usa hilos de plataforma; el JAR multi-versión construido con el perfil java21 incluye una
+ * versión en src/main/java21 que usa hilos virtuales, y la JVM elige la que le corresponde.
+ */
+final class Hilos {
+
+    private Hilos() {
+    }
+
+    /**
+     * Ejecutor para atender conexiones del servidor.
+     * @param hilos Número de conexiones que se atienden al mismo tiempo.
+     * @return un conjunto fijo de hilos.
+     */
+    static ExecutorService ejecutorConexiones(int hilos) {
+        return Executors.newFixedThreadPool(hilos);
+    }
+
+    /**
+     * Ejecutor para procesar los archivos de un lote.
+     * @param hilos Número de archivos que se procesan al mismo tiempo.
+     * @return un conjunto fijo de hilos.
+     */
+    static ExecutorService ejecutorLote(int hilos) {
+        return Executors.newFixedThreadPool(hilos);
+    }
+
+    /**
+     * @return una descripción de los hilos que se usan, para los mensajes del programa.
+     */
+    static String descripcion(int hilos) {
+        return hilos + " hilos";
+    }
+}
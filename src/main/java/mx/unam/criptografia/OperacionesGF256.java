@@ -0,0 +1,30 @@
+package mx.unam.criptografia;
+
+/**
+ * Operación sobre arreglos de {@link CampoGF256} que domina el tiempo de dividir y combinar datos.
+ * Esta versión hace una lectura de tabla por byte; el JAR multi-versión construido con el perfil java21
+ * incluye una versión en src/main/java21 que usa instrucciones vectoriales si está disponible el módulo
+ * jdk.incubator.vector, y la JVM elige la que le corresponde.
+ */
+final class OperacionesGF256 {
+
+    private OperacionesGF256() {
+    }
+
+    /**
+     * destino[desdeDestino + i] ^= c·origen[desdeOrigen + i] para i menor a {@code longitud}.
+     */
+    static void multiplicarYAcumular(int c, byte[] origen, int desdeOrigen, byte[] destino, int desdeDestino, int longitud) {
+        byte[] renglon = CampoGF256.renglon(c);
+        for (int i = 0; i < longitud; i++) {
+            destino[desdeDestino + i] ^= renglon[origen[desdeOrigen + i] & 0xFF];
+        }
+    }
+
+    /**
+     * @return una descripción de la implementación, para los mensajes del programa.
+     */
+    static String descripcion() {
+        return "tablas";
+    }
+}
@@ -0,0 +1,401 @@
+package mx.unam.criptografia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline de tres etapas para procesar un archivo por bloques: lectura, cifrado y escritura.
+ *
+ * Cada etapa corre en sus propios hilos y las etapas se comunican por colas acotadas. Los búferes (directos)
+ * se toman de un conjunto fijo que se recicla: el escritor devuelve cada búfer al conjunto en cuanto lo escribe.
+ * Así la lectura y la escritura de disco se traslapan con el trabajo del cifrador, y la memoria usada queda
+ * acotada por el número de búferes. Cuando una etapa es más lenta, las colas se llenan y las demás esperan.
+ *
+ * Cada instancia se usa para una sola ejecución.
+ */
+public class PipelineBloques {
+
+    /**
+     * Parámetros del pipeline.
+     */
+    public static final class Configuracion {
+        /**
+         * Número total de pares de búferes (entrada y salida) que circulan por el pipeline.
+         */
+        public final int numeroBuferes;
+        /**
+         * Capacidad de cada cola entre etapas; una cola llena detiene a la etapa anterior.
+         */
+        public final int capacidadCola;
+        /**
+         * Número de hilos de la etapa de cifrado.
+         */
+        public final int trabajadores;
+
+        /**
+         * Constructor.
+         * @param numeroBuferes Número de pares de búferes.
+         * @param capacidadCola Capacidad de las colas entre etapas.
+         * @param trabajadores Número de hilos de cifrado.
+         */
+        public Configuracion(int numeroBuferes, int capacidadCola, int trabajadores) {
+            if (numeroBuferes < 1 || capacidadCola < 1 || trabajadores < 1) {
+                throw new IllegalArgumentException("Los parámetros del pipeline deben ser mayores a 0.");
+            }
+            this.numeroBuferes = numeroBuferes;
+            this.capacidadCola = capacidadCola;
+            this.trabajadores = trabajadores;
+        }
+
+        /**
+         * Configuración por defecto: un hilo de cifrado por procesador y dos búferes por hilo más los de E/S.
+         * @return la configuración por defecto.
+         */
+        public static Configuracion porDefecto() {
+            int procesadores = Runtime.getRuntime().availableProcessors();
+            return new Configuracion(2 * procesadores + 2, procesadores + 1, procesadores);
+        }
+    }
+
+    /**
+     * Contadores de una etapa: tiempo ocupado, tiempo esperando a otra etapa y bloques procesados.
+     */
+    public static final class Etapa {
+        public final String nombre;
+        private final AtomicLong ocupado = new AtomicLong();
+        private final AtomicLong espera = new AtomicLong();
+        private final AtomicLong bloques = new AtomicLong();
+
+        Etapa(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * @return tiempo total ocupado, en nanosegundos (sumado entre hilos).
+         */
+        public long ocupadoNanos() {
+            return ocupado.get();
+        }
+
+        /**
+         * @return tiempo total esperando en las colas, en nanosegundos (sumado entre hilos).
+         */
+        public long esperaNanos() {
+            return espera.get();
+        }
+
+        /**
+         * @return número de bloques que pasaron por la etapa.
+         */
+        public long bloques() {
+            return bloques.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: ocupado %d ms, espera %d ms, %d bloques",
+                nombre, ocupado.get() / 1_000_000, espera.get() / 1_000_000, bloques.get());
+        }
+    }
+
+    /**
+     * Contadores de las tres etapas de una ejecución.
+     */
+    public static final class Estadisticas {
+        public final Etapa lectura = new Etapa("lectura");
+        public final Etapa cifrado = new Etapa("cifrado");
+        public final Etapa escritura = new Etapa("escritura");
+        private final int trabajadores;
+
+        Estadisticas(int trabajadores) {
+            this.trabajadores = trabajadores;
+        }
+
+        /**
+         * Regresa la etapa con más tiempo ocupado por hilo, que es la que limita el avance del pipeline.
+         * @return la etapa más lenta.
+         */
+        public Etapa cuelloDeBotella() {
+            long lecturaPorHilo = lectura.ocupadoNanos();
+            long cifradoPorHilo = cifrado.ocupadoNanos() / trabajadores;
+            long escrituraPorHilo = escritura.ocupadoNanos();
+            if (cifradoPorHilo >= lecturaPorHilo && cifradoPorHilo >= escrituraPorHilo) {
+                return cifrado;
+            }
+            return lecturaPorHilo >= escrituraPorHilo ? lectura : escritura;
+        }
+
+        @Override
+        public String toString() {
+            return lectura + "\n" + cifrado + " (" + trabajadores + " hilos)\n" + escritura
+                + "\ncuello de botella: " + cuelloDeBotella().nombre;
+        }
+    }
+
+    /**
+     * Describe el trabajo sobre cada bloque.
+     */
+    interface Trabajo {
+        /**
+         * @return posición del bloque dentro del archivo de entrada.
+         */
+        long posicion(long indice);
+
+        /**
+         * @return longitud del bloque dentro del archivo de entrada.
+         */
+        int longitud(long indice);
+
+        /**
+         * Transforma el bloque de entrada y deja el resultado en el búfer de salida, listo para leerse.
+         */
+        void procesar(long indice, ByteBuffer entrada, ByteBuffer salida);
+    }
+
+    /**
+     * Un bloque en tránsito con sus dos búferes.
+     */
+    private static final class Bloque implements Comparable<Bloque> {
+        static final Bloque FIN = new Bloque(0, 0);
+        final ByteBuffer entrada;
+        final ByteBuffer salida;
+        long indice;
+
+        Bloque(int tamanoEntrada, int tamanoSalida) {
+            this.entrada = ByteBuffer.allocateDirect(tamanoEntrada);
+            this.salida = ByteBuffer.allocateDirect(tamanoSalida);
+        }
+
+        @Override
+        public int compareTo(Bloque otro) {
+            return Long.compare(indice, otro.indice);
+        }
+    }
+
+    private final Configuracion configuracion;
+    private final Estadisticas estadisticas;
+    private final AtomicReference<Throwable> fallo = new AtomicReference<>();
+    private final List<Thread> hilos = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.
+     * @param configuracion Parámetros del pipeline.
+     */
+    public PipelineBloques(Configuracion configuracion) {
+        this.configuracion = configuracion;
+        this.estadisticas = new Estadisticas(configuracion.trabajadores);
+    }
+
+    /**
+     * Procesa los bloques [primerBloque, ultimoBloque] de la entrada y los escribe en orden en la salida.
+     * La escritura se hace en el hilo que llama a este método.
+     * @param entrada Canal de lectura.
+     * @param salida Canal de escritura.
+     * @param primerBloque Índice del primer bloque.
+     * @param ultimoBloque Índice del último bloque (inclusivo).
+     * @param tamanoEntrada Tamaño máximo de un bloque de entrada.
+     * @param tamanoSalida Tamaño máximo de un bloque de salida.
+     * @param trabajo Trabajo sobre cada bloque.
+     * @return los contadores de cada etapa.
+     * @throws IOException Si ocurre un error de lectura o escritura.
+     */
+    Estadisticas ejecutar(FileChannel entrada, FileChannel salida, long primerBloque, long ultimoBloque,
+                          int tamanoEntrada, int tamanoSalida, Trabajo trabajo) throws IOException {
+        BlockingQueue<Bloque> libres = new ArrayBlockingQueue<>(configuracion.numeroBuferes);
+        BlockingQueue<Bloque> leidos = new ArrayBlockingQueue<>(configuracion.capacidadCola);
+        BlockingQueue<Bloque> procesados = new ArrayBlockingQueue<>(configuracion.capacidadCola);
+        for (int i = 0; i < configuracion.numeroBuferes; i++) {
+            libres.add(new Bloque(tamanoEntrada, tamanoSalida));
+        }
+        Thread escritor = Thread.currentThread();
+
+        iniciar("lector", escritor, () -> {
+            Etapa etapa = estadisticas.lectura;
+            for (long indice = primerBloque; indice <= ultimoBloque; indice++) {
+                long inicio = System.nanoTime();
+                Bloque bloque = libres.take();
+                long leido = System.nanoTime();
+                bloque.indice = indice;
+                bloque.entrada.clear().limit(trabajo.longitud(indice));
+                ContenedorAES.leerCompleto(entrada, bloque.entrada, trabajo.posicion(indice));
+                bloque.entrada.flip();
+                long listo = System.nanoTime();
+                leidos.put(bloque);
+                etapa.espera.addAndGet(leido - inicio + System.nanoTime() - listo);
+                etapa.ocupado.addAndGet(listo - leido);
+                etapa.bloques.incrementAndGet();
+            }
+            for (int i = 0; i < configuracion.trabajadores; i++) {
+                leidos.put(Bloque.FIN);
+            }
+        });
+
+        AtomicLong activos = new AtomicLong(configuracion.trabajadores);
+        for (int t = 0; t < configuracion.trabajadores; t++) {
+            iniciar("cifrador-" + t, escritor, () -> {
+                Etapa etapa = estadisticas.cifrado;
+                while (true) {
+                    long inicio = System.nanoTime();
+                    Bloque bloque = leidos.take();
+                    long tomado = System.nanoTime();
+                    if (bloque == Bloque.FIN) {
+                        etapa.espera.addAndGet(tomado - inicio);
+                        if (activos.decrementAndGet() == 0) {
+                            procesados.put(Bloque.FIN);
+                        }
+                        return;
+                    }
+                    bloque.salida.clear();
+                    trabajo.procesar(bloque.indice, bloque.entrada, bloque.salida);
+                    long listo = System.nanoTime();
+                    procesados.put(bloque);
+                    etapa.espera.addAndGet(tomado - inicio + System.nanoTime() - listo);
+                    etapa.ocupado.addAndGet(listo - tomado);
+                    etapa.bloques.incrementAndGet();
+                }
+            });
+        }
+
+        try {
+            escribir(salida, libres, procesados, primerBloque);
+        } catch (InterruptedException e) {
+            // fallar() interrumpe al escritor, y la interrupción puede llegar en cualquier put o take: si ya hay
+            // un fallo registrado, ese es el error que se debe reportar
+            if (fallo.get() == null) {
+                Thread.currentThread().interrupt();
+                throw new IOException("El pipeline fue interrumpido.", e);
+            }
+        } catch (IOException | RuntimeException e) {
+            fallar(e, escritor);
+        } finally {
+            detener();
+        }
+        relanzarFallo();
+        return estadisticas;
+    }
+
+    /**
+     * Etapa de escritura: reordena los bloques por índice y los escribe; cada búfer escrito vuelve al conjunto.
+     */
+    private void escribir(FileChannel salida, BlockingQueue<Bloque> libres, BlockingQueue<Bloque> procesados,
+                          long primerBloque) throws IOException, InterruptedException {
+        Etapa etapa = estadisticas.escritura;
+        PriorityQueue<Bloque> pendientes = new PriorityQueue<>();
+        long siguiente = primerBloque;
+        boolean terminado = false;
+        while (!terminado || !pendientes.isEmpty()) {
+            long inicio = System.nanoTime();
+            Bloque bloque;
+            try {
+                bloque = procesados.take();
+            } catch (InterruptedException e) {
+                if (fallo.get() != null) {
+                    return;
+                }
+                throw e;
+            }
+            long tomado = System.nanoTime();
+            etapa.espera.addAndGet(tomado - inicio);
+            if (bloque == Bloque.FIN) {
+                terminado = true;
+            } else {
+                pendientes.add(bloque);
+            }
+            while (!pendientes.isEmpty() && pendientes.peek().indice == siguiente) {
+                Bloque listo = pendientes.poll();
+                long escribiendo = System.nanoTime();
+                ContenedorAES.escribirCompleto(salida, listo.salida);
+                etapa.ocupado.addAndGet(System.nanoTime() - escribiendo);
+                etapa.bloques.incrementAndGet();
+                libres.put(listo);
+                siguiente++;
+            }
+            if (terminado && !pendientes.isEmpty()) {
+                throw new IllegalStateException("Faltan bloques en el pipeline a partir del " + siguiente + ".");
+            }
+        }
+    }
+
+    /**
+     * Inicia un hilo de una etapa. Si la etapa falla, se guarda el error y se detiene todo el pipeline.
+     */
+    private void iniciar(String nombre, Thread escritor, Tarea tarea) {
+        Thread hilo = new Thread(() -> {
+            try {
+                tarea.ejecutar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                fallar(e, escritor);
+            }
+        }, "pipeline-" + nombre);
+        hilo.setDaemon(true);
+        hilos.add(hilo);
+        hilo.start();
+    }
+
+    private void fallar(Throwable e, Thread escritor) {
+        if (fallo.compareAndSet(null, e)) {
+            for (Thread hilo : hilos) {
+                hilo.interrupt();
+            }
+            if (Thread.currentThread() != escritor) {
+                escritor.interrupt();
+            }
+        }
+    }
+
+    private void detener() {
+        for (Thread hilo : hilos) {
+            hilo.interrupt();
+        }
+        boolean interrumpido = false;
+        for (Thread hilo : hilos) {
+            while (true) {
+                try {
+                    hilo.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+        }
+        if (fallo.get() != null) {
+            Thread.interrupted();
+        } else if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void relanzarFallo() throws IOException {
+        Throwable error = fallo.get();
+        if (error == null) {
+            return;
+        }
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new IOException(error);
+    }
+
+    /**
+     * Cuerpo de una etapa.
+     */
+    private interface Tarea {
+        void ejecutar() throws Exception;
+    }
+}
@@ -1,10 +1,17 @@
 package mx.unam.criptografia;
 
+import java.io.BufferedReader;
 import java.io.Console;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase que procesa los argumentos de la línea de comandos y ejecuta el comando correspondiente.
@@ -37,7 +44,7 @@ public class ProcesadorEntrada {
      * @return true si los argumentos son suficientes, false en caso contrario.
      */
     public boolean validarArgumentosSuficientes(String[] args) {
-        if (args.length <= 2) {
+        if (args.length <= 2 && !(args.length == 2 && "-servidor".equals(args[0]))) {
             imprimirError("Parámetros insuficientes.");
             mostrarUso();
             return false;
@@ -47,7 +54,7 @@ public class ProcesadorEntrada {
 
     /**
      * Crea el comando correspondiente según la bandera.
-     * @param bandera La bandera que indica el tipo de operación (-c o -d).
+     * @param bandera La bandera que indica el tipo de operación (-c, -d, -r, -cd, -dl, -ci, -di, -v, -servidor o -cliente).
      * @param args Los argumentos de la línea de comandos.
      * @return El comando a ejecutar, o null si no es válido.
      * @throws IOException Si ocurre un error en la validación de parámetros.
@@ -58,6 +65,22 @@ public class ProcesadorEntrada {
             return crearComandoCifrar(args);
             case "-d":
             return crearComandoDescifrar(args);
+            case "-r":
+            return crearComandoDescifrarRango(args);
+            case "-cd":
+            return crearComandoCifrarDirectorio(args);
+            case "-dl":
+            return crearComandoDescifrarLote(args);
+            case "-ci":
+            return crearComandoCifrarDisperso(args);
+            case "-di":
+            return crearComandoDescifrarDisperso(args);
+            case "-v":
+            return crearComandoVerificar(args);
+            case "-servidor":
+            return crearComandoServidor(args);
+            case "-cliente":
+            return crearComandoCliente(args);
             default:
             imprimirError("Bandera desconocida.");
             mostrarUso();
@@ -66,45 +89,186 @@ public class ProcesadorEntrada {
     }
 
     /**
-     * Crea un comando para cifrar.
+     * Crea un comando para cifrar. Con --verificable no se pide contraseña: se comparte una clave aleatoria,
+     * porque el SHA-256 de una contraseña se podría adivinar a partir de los compromisos.
      * @param args Argumentos de la línea de comandos.
      * @return El comando para cifrar.
      * @throws IOException Si ocurre un error en la validación de parámetros.
      */
     private Comando crearComandoCifrar(String[] args) throws IOException {
         parametrosValidosCifrar(args);
-        String contraseña = pedirContrasena();
-        if (contraseña == null) {
-            throw new IllegalArgumentException("No se pudo leer la contraseña.");
+        byte[] contraseñaProcesada;
+        if (verificableCifrar(args)) {
+            contraseñaProcesada = SecretoShamir.secretoAleatorio();
+        } else {
+            String contraseña = pedirContrasena();
+            if (contraseña == null) {
+                throw new IllegalArgumentException("No se pudo leer la contraseña.");
+            }
+            contraseñaProcesada = ProcesadorContraseña.getSHA256(contraseña);
         }
-        byte[] contraseñaProcesada = ProcesadorContraseña.getSHA256(contraseña);
         int numeroTotalEvaluaciones = Integer.parseInt(args[2]);
         int minimoEvaluaciones = Integer.parseInt(args[3]);
-        SecretoShamir.archivoConContraseñas(args[1], args[2], args[3], contraseñaProcesada);
+        SecretoShamir.escribeArchivoConContraseñas(args[1], args[2], args[3], contraseñaProcesada, campoCifrar(args),
+                                                   secuencialCifrar(args), binarioCifrar(args),
+                                                   verificableCifrar(args));
         return new ComandoCifrar(args[1], args[4], contraseñaProcesada, numeroTotalEvaluaciones, minimoEvaluaciones);
     }
     
 
     /**
-     * Verifica si los parámetros para cifrar son válidos.
+     * Verifica si los parámetros para cifrar son válidos. Después del documento claro se pueden dar las opciones
+     * --campo &lt;p257|m521&gt;, --secuencial, --binario y --verificable, en cualquier orden.
      * @param args Argumentos de la línea de comandos. 
      * @throws IOException Si ocurre un error al leer el archivo.
      */
-    private void parametrosValidosCifrar(String[] args) throws IOException {
-        if (args.length != 5) {
+    void parametrosValidosCifrar(String[] args) throws IOException {
+        if (args.length < 5) {
             throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -c.");
         }
+        for (int i = 5; i < args.length; i++) {
+            if ("--campo".equals(args[i]) && i + 1 < args.length) {
+                i++;
+            } else if (!"--secuencial".equals(args[i]) && !"--binario".equals(args[i])
+                       && !"--verificable".equals(args[i])) {
+                throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -c.");
+            }
+        }
         archivoValidoContrasenas(args[1]);
         numeroDeEvaluaciones(args[2]);
         numeroMinimoDePuntosValido(args[3], Integer.parseInt(args[2]));
         archivoValidoDocumentoClaro(args[4]);
+        campoCifrar(args);
+    }
+
+    /**
+     * Obtiene el campo de la opción --campo de la bandera -c, ya validada.
+     * @param args Argumentos de la línea de comandos.
+     * @return El campo indicado, o el campo original si no se dio la opción.
+     */
+    CampoFinito<?> campoCifrar(String[] args) {
+        for (int i = 5; i + 1 < args.length; i++) {
+            if ("--campo".equals(args[i])) {
+                return CampoFinito.porIdentificador(args[i + 1]);
+            }
+        }
+        return CampoFinito.P257;
+    }
+
+    /**
+     * Indica si se dio la opción --secuencial de la bandera -c, ya validada: las contraseñas usan x = 1, ..., n.
+     * @param args Argumentos de la línea de comandos.
+     * @return true si las x de las contraseñas son los índices.
+     */
+    boolean secuencialCifrar(String[] args) {
+        return opcionCifrar(args, "--secuencial");
+    }
+
+    /**
+     * Indica si se dio la opción --binario de la bandera -c, ya validada: el archivo con contraseñas se escribe
+     * en el formato binario de {@link FormatoBinarioFrg}.
+     * @param args Argumentos de la línea de comandos.
+     * @return true si el archivo con contraseñas es binario.
+     */
+    boolean binarioCifrar(String[] args) {
+        return opcionCifrar(args, "--binario");
+    }
+
+    /**
+     * Indica si se dio la opción --verificable de la bandera -c, ya validada: junto al archivo con contraseñas
+     * se escriben los compromisos de Feldman ({@link CompromisosFeldman}).
+     * @param args Argumentos de la línea de comandos.
+     * @return true si se escriben los compromisos.
+     */
+    boolean verificableCifrar(String[] args) {
+        return opcionCifrar(args, "--verificable");
+    }
+
+    private boolean opcionCifrar(String[] args, String opcion) {
+        for (int i = 5; i < args.length; i++) {
+            if ("--campo".equals(args[i])) {
+                i++;
+            } else if (opcion.equals(args[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crea un comando para cifrar todos los archivos de un directorio.
+     * Opciones: --compartido &lt;archivo.frg&gt; para usar un solo archivo de contraseñas, --hilos &lt;k&gt; para
+     * el número de archivos que se cifran al mismo tiempo, --contraseña &lt;origen&gt; para leer la contraseña
+     * de la entrada estándar (-), de un descriptor de archivo (fd:N) o de un archivo, y --campo &lt;id&gt;
+     * para elegir el campo finito de las contraseñas.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para cifrar el directorio.
+     * @throws IOException Si ocurre un error al leer la contraseña.
+     */
+    private Comando crearComandoCifrarDirectorio(String[] args) throws IOException {
+        if (args.length < 4 || args.length % 2 != 0) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -cd.");
+        }
+        if (!new File(args[1]).isDirectory()) {
+            throw new IllegalArgumentException("El directorio a cifrar no existe.");
+        }
+        numeroDeEvaluaciones(args[2]);
+        numeroMinimoDePuntosValido(args[3], Integer.parseInt(args[2]));
+
+        String archivoCompartido = null;
+        String origenContraseña = null;
+        int hilos = Runtime.getRuntime().availableProcessors();
+        CampoFinito<?> campo = CampoFinito.P257;
+        for (int i = 4; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--compartido":
+                archivoValidoContrasenas(args[i + 1]);
+                archivoCompartido = args[i + 1];
+                break;
+                case "--hilos":
+                hilos = numeroDeHilos(args[i + 1]);
+                break;
+                case "--contraseña":
+                origenContraseña = args[i + 1];
+                break;
+                case "--campo":
+                campo = CampoFinito.porIdentificador(args[i + 1]);
+                break;
+                default:
+                throw new IllegalArgumentException("Opción desconocida para la bandera -cd: " + args[i]);
+            }
+        }
+
+        String contraseña = origenContraseña == null ? pedirContrasena() : leerContrasena(origenContraseña);
+        if (contraseña == null) {
+            throw new IllegalArgumentException("No se pudo leer la contraseña.");
+        }
+        byte[] contraseñaProcesada = ProcesadorContraseña.getSHA256(contraseña);
+        return new ComandoCifrarDirectorio(args[1], contraseñaProcesada, Integer.parseInt(args[2]),
+            Integer.parseInt(args[3]), archivoCompartido, hilos, campo);
+    }
+
+    /**
+     * Lee la contraseña (primera línea) sin usar la consola, para ejecuciones sin usuario.
+     * @param origen "-" para la entrada estándar, "fd:N" para el descriptor de archivo N, o la ruta de un archivo.
+     * @return La contraseña, o null si el origen está vacío.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    private String leerContrasena(String origen) throws IOException {
+        if ("-".equals(origen)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+        }
+        String ruta = origen.startsWith("fd:") ? "/dev/fd/" + origen.substring(3) : origen;
+        try (BufferedReader lector = Files.newBufferedReader(Paths.get(ruta), StandardCharsets.UTF_8)) {
+            return lector.readLine();
+        }
     }
 
     /**
      * Verifica si el archivo de texto para guardar las contraseñas es válido.
      * @param archivoConContrasenas Nombre del archivo de texto para guardar las contraseñas.
      */
-    private void archivoValidoContrasenas(String archivoConContrasenas) {
+    void archivoValidoContrasenas(String archivoConContrasenas) {
         if (archivoConContrasenas.length() > 255) {
             throw new IllegalArgumentException("El nombre del archivo donde se guardaran las contraseñas debe ser menor a 255 caracteres.");
         }
@@ -114,7 +278,7 @@ public class ProcesadorEntrada {
      * Verifica si el número total de evaluaciones es válido.
      * @param numeroDeEvaluaciones Número total de evaluaciones.
      */
-    private void numeroDeEvaluaciones(String numeroDeEvaluaciones) {
+    void numeroDeEvaluaciones(String numeroDeEvaluaciones) {
         if (!numeroDeEvaluaciones.matches("[0-9.]+")) {
             throw new IllegalArgumentException("El número total de evaluaciones debe ser un número.");
         }
@@ -131,7 +295,7 @@ public class ProcesadorEntrada {
      * @param numeroMinimoDePuntos Número mínimo de puntos necesarios para descifrar.
      * @param numeroDeContrasenas Número total de contraseñas.
      */
-    private void numeroMinimoDePuntosValido(String numeroMinimoDePuntos, int numeroDeEvaluaciones) {
+    void numeroMinimoDePuntosValido(String numeroMinimoDePuntos, int numeroDeEvaluaciones) {
         if (!numeroMinimoDePuntos.matches("[0-9.]+")) {
             throw new IllegalArgumentException("El número mínimo de puntos debe ser un número.");
         } else if (!esEntero(numeroMinimoDePuntos)) {
@@ -192,22 +356,259 @@ public class ProcesadorEntrada {
      */
     private Comando crearComandoDescifrar(String[] args) throws IOException {
         parametrosValidosDescifrar(args);
-        return new ComandoDescifrar(args[1], args[2]);
+        return new ComandoDescifrar(args[1], args[2], args.length == 4 && "--corregir".equals(args[3]));
     }
 
     /**
-     * Verifica si los parámetros para descifrar son válidos.
+     * Verifica si los parámetros para descifrar son válidos. Después del archivo cifrado se puede dar la opción
+     * --corregir.
      * @param args Argumentos de la línea de comandos.
      * @throws IOException Si ocurre un error al leer el archivo.
+     * @throws IllegalArgumentException Si sobran o faltan parámetros, o la opción no es --corregir.
      */
     private void parametrosValidosDescifrar(String[] args) throws IOException {
+        if (args.length != 3 && !(args.length == 4 && "--corregir".equals(args[3]))) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -d.");
+        }
+        documentoContreseñasValido(args[1]);
+        documentoCifradoValido(args[2], args[1]);
+    }
+
+    /**
+     * Crea un comando para verificar las contraseñas de un archivo contra sus compromisos.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para verificar.
+     * @throws IOException Si ocurre un error en la validación de parámetros.
+     */
+    private Comando crearComandoVerificar(String[] args) throws IOException {
         if (args.length != 3) {
-            imprimirError("Parámetros insuficientes o demasiados para la bandera -d.");
-            mostrarUso();
-            return;
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -v.");
+        }
+        documentoContreseñasValido(args[1]);
+        if (!new File(args[2]).exists()) {
+            throw new IllegalArgumentException("El archivo con los compromisos no existe.");
+        }
+        return new ComandoVerificar(args[1], args[2]);
+    }
+
+    /**
+     * Crea un comando para descifrar un intervalo del documento.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para descifrar el intervalo.
+     * @throws IOException Si ocurre un error en la validación de parámetros.
+     */
+    private Comando crearComandoDescifrarRango(String[] args) throws IOException {
+        if (args.length != 5) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -r.");
         }
         documentoContreseñasValido(args[1]);
         documentoCifradoValido(args[2], args[1]);
+        long desplazamiento = numeroNoNegativo(args[3], "El desplazamiento");
+        long longitud = numeroNoNegativo(args[4], "La longitud");
+        return new ComandoDescifrarRango(args[1], args[2], desplazamiento, longitud);
+    }
+
+    /**
+     * Crea un comando para descifrar varios archivos con un solo archivo de contraseñas.
+     * Los archivos cifrados pueden darse como una lista o como patrones (por ejemplo, "respaldos/*.aes"),
+     * y la opción --hilos &lt;k&gt; indica el número de archivos que se descifran al mismo tiempo.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para descifrar los archivos.
+     * @throws IOException Si ocurre un error en la validación de parámetros.
+     */
+    private Comando crearComandoDescifrarLote(String[] args) throws IOException {
+        documentoContreseñasValido(args[1]);
+        List<String> archivosCifrados = new ArrayList<>();
+        int hilos = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if ("--hilos".equals(args[i])) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Falta el número de hilos para la opción --hilos.");
+                }
+                hilos = numeroDeHilos(args[++i]);
+            } else {
+                archivosCifrados.add(args[i]);
+            }
+        }
+        if (archivosCifrados.isEmpty()) {
+            throw new IllegalArgumentException("Parámetros insuficientes para la bandera -dl.");
+        }
+        return new ComandoDescifrarLote(args[1], archivosCifrados, hilos);
+    }
+
+    /**
+     * Crea un comando para cifrar un documento y dispersar el archivo cifrado en n piezas:
+     * -ci &lt;archivo&gt; &lt;n&gt; &lt;t&gt; &lt;documento claro&gt; [--hilos &lt;k&gt;] [--campo &lt;id&gt;].
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para cifrar y dispersar.
+     * @throws IOException Si ocurre un error en la validación de parámetros.
+     */
+    private Comando crearComandoCifrarDisperso(String[] args) throws IOException {
+        if (args.length < 5 || args.length % 2 == 0) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -ci.");
+        }
+        archivoValidoContrasenas(args[1]);
+        numeroDeEvaluaciones(args[2]);
+        numeroMinimoDePuntosValido(args[3], Integer.parseInt(args[2]));
+        archivoValidoDocumentoClaro(args[4]);
+        if (Integer.parseInt(args[2]) > 255) {
+            throw new IllegalArgumentException("El número total de piezas debe ser menor o igual a 255.");
+        }
+
+        int hilos = Runtime.getRuntime().availableProcessors();
+        CampoFinito<?> campo = CampoFinito.P257;
+        for (int i = 5; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--hilos":
+                hilos = numeroDeHilos(args[i + 1]);
+                break;
+                case "--campo":
+                campo = CampoFinito.porIdentificador(args[i + 1]);
+                break;
+                default:
+                throw new IllegalArgumentException("Opción desconocida para la bandera -ci: " + args[i]);
+            }
+        }
+
+        String contraseña = pedirContrasena();
+        if (contraseña == null) {
+            throw new IllegalArgumentException("No se pudo leer la contraseña.");
+        }
+        byte[] contraseñaProcesada = ProcesadorContraseña.getSHA256(contraseña);
+        return new ComandoCifrarDisperso(args[1], args[4], contraseñaProcesada, Integer.parseInt(args[2]),
+            Integer.parseInt(args[3]), hilos, campo);
+    }
+
+    /**
+     * Crea un comando para descifrar un archivo dispersado:
+     * -di &lt;archivo.frg&gt; &lt;pieza&gt;... [--hilos &lt;k&gt;]. Las piezas pueden darse como patrones.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para reconstruir y descifrar.
+     * @throws IOException Si ocurre un error en la validación de parámetros.
+     */
+    private Comando crearComandoDescifrarDisperso(String[] args) throws IOException {
+        documentoContreseñasValido(args[1]);
+        List<String> nombres = new ArrayList<>();
+        int hilos = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if ("--hilos".equals(args[i])) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Falta el número de hilos para la opción --hilos.");
+                }
+                hilos = numeroDeHilos(args[++i]);
+            } else {
+                nombres.add(args[i]);
+            }
+        }
+        List<String> piezas = new ArrayList<>();
+        for (Path pieza : ComandoDescifrarLote.expandir(nombres)) {
+            if (!Files.isRegularFile(pieza)) {
+                throw new IllegalArgumentException("La pieza no existe: " + pieza);
+            }
+            piezas.add(pieza.toString());
+        }
+        if (piezas.isEmpty()) {
+            throw new IllegalArgumentException("Parámetros insuficientes para la bandera -di.");
+        }
+        return new ComandoDescifrarDisperso(args[1], piezas, hilos);
+    }
+
+    /**
+     * Crea un comando para iniciar el servidor local: -servidor &lt;puerto&gt; [--hilos &lt;k&gt;].
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para iniciar el servidor.
+     */
+    private Comando crearComandoServidor(String[] args) {
+        if (args.length != 2 && !(args.length == 4 && "--hilos".equals(args[2]))) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -servidor.");
+        }
+        int puerto = puertoValido(args[1]);
+        int hilos = args.length == 4 ? numeroDeHilos(args[3]) : Runtime.getRuntime().availableProcessors();
+        return new ComandoServidor(puerto, hilos);
+    }
+
+    /**
+     * Crea un comando que envía una operación al servidor local:
+     * -cliente &lt;puerto&gt; &lt;operación&gt; [argumentos...] [--contraseña &lt;origen&gt;].
+     * Las rutas se convierten en absolutas porque el servidor puede tener otro directorio de trabajo, y la
+     * contraseña se pide (o se lee de --contraseña) aquí; al servidor solo se envía su SHA-256.
+     * @param args Argumentos de la línea de comandos.
+     * @return El comando para enviar la operación.
+     * @throws IOException Si ocurre un error al leer la contraseña.
+     */
+    private Comando crearComandoCliente(String[] args) throws IOException {
+        int puerto = puertoValido(args[1]);
+        List<String> argumentos = new ArrayList<>();
+        String origenContraseña = null;
+        for (int i = 2; i < args.length; i++) {
+            if ("--contraseña".equals(args[i]) && i + 1 < args.length) {
+                origenContraseña = args[++i];
+            } else if ("--campo".equals(args[i]) && i + 1 < args.length) {
+                argumentos.add(args[i]);
+                argumentos.add(args[++i]);
+            } else if (argumentos.isEmpty() || args[i].startsWith("-") || esEntero(args[i])) {
+                argumentos.add(args[i]);
+            } else {
+                argumentos.add(new File(args[i]).getAbsolutePath());
+            }
+        }
+        if (argumentos.isEmpty()) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la bandera -cliente.");
+        }
+        byte[] contraseñaProcesada = null;
+        String operacion = argumentos.get(0);
+        if (("-c".equals(operacion) && !argumentos.contains("--verificable")) || "-dividir".equals(operacion)) {
+            String contraseña = origenContraseña == null ? pedirContrasena() : leerContrasena(origenContraseña);
+            if (contraseña == null) {
+                throw new IllegalArgumentException("No se pudo leer la contraseña.");
+            }
+            contraseñaProcesada = ProcesadorContraseña.getSHA256(contraseña);
+        }
+        return new ComandoCliente(puerto, argumentos.toArray(new String[0]), contraseñaProcesada);
+    }
+
+    /**
+     * Verifica que un parámetro sea un puerto válido.
+     * @param valor Parámetro a verificar.
+     * @return El puerto.
+     */
+    private int puertoValido(String valor) {
+        long puerto = numeroNoNegativo(valor, "El puerto");
+        if (puerto > 65535) {
+            throw new IllegalArgumentException("El puerto debe estar entre 0 y 65535.");
+        }
+        return (int) puerto;
+    }
+
+    /**
+     * Convierte un parámetro a un número entero no negativo.
+     * @param valor Parámetro a convertir.
+     * @param nombre Nombre del parámetro para el mensaje de error.
+     * @return El número.
+     */
+    private long numeroNoNegativo(String valor, String nombre) {
+        try {
+            long numero = Long.parseLong(valor);
+            if (numero < 0) {
+                throw new IllegalArgumentException(nombre + " no puede ser negativo.");
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(nombre + " debe ser un número entero.");
+        }
+    }
+
+    /**
+     * Verifica el número de hilos de la opción --hilos.
+     * @param valor Valor dado en la línea de comandos.
+     * @return el número de hilos, mayor a 0.
+     */
+    private int numeroDeHilos(String valor) {
+        int hilos = (int) numeroNoNegativo(valor, "El número de hilos");
+        if (hilos == 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser mayor a 0.");
+        }
+        return hilos;
     }
 
     /**
@@ -215,7 +616,7 @@ public class ProcesadorEntrada {
      * @param archivoContrasenas Nombre del archivo con las contraseñas.
      * @throws IOException Si ocurre un error al leer el archivo.
      */
-    private void documentoContreseñasValido(String archivoContrasenas) throws IOException {
+    void documentoContreseñasValido(String archivoContrasenas) throws IOException {
         if (!new File(archivoContrasenas).exists()) {
             throw new IllegalArgumentException("El documento con las contraseñas no existe.");
         } else if (!archivoContrasenas.endsWith(".frg")) {
@@ -263,8 +664,16 @@ public class ProcesadorEntrada {
     */
     private void mostrarUso() {
         System.out.println("Uso:");
-        System.out.println("Para Cifrar: -c <Nombre del archivo donde se guardaran las contraseñas> <Número total de contraseñas> <Número minimo de contraseñas para descifrar> <Nombre del archivo con el documento claro>");
-        System.out.println("Para Descifrar: -d <archivo_con_contraseñas> <archivo_cifrado>");
+        System.out.println("Para Cifrar: -c <Nombre del archivo donde se guardaran las contraseñas> <Número total de contraseñas> <Número minimo de contraseñas para descifrar> <Nombre del archivo con el documento claro> [--campo <p257|m521>] [--secuencial] [--binario] [--verificable]");
+        System.out.println("Para Descifrar: -d <archivo_con_contraseñas> <archivo_cifrado> [--corregir]");
+        System.out.println("Para Verificar las contraseñas: -v <archivo_con_contraseñas> <archivo_de_compromisos.cmp>");
+        System.out.println("Para Descifrar un intervalo: -r <archivo_con_contraseñas> <archivo_cifrado> <desplazamiento> <longitud>");
+        System.out.println("Para Cifrar un directorio: -cd <directorio> <Número total de contraseñas> <Número minimo de contraseñas para descifrar> [--compartido <archivo.frg>] [--hilos <k>] [--contraseña <-|fd:N|archivo>] [--campo <p257|m521>]");
+        System.out.println("Para Descifrar varios archivos: -dl <archivo_con_contraseñas> <archivo_cifrado|patrón>... [--hilos <k>]");
+        System.out.println("Para Cifrar y dispersar en piezas: -ci <Nombre del archivo donde se guardaran las contraseñas> <Número total de contraseñas> <Número minimo de contraseñas para descifrar> <Nombre del archivo con el documento claro> [--hilos <k>] [--campo <p257|m521>]");
+        System.out.println("Para Descifrar desde las piezas: -di <archivo_con_contraseñas> <pieza|patrón>... [--hilos <k>]");
+        System.out.println("Para Iniciar el servidor local: -servidor <puerto> [--hilos <k>]");
+        System.out.println("Para Enviar una operación al servidor: -cliente <puerto> <-c|-d|-dividir|-recuperar|-estadisticas> [argumentos...] [--contraseña <-|fd:N|archivo>]");
     }
 
     /**
@@ -0,0 +1,127 @@
+package mx.unam.criptografia;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recuperación del secreto con contraseñas que llegan una por una, por ejemplo cuando cada custodio entrega la
+ * suya en un momento distinto. En vez de repetir la interpolación de Lagrange con cada contraseña nueva, se
+ * mantiene la forma de Newton del polinomio que pasa por las contraseñas recibidas:
+ * p(x) = a_0 + a_1·(x - x_0) + ... + a_(k-1)·(x - x_0)···(x - x_(k-2)).
+ *
+ * <p>Al llegar (x_k, y_k) el nuevo coeficiente es la diferencia dividida a_k = f[x_0, ..., x_k] =
+ * (y_k - p(x_k)) / ((x_k - x_0)···(x_k - x_(k-1))), así que agregarla cuesta O(k) productos y una sola
+ * inversión. El valor en cero se acumula al mismo tiempo, sumando a_k·(-x_0)···(-x_(k-1)), de modo que el
+ * secreto está disponible en cuanto se reciben t contraseñas, sin otra interpolación.</p>
+ *
+ * <p>Todos los métodos son seguros desde varios hilos: las contraseñas se agregan con el candado del objeto.</p>
+ */
+public final class RecuperacionIncremental {
+
+    private final int minimo;
+    private final Newton<?> newton;
+
+    /**
+     * @param minimo Número necesario de contraseñas para recuperar el secreto (t).
+     * @param campo Campo en el que se generaron las contraseñas.
+     */
+    public RecuperacionIncremental(int minimo, CampoFinito<?> campo) {
+        if (minimo < 1) {
+            throw new IllegalArgumentException("El número necesario de contraseñas debe ser mayor a 0.");
+        }
+        this.minimo = minimo;
+        this.newton = new Newton<>(campo, minimo);
+    }
+
+    /**
+     * Agrega una contraseña. Las que llegan después de tener t se ignoran.
+     * @param x Coordenada x de la contraseña.
+     * @param y Coordenada y de la contraseña.
+     * @return true si ya se tienen t contraseñas y se puede obtener el secreto.
+     * @throws IllegalArgumentException Si ya se recibió una contraseña con la misma x.
+     */
+    public synchronized boolean agregar(BigInteger x, BigInteger y) {
+        if (newton.recibidos < minimo) {
+            newton.agregar(x, y);
+        }
+        return completa();
+    }
+
+    /**
+     * @return el número de contraseñas usadas hasta ahora, a lo más t.
+     */
+    public synchronized int recibidos() {
+        return newton.recibidos;
+    }
+
+    /**
+     * @return true si ya se tienen t contraseñas.
+     */
+    public synchronized boolean completa() {
+        return newton.recibidos == minimo;
+    }
+
+    /**
+     * @return el secreto recuperado, normalizado como en {@link SecretoShamir#recuperaSecreto(String)}.
+     * @throws IllegalStateException Si todavía no se tienen t contraseñas.
+     */
+    public synchronized byte[] secreto() {
+        if (!completa()) {
+            throw new IllegalStateException("Faltan " + (minimo - newton.recibidos)
+                                            + " contraseñas para recuperar el secreto.");
+        }
+        return SecretoShamir.ByteNormalizado(newton.enCero.aBigInteger().toByteArray());
+    }
+
+    /**
+     * Forma de Newton en un campo concreto. Solo se usa con el candado de la recuperación.
+     */
+    private static final class Newton<E extends CampoFinito.Elemento<E>> {
+        private final CampoFinito<E> campo;
+        private final List<E> x;
+        private final List<E> coeficientes;
+        // (-x_0)···(-x_(k-1)): el producto de la forma de Newton evaluado en cero
+        private final E productoEnCero;
+        private final E enCero;
+        private final E valor;
+        private final E denominador;
+        private final E diferencia;
+        private int recibidos;
+
+        Newton(CampoFinito<E> campo, int minimo) {
+            this.campo = campo;
+            this.x = new ArrayList<>(minimo);
+            this.coeficientes = new ArrayList<>(minimo);
+            this.productoEnCero = campo.uno();
+            this.enCero = campo.elemento();
+            this.valor = campo.elemento();
+            this.denominador = campo.elemento();
+            this.diferencia = campo.elemento();
+        }
+
+        void agregar(BigInteger xNueva, BigInteger yNueva) {
+            E xk = campo.elemento(xNueva);
+            int k = recibidos;
+
+            // p(x_k) con Horner sobre la forma de Newton y el producto de (x_k - x_i) en la misma pasada
+            denominador.asignarUno();
+            valor.asignarCero();
+            for (int i = k - 1; i >= 0; i--) {
+                valor.multiplicar(diferencia.asignar(xk).restar(x.get(i))).sumar(coeficientes.get(i));
+                denominador.multiplicar(diferencia);
+            }
+            if (denominador.esCero()) {
+                throw new IllegalArgumentException("Ya se recibió una contraseña con x = " + xNueva + ".");
+            }
+
+            // a_k = (y_k - p(x_k)) / producto
+            E coeficiente = campo.elemento(yNueva).restar(valor).multiplicar(denominador.invertir());
+            enCero.sumar(diferencia.asignar(coeficiente).multiplicar(productoEnCero));
+            productoEnCero.multiplicar(diferencia.asignar(xk).negar());
+            x.add(xk);
+            coeficientes.add(coeficiente);
+            recibidos++;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package mx.unam.criptografia;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Esquema de Shamir byte por byte en {@link CampoGF256}, para dividir datos de cualquier tamaño.
+ * Cada byte de los datos es el término independiente de su propio polinomio de grado t - 1; el fragmento
+ * j es la evaluación de todos esos polinomios en x = j + 1, así que cada fragmento mide lo mismo que los datos
+ * y cualquier grupo de t fragmentos los recupera. A lo más hay 255 fragmentos, uno por cada x distinta de cero.
+ *
+ * <p>Los datos se procesan por bloques. Cada bloque se evalúa con la suma de los coeficientes multiplicados por
+ * las potencias de x y se recupera con la suma de los fragmentos multiplicados por los pesos de Lagrange; en los
+ * dos casos la operación sobre el bloque es {@link CampoGF256#multiplicarYAcumular}, que no crea objetos.</p>
+ *
+ * <p>Los coeficientes aleatorios se toman del flujo de AES en modo CTR con clave e IV de {@link SecureRandom}:
+ * se necesitan t - 1 bytes aleatorios por byte de datos, y leerlos directamente de SecureRandom limitaría
+ * la división a unas decenas de MB/s.</p>
+ */
+public final class SecretoGF256 {
+
+    /**
+     * Tamaño de los bloques en que se procesan los flujos.
+     */
+    static final int TAMANO_BLOQUE = 64 * 1024;
+
+    private SecretoGF256() {
+    }
+
+    /**
+     * Divide datos en memoria.
+     * @param datos Datos a dividir.
+     * @param n Número de fragmentos, entre t y 255.
+     * @param t Número de fragmentos necesarios para recuperar los datos, al menos 1.
+     * @return los n fragmentos; el fragmento j corresponde a x = j + 1.
+     */
+    public static byte[][] dividir(byte[] datos, int n, int t) {
+        validar(n, t);
+        byte[][] fragmentos = new byte[n][datos.length];
+        byte[][] coeficientes = new byte[t][Math.min(TAMANO_BLOQUE, datos.length)];
+        Cipher aleatorio = generadorAleatorio();
+        // Se procesa por bloques para que los coeficientes y el bloque de cada fragmento se queden en caché
+        for (int desde = 0; desde < datos.length; desde += TAMANO_BLOQUE) {
+            int longitud = Math.min(TAMANO_BLOQUE, datos.length - desde);
+            System.arraycopy(datos, desde, coeficientes[0], 0, longitud);
+            for (int k = 1; k < t; k++) {
+                llenarAleatorio(aleatorio, coeficientes[k], longitud);
+            }
+            evaluar(coeficientes, fragmentos, desde, longitud);
+        }
+        return fragmentos;
+    }
+
+    /**
+     * Recupera datos en memoria a partir de t fragmentos.
+     * @param x Coordenada x de cada fragmento (j + 1 para el fragmento j), distintas entre sí.
+     * @param fragmentos Fragmentos, todos del mismo tamaño.
+     * @return los datos originales.
+     */
+    public static byte[] combinar(int[] x, byte[][] fragmentos) {
+        int[] pesos = pesosLagrange(x);
+        int longitud = fragmentos[0].length;
+        byte[] datos = new byte[longitud];
+        for (int j = 0; j < fragmentos.length; j++) {
+            if (fragmentos[j].length != longitud) {
+                throw new IllegalArgumentException("Los fragmentos no tienen el mismo tamaño.");
+            }
+            CampoGF256.multiplicarYAcumular(pesos[j], fragmentos[j], 0, datos, 0, longitud);
+        }
+        return datos;
+    }
+
+    /**
+     * Divide un flujo en n fragmentos sin cargarlo completo en memoria.
+     * @param entrada Datos a dividir.
+     * @param salidas Un flujo por fragmento; el fragmento j corresponde a x = j + 1.
+     * @param t Número de fragmentos necesarios para recuperar los datos.
+     * @return el número de bytes procesados.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    public static long dividir(InputStream entrada, OutputStream[] salidas, int t) throws IOException {
+        validar(salidas.length, t);
+        byte[][] coeficientes = new byte[t][TAMANO_BLOQUE];
+        byte[][] fragmentos = new byte[salidas.length][TAMANO_BLOQUE];
+        Cipher aleatorio = generadorAleatorio();
+        long total = 0;
+        int leidos;
+        while ((leidos = leerBloque(entrada, coeficientes[0])) > 0) {
+            for (int k = 1; k < t; k++) {
+                llenarAleatorio(aleatorio, coeficientes[k], leidos);
+            }
+            evaluar(coeficientes, fragmentos, 0, leidos);
+            for (int j = 0; j < salidas.length; j++) {
+                salidas[j].write(fragmentos[j], 0, leidos);
+            }
+            total += leidos;
+        }
+        return total;
+    }
+
+    /**
+     * Recupera un flujo a partir de t fragmentos.
+     * @param x Coordenada x de cada fragmento, distintas entre sí.
+     * @param entradas Un flujo por fragmento, todos del mismo tamaño.
+     * @param salida Flujo donde se escriben los datos originales.
+     * @return el número de bytes recuperados.
+     * @throws IOException Si ocurre un error al leer o escribir, o si los fragmentos no miden lo mismo.
+     */
+    public static long combinar(int[] x, InputStream[] entradas, OutputStream salida) throws IOException {
+        int[] pesos = pesosLagrange(x);
+        byte[] fragmento = new byte[TAMANO_BLOQUE];
+        byte[] datos = new byte[TAMANO_BLOQUE];
+        long total = 0;
+        while (true) {
+            int leidos = leerBloque(entradas[0], fragmento);
+            if (leidos == 0) {
+                for (int j = 1; j < entradas.length; j++) {
+                    if (entradas[j].read() != -1) {
+                        throw new IOException("Los fragmentos no tienen el mismo tamaño.");
+                    }
+                }
+                return total;
+            }
+            Arrays.fill(datos, 0, leidos, (byte) 0);
+            CampoGF256.multiplicarYAcumular(pesos[0], fragmento, 0, datos, 0, leidos);
+            for (int j = 1; j < entradas.length; j++) {
+                if (leerBloque(entradas[j], fragmento) != leidos) {
+                    throw new IOException("Los fragmentos no tienen el mismo tamaño.");
+                }
+                CampoGF256.multiplicarYAcumular(pesos[j], fragmento, 0, datos, 0, leidos);
+            }
+            salida.write(datos, 0, leidos);
+            total += leidos;
+        }
+    }
+
+    /**
+     * Calcula los pesos de Lagrange en cero: Lj(0) = producto de xm / (xm - xj) para m distinto de j.
+     * En GF(2^8) la resta es el XOR.
+     * @param x Coordenadas x, distintas entre sí y entre 1 y 255.
+     * @return el peso de cada fragmento.
+     * @throws IllegalArgumentException Si las coordenadas no son válidas.
+     */
+    static int[] pesosLagrange(int[] x) {
+        if (x.length == 0 || x.length > 255) {
+            throw new IllegalArgumentException("El número de fragmentos debe estar entre 1 y 255.");
+        }
+        boolean[] usadas = new boolean[256];
+        for (int xj : x) {
+            if (xj < 1 || xj > 255 || usadas[xj]) {
+                throw new IllegalArgumentException("Las coordenadas de los fragmentos deben ser distintas y estar entre 1 y 255.");
+            }
+            usadas[xj] = true;
+        }
+        int[] pesos = new int[x.length];
+        for (int j = 0; j < x.length; j++) {
+            int numerador = 1;
+            int denominador = 1;
+            for (int m = 0; m < x.length; m++) {
+                if (m != j) {
+                    numerador = CampoGF256.multiplicar(numerador, x[m]);
+                    denominador = CampoGF256.multiplicar(denominador, x[m] ^ x[j]);
+                }
+            }
+            pesos[j] = CampoGF256.dividir(numerador, denominador);
+        }
+        return pesos;
+    }
+
+    /**
+     * fragmentos[j][desde + i] = suma de coeficientes[k][i]·(j + 1)^k, para i menor a {@code longitud}.
+     */
+    private static void evaluar(byte[][] coeficientes, byte[][] fragmentos, int desde, int longitud) {
+        for (int j = 0; j < fragmentos.length; j++) {
+            int x = j + 1;
+            System.arraycopy(coeficientes[0], 0, fragmentos[j], desde, longitud);
+            int potencia = 1;
+            for (int k = 1; k < coeficientes.length; k++) {
+                potencia = CampoGF256.multiplicar(potencia, x);
+                CampoGF256.multiplicarYAcumular(potencia, coeficientes[k], 0, fragmentos[j], desde, longitud);
+            }
+        }
+    }
+
+    /**
+     * Crea un generador de bytes aleatorios: AES en modo CTR con clave e IV aleatorios.
+     */
+    private static Cipher generadorAleatorio() {
+        SecureRandom semilla = new SecureRandom();
+        byte[] clave = new byte[32];
+        byte[] iv = new byte[16];
+        semilla.nextBytes(clave);
+        semilla.nextBytes(iv);
+        try {
+            Cipher cifrador = Cipher.getInstance("AES/CTR/NoPadding");
+            cifrador.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(clave, "AES"), new IvParameterSpec(iv));
+            return cifrador;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo crear el generador de coeficientes.", e);
+        }
+    }
+
+    /**
+     * Llena los primeros {@code longitud} bytes con el siguiente tramo del flujo aleatorio.
+     */
+    private static void llenarAleatorio(Cipher aleatorio, byte[] destino, int longitud) {
+        Arrays.fill(destino, 0, longitud, (byte) 0);
+        try {
+            aleatorio.update(destino, 0, longitud, destino, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lee hasta llenar el bloque o llegar al final del flujo.
+     * @return el número de bytes leídos; 0 al final del flujo.
+     */
+    private static int leerBloque(InputStream entrada, byte[] bloque) throws IOException {
+        int total = 0;
+        int leidos;
+        while (total < bloque.length && (leidos = entrada.read(bloque, total, bloque.length - total)) != -1) {
+            total += leidos;
+        }
+        return total;
+    }
+
+    private static void validar(int n, int t) {
+        if (t < 1 || n < t || n > 255) {
+            throw new IllegalArgumentException("Se necesita 1 <= t <= n <= 255 para dividir en GF(256).");
+        }
+    }
+}
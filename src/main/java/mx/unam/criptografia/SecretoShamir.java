@@ -3,13 +3,15 @@ package mx.unam.criptografia;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -17,108 +19,369 @@ import java.util.Set;
  */
 public class SecretoShamir {
 
-    private static final BigInteger modulo = new BigInteger("208351617316091241234326746312124448251235562226470491514186331217050270460481");
+    private static final BigInteger modulo = ElementoP257.MODULO;
 
     /**
-     * Método que escribe un archivo con contraseñas. 
+     * Prefijo de la línea del archivo con contraseñas que indica el campo usado.
+     */
+    static final String PREFIJO_CAMPO = "Campo: ";
+
+    /**
+     * Número de coeficientes (t) a partir del cual los puntos se evalúan con {@link EvaluacionMultipunto}.
+     * Con menos coeficientes Horner en el campo es más rápido: con n = 20000 el árbol de subproductos empata
+     * alrededor de t = 1500 y es casi dos veces más rápido con t = 4096.
+     */
+    static final int UMBRAL_MULTIPUNTO = 2048;
+
+    /**
+     * Número de puntos que genera cada tarea en paralelo (o t, si es mayor, para que el árbol de subproductos
+     * de {@link EvaluacionMultipunto} tenga un grupo completo).
+     */
+    private static final int PUNTOS_POR_TAREA = 1024;
+
+    /**
+     * Términos de Lagrange de los conjuntos de x recuperados recientemente; guarda hasta 2^16 términos.
+     */
+    private static final CacheLagrange CACHE_LAGRANGE = new CacheLagrange(1 << 16);
+
+    /**
+     * Método que escribe un archivo con contraseñas usando el campo original ({@link CampoFinito#P257}).
      * @param archivoConContraseñas el nombre del archivo con contraseñas.
      * @param n el número de puntos a generar.
      * @param t el número de puntos necesarios para recuperar el secreto.
      * @param secreto el secreto a compartir.
      */
     public static void archivoConContraseñas(String archivoConContraseñas, String n, String t, byte[] secreto) {
+        archivoConContraseñas(archivoConContraseñas, n, t, secreto, CampoFinito.P257);
+    }
+
+    /**
+     * Método que escribe un archivo con contraseñas. El identificador del campo se guarda en el archivo
+     * para que la recuperación lo use automáticamente.
+     * @param archivoConContraseñas el nombre del archivo con contraseñas.
+     * @param n el número de puntos a generar.
+     * @param t el número de puntos necesarios para recuperar el secreto.
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se hace la aritmética.
+     */
+    public static void archivoConContraseñas(String archivoConContraseñas, String n, String t, byte[] secreto,
+                                             CampoFinito<?> campo) {
+        archivoConContraseñas(archivoConContraseñas, n, t, secreto, campo, false);
+    }
+
+    /**
+     * Método que escribe un archivo con contraseñas, con las x aleatorias o con las x = 1, ..., n
+     * (ver {@link #generaPuntosSecuenciales}).
+     * @param archivoConContraseñas el nombre del archivo con contraseñas.
+     * @param n el número de puntos a generar.
+     * @param t el número de puntos necesarios para recuperar el secreto.
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se hace la aritmética.
+     * @param secuenciales si las x son los índices 1, ..., n en vez de números aleatorios.
+     */
+    public static void archivoConContraseñas(String archivoConContraseñas, String n, String t, byte[] secreto,
+                                             CampoFinito<?> campo, boolean secuenciales) {
+        archivoConContraseñas(archivoConContraseñas, n, t, secreto, campo, secuenciales, false);
+    }
+
+    /**
+     * Método que escribe un archivo con contraseñas, en el formato de texto o en el binario de
+     * {@link FormatoBinarioFrg}. La lectura reconoce los dos formatos.
+     * @param archivoConContraseñas el nombre del archivo con contraseñas.
+     * @param n el número de puntos a generar.
+     * @param t el número de puntos necesarios para recuperar el secreto.
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se hace la aritmética.
+     * @param secuenciales si las x son los índices 1, ..., n en vez de números aleatorios.
+     * @param binario si el archivo se escribe en formato binario.
+     */
+    public static void archivoConContraseñas(String archivoConContraseñas, String n, String t, byte[] secreto,
+                                             CampoFinito<?> campo, boolean secuenciales, boolean binario) {
+        archivoConContraseñas(archivoConContraseñas, n, t, secreto, campo, secuenciales, binario, false);
+    }
+
+    /**
+     * Genera un secreto aleatorio de 256 bits para compartir con compromisos en vez del SHA-256 de una contraseña,
+     * que se podría adivinar a partir de los compromisos ({@link CompromisosFeldman}).
+     * @return el secreto, de 32 bytes.
+     */
+    public static byte[] secretoAleatorio() {
+        SecureRandom random = new SecureRandom();
+        byte[] secreto = new byte[32];
+        // Con el primer byte en cero el secreto recuperado tendría menos de 32 bytes y daría otra clave AES
+        do {
+            random.nextBytes(secreto);
+        } while (secreto[0] == 0);
+        return secreto;
+    }
+
+    /**
+     * Método que escribe un archivo con contraseñas y, opcionalmente, los compromisos de Feldman de los
+     * coeficientes en un archivo .cmp junto al .frg ({@link CompromisosFeldman}), para que cada custodio pueda
+     * verificar su contraseña. Los errores de escritura se reportan en la salida de errores; quien necesite
+     * saber si el archivo se escribió debe usar
+     * {@link #escribeArchivoConContraseñas(String, String, String, byte[], CampoFinito, boolean, boolean, boolean)}.
+     * @param archivoConContraseñas el nombre del archivo con contraseñas.
+     * @param n el número de puntos a generar.
+     * @param t el número de puntos necesarios para recuperar el secreto.
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se hace la aritmética.
+     * @param secuenciales si las x son los índices 1, ..., n en vez de números aleatorios.
+     * @param binario si el archivo se escribe en formato binario.
+     * @param verificable si también se escriben los compromisos; en ese caso el secreto debe venir de
+     * {@link #secretoAleatorio()} y no de una contraseña.
+     */
+    public static void archivoConContraseñas(String archivoConContraseñas, String n, String t, byte[] secreto,
+                                             CampoFinito<?> campo, boolean secuenciales, boolean binario,
+                                             boolean verificable) {
         try {
-            archivoConContraseñas = archivoConContraseñas.endsWith(".frg") 
-                                    ? archivoConContraseñas 
-                                    : archivoConContraseñas + ".frg";
-            List<BigInteger> coeficientes = generaPolinomio(Integer.parseInt(t), secreto);
-            List<BigInteger[]> puntos = generaPuntos(Integer.parseInt(n), coeficientes);
-            String contenido = generarContenidoArchivo(puntos, n, t);
-            escribirArchivo(archivoConContraseñas, contenido);
+            escribeArchivoConContraseñas(archivoConContraseñas, n, t, secreto, campo, secuenciales, binario,
+                                         verificable);
         } catch (IOException e) {
             manejarErrorEscrituraArchivo(e);
         }
     }
 
     /**
-     * Método que genera un polinomio de grado t-1 y el secreto como término independiente.
+     * Igual que {@link #archivoConContraseñas(String, String, String, byte[], CampoFinito, boolean, boolean,
+     * boolean)}, pero propaga los errores de escritura en vez de solo reportarlos.
+     * @param archivoConContraseñas el nombre del archivo con contraseñas.
+     * @param n el número de puntos a generar.
+     * @param t el número de puntos necesarios para recuperar el secreto.
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se hace la aritmética.
+     * @param secuenciales si las x son los índices 1, ..., n en vez de números aleatorios.
+     * @param binario si el archivo se escribe en formato binario.
+     * @param verificable si también se escriben los compromisos; en ese caso el secreto debe venir de
+     * {@link #secretoAleatorio()} y no de una contraseña.
+     * @throws IOException Si no se puede escribir el archivo con contraseñas o el de compromisos.
+     */
+    public static void escribeArchivoConContraseñas(String archivoConContraseñas, String n, String t,
+                                                    byte[] secreto, CampoFinito<?> campo, boolean secuenciales,
+                                                    boolean binario, boolean verificable) throws IOException {
+        archivoConContraseñas = archivoConContraseñas.endsWith(".frg")
+                                ? archivoConContraseñas
+                                : archivoConContraseñas + ".frg";
+        List<BigInteger> coeficientes = generaPolinomio(Integer.parseInt(t), secreto, campo);
+        List<BigInteger[]> puntos = secuenciales
+                                    ? generaPuntosSecuenciales(Integer.parseInt(n), coeficientes, campo)
+                                    : generaPuntos(Integer.parseInt(n), coeficientes, campo);
+        if (binario) {
+            FormatoBinarioFrg.escribir(new File(archivoConContraseñas), puntos, Integer.parseInt(n),
+                                       Integer.parseInt(t), campo);
+        } else {
+            FormatoTextoFrg.escribir(new File(archivoConContraseñas), puntos, n, t, campo);
+        }
+        if (verificable) {
+            CompromisosFeldman.generar(coeficientes, campo)
+                              .escribir(new File(CompromisosFeldman.archivoPara(archivoConContraseñas)));
+        }
+    }
+
+    /**
+     * Método que genera un polinomio de grado t-1 y el secreto como término independiente, con los coeficientes
+     * en el campo original ({@link CampoFinito#P257}).
      * @param t el número de puntos necesarios para recuperar el secreto (con t-1 que sera el grado del polinomio).
      * @param secreto el secreto a compartir.
      * @return Una lista de coeficientes del polinomio.
      */
     public static List<BigInteger> generaPolinomio(int t, byte[] secreto) {
+        return generaPolinomio(t, secreto, CampoFinito.P257);
+    }
+
+    /**
+     * Método que genera un polinomio de grado t-1 y el secreto como término independiente. Los demás
+     * coeficientes son uniformes en [0, p) con p el primo del campo: si fueran más chicos que p, el polinomio
+     * no se reduciría módulo p para x pequeñas y cada contraseña cumpliría y ≡ secreto (mod x), así que menos
+     * de t contraseñas revelarían el secreto con el teorema chino del residuo.
+     * @param t el número de puntos necesarios para recuperar el secreto (con t-1 que sera el grado del polinomio).
+     * @param secreto el secreto a compartir.
+     * @param campo el campo finito en el que se generan las contraseñas.
+     * @return Una lista de coeficientes del polinomio.
+     */
+    public static List<BigInteger> generaPolinomio(int t, byte[] secreto, CampoFinito<?> campo) {
+        BigInteger modulo = campo.modulo();
         BigInteger terminoIndependiente = new BigInteger(1, secreto);
         List<BigInteger> coeficientes = new ArrayList<>();
         coeficientes.add(terminoIndependiente);
         SecureRandom random = new SecureRandom();
         for (int i = 1; i < t; i++) {
-            coeficientes.add(new BigInteger(128, random));
+            // 64 bits de más para que el sesgo de reducir módulo p sea despreciable
+            coeficientes.add(new BigInteger(modulo.bitLength() + 64, random).mod(modulo));
         }
         return coeficientes;
     }
 
     /**
-     * Método que genera n puntos (x, y) en el plano cartesiano.
+     * Método que genera n puntos (x, y) en el plano cartesiano, en el campo original ({@link CampoFinito#P257}).
      * @param n el número de puntos a generar.
      * @param coeficientes los coeficientes del polinomio.
      * @return una lista de n puntos (x, y).
      */
     public static List<BigInteger[]> generaPuntos(int n, List<BigInteger> coeficientes) {
-        Set<BigInteger> valoresX = new HashSet<>();
-        List<BigInteger[]> puntos = new ArrayList<>();
+        return generaPuntos(n, coeficientes, CampoFinito.P257);
+    }
+
+    /**
+     * Método que genera n puntos (x, y) en el plano cartesiano. Los puntos se generan en bloques, en paralelo en
+     * el ForkJoinPool común; el punto i siempre lo produce el mismo bloque, así que el orden es el de los índices.
+     * @param n el número de puntos a generar.
+     * @param coeficientes los coeficientes del polinomio.
+     * @param campo el campo finito en el que se evalúa el polinomio.
+     * @return una lista de n puntos (x, y).
+     */
+    public static List<BigInteger[]> generaPuntos(int n, List<BigInteger> coeficientes, CampoFinito<?> campo) {
+        return generaPuntosEnCampo(n, coeficientes, campo, false);
+    }
+
+    /**
+     * Método que genera los n puntos (i, f(i)) para i = 1, ..., n. Cada contraseña es solo su índice y el valor,
+     * y al recuperar el secreto los términos de Lagrange son productos de enteros pequeños (ver
+     * {@link #terminosLagrange}). Los coeficientes deben ser uniformes módulo el primo, como los de
+     * {@link #generaPolinomio(int, byte[], CampoFinito)}: con coeficientes cortos, f(1) = s + a_1 + ... sin
+     * reducir acotaría el secreto con una sola contraseña.
+     * @param n el número de puntos a generar.
+     * @param coeficientes los coeficientes del polinomio.
+     * @param campo el campo finito en el que se evalúa el polinomio.
+     * @return una lista de n puntos (x, y), ordenados por x.
+     */
+    public static List<BigInteger[]> generaPuntosSecuenciales(int n, List<BigInteger> coeficientes,
+                                                              CampoFinito<?> campo) {
+        return generaPuntosEnCampo(n, coeficientes, campo, true);
+    }
+
+    private static <E extends CampoFinito.Elemento<E>> List<BigInteger[]> generaPuntosEnCampo(
+            int n, List<BigInteger> coeficientes, CampoFinito<E> campo, boolean secuenciales) {
+        List<E> coeficientesCampo = new ArrayList<>();
+        for (BigInteger coeficiente : coeficientes) {
+            coeficientesCampo.add(campo.elemento(coeficiente));
+        }
+        BigInteger[] xs = new BigInteger[n];
+        BigInteger[] ys = new BigInteger[n];
+        // Cada tarea tiene su propio generador, con una semilla de SecureRandom tomada en este hilo
         SecureRandom random = new SecureRandom();
-        while (puntos.size() < n) {
-            BigInteger x = new BigInteger(100, random); 
-            if (!valoresX.contains(x)) { 
-                valoresX.add(x);
-                BigInteger y = evaluaPolinomioHorner(coeficientes, x);
-                puntos.add(new BigInteger[]{x, y});
+        int bloque = Math.max(PUNTOS_POR_TAREA, coeficientes.size());
+        List<TareaPuntos<E>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < n; desde += bloque) {
+            byte[] semilla = null;
+            if (!secuenciales) {
+                semilla = new byte[32];
+                random.nextBytes(semilla);
             }
+            tareas.add(new TareaPuntos<>(coeficientes, coeficientesCampo, campo, semilla, xs, ys, desde,
+                                         Math.min(n, desde + bloque)));
+        }
+        if (tareas.size() == 1) {
+            tareas.get(0).invoke();
+        } else {
+            ForkJoinTask.invokeAll(tareas);
+        }
+
+        // Las x repetidas (muy improbables con 100 bits) se vuelven a elegir aquí, en orden
+        Set<BigInteger> valoresX = new HashSet<>();
+        E xCampo = campo.elemento();
+        E yCampo = campo.elemento();
+        List<BigInteger[]> puntos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            while (!valoresX.add(xs[i])) {
+                xs[i] = new BigInteger(100, random);
+                ys[i] = evaluaPolinomioHorner(coeficientesCampo, xCampo.asignar(xs[i]), yCampo).aBigInteger();
+            }
+            puntos.add(new BigInteger[]{xs[i], ys[i]});
         }
         return puntos;
     }
 
     /**
-     * Método que evalúa un polinomio en un punto x utilizando el algoritmo de Horner.
+     * Genera y evalúa los puntos de las posiciones [desde, hasta). Cada tarea escribe solo en sus posiciones,
+     * así que el orden de los puntos no depende del orden en que terminen las tareas. Sin semilla, la x de la
+     * posición i es i + 1.
+     */
+    private static final class TareaPuntos<E extends CampoFinito.Elemento<E>> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<BigInteger> coeficientes;
+        private final List<E> coeficientesCampo;
+        private final CampoFinito<E> campo;
+        private final byte[] semilla;
+        private final BigInteger[] xs;
+        private final BigInteger[] ys;
+        private final int desde;
+        private final int hasta;
+
+        TareaPuntos(List<BigInteger> coeficientes, List<E> coeficientesCampo, CampoFinito<E> campo, byte[] semilla,
+                    BigInteger[] xs, BigInteger[] ys, int desde, int hasta) {
+            this.coeficientes = coeficientes;
+            this.coeficientesCampo = coeficientesCampo;
+            this.campo = campo;
+            this.semilla = semilla;
+            this.xs = xs;
+            this.ys = ys;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (semilla == null) {
+                for (int i = desde; i < hasta; i++) {
+                    xs[i] = BigInteger.valueOf(i + 1L);
+                }
+            } else {
+                SecureRandom random;
+                try {
+                    random = SecureRandom.getInstance("SHA1PRNG");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("No se pudo crear el generador de puntos.", e);
+                }
+                random.setSeed(semilla);
+                for (int i = desde; i < hasta; i++) {
+                    xs[i] = new BigInteger(100, random);
+                }
+            }
+            if (coeficientes.size() >= UMBRAL_MULTIPUNTO && hasta - desde >= coeficientes.size()) {
+                BigInteger[] valores = EvaluacionMultipunto.evaluar(coeficientes, Arrays.asList(xs).subList(desde, hasta),
+                                                                    campo.modulo());
+                System.arraycopy(valores, 0, ys, desde, valores.length);
+                return;
+            }
+            E xCampo = campo.elemento();
+            E yCampo = campo.elemento();
+            for (int i = desde; i < hasta; i++) {
+                ys[i] = evaluaPolinomioHorner(coeficientesCampo, xCampo.asignar(xs[i]), yCampo).aBigInteger();
+            }
+        }
+    }
+
+    /**
+     * Método que evalúa un polinomio en un punto x utilizando el algoritmo de Horner, reduciendo módulo el primo
+     * de {@link CampoFinito#P257} en cada paso para que los números no crezcan con el grado.
      * @param coeficientes los coeficientes del polinomio.
      * @param x el punto en el que se evalúa el polinomio.
-     * @return el valor del polinomio en el punto x.
+     * @return el valor del polinomio en el punto x, módulo el primo.
      */
     public static BigInteger evaluaPolinomioHorner(List<BigInteger> coeficientes, BigInteger x) {
         BigInteger resultado = BigInteger.ZERO;
         for (int i = coeficientes.size() - 1; i >= 0; i--) {
-            resultado = resultado.multiply(x).add(coeficientes.get(i));
+            resultado = resultado.multiply(x).add(coeficientes.get(i)).mod(modulo);
         }
         return resultado;
     }
 
     /**
-     * Genera el contenido para el archivo de contraseñas.
-     * @param puntos Lista de puntos generados.
-     * @param n Número total de contraseñas.
-     * @param t Número necesario de contraseñas para descifrar el archivo.
-     * @return Contenido del archivo como una cadena de texto.
+     * Evalúa un polinomio en un punto x con el algoritmo de Horner, en un campo finito y sin crear objetos.
+     * @param coeficientes los coeficientes del polinomio, del término independiente al de mayor grado.
+     * @param x el punto en el que se evalúa el polinomio.
+     * @param resultado elemento donde se guarda el valor del polinomio en x.
+     * @return el elemento resultado.
      */
-    private static String generarContenidoArchivo(List<BigInteger[]> puntos, String n, String t) {
-        StringBuilder contenido = new StringBuilder();
-        for (BigInteger[] punto : puntos) {
-            contenido.append(String.format("(%s, %s)%n", punto[0], punto[1]));
+    public static <E extends CampoFinito.Elemento<E>> E evaluaPolinomioHorner(List<E> coeficientes, E x, E resultado) {
+        resultado.asignarCero();
+        for (int i = coeficientes.size() - 1; i >= 0; i--) {
+            resultado.multiplicar(x).sumar(coeficientes.get(i));
         }
-        contenido.append(String.format(
-            "Numero total de contraseñas: %s%nNumero necesario de contraseñas para descifrar el archivo: %s%n",
-            n, t
-        ));
-        return contenido.toString();
-    }
-
-    /**
-     * Escribe el contenido en el archivo especificado.
-     * @param archivo Nombre del archivo.
-     * @param contenido Contenido a escribir.
-     * @throws IOException Si ocurre un error durante la escritura.
-     */
-    private static void escribirArchivo(String archivo, String contenido) throws IOException {
-        Files.write(new File(archivo).toPath(), contenido.getBytes());
+        return resultado;
     }
 
     /**
@@ -134,33 +397,120 @@ public class SecretoShamir {
      * Recupera el secreto a partir de un archivo con contraseñas. 
      * @param archivoConContraseñas el nombre del archivo con contraseñas.
      * @return el secreto recuperado.
+     * @throws IllegalArgumentException Si no se puede leer el archivo o no tiene puntos.
      */
     public static byte[] recuperaSecreto(String archivoConContraseñas) {
-    // Obtener los puntos (x, y) del archivo
-    List<BigInteger[]> puntos = obtenerPuntos(archivoConContraseñas);
-    
-    // Verificar que haya suficientes puntos
-    if (puntos.size() < 1) {
-        throw new IllegalArgumentException("El archivo no contiene puntos suficientes para recuperar el secreto.");
-    }
-    
-    // Inicializamos el secreto como 0
-    BigInteger secreto = BigInteger.ZERO;
-    
-    // Iteramos sobre los puntos (x, y) para aplicar la fórmula de Lagrange y recuperar el secreto
-    for (int i = 0; i < puntos.size(); i++) {
-        BigInteger yi = puntos.get(i)[1];  // Valor de y en el punto (x, y)
-        BigInteger li = calcularTérminoLagrange(i, puntos);  // Término de Lagrange Li(0)
-        secreto = secreto.add(yi.multiply(li).mod(modulo)).mod(modulo);  // Acumulamos el valor del secreto
-    }
-    
-    // Normalizamos el byte array resultante
-    return ByteNormalizado(secreto.toByteArray());
-}
+        try {
+            return recuperaSecreto(ConjuntoFragmentos.cargar(archivoConContraseñas));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer el archivo con evaluaciones.", e);
+        }
+    }
+
+    /**
+     * Recupera el secreto a partir de contraseñas ya leídas o en memoria. Si se conoce t, se interpola solo con
+     * los primeros t puntos: cualquier conjunto de t puntos determina el polinomio.
+     * @param fragmentos las contraseñas, con el campo en el que se generaron.
+     * @return el secreto recuperado.
+     * @throws IllegalArgumentException Si no hay puntos o hay menos de t.
+     */
+    public static byte[] recuperaSecreto(ConjuntoFragmentos fragmentos) {
+        // Verificar que haya suficientes puntos
+        if (fragmentos.tamano() < Math.max(1, fragmentos.minimo())) {
+            throw new IllegalArgumentException("El archivo no contiene puntos suficientes para recuperar el secreto.");
+        }
+
+        // Interpolamos en x = 0 en el campo de las contraseñas, con t puntos
+        int usados = fragmentos.minimo() > 0 ? fragmentos.minimo() : fragmentos.tamano();
+        BigInteger secreto = interpolarEnCero(fragmentos.puntos(usados), fragmentos.campo());
+
+        // Normalizamos el byte array resultante
+        return ByteNormalizado(secreto.toByteArray());
+    }
+
+    /**
+     * Recupera el secreto usando todas las contraseñas y descartando las dañadas: con m contraseñas se corrigen
+     * hasta ⌊(m - t)/2⌋ ({@link CorreccionErrores}). Los puntos de más que no se usan en
+     * {@link #recuperaSecreto(ConjuntoFragmentos)} sirven aquí para encontrar los dañados.
+     * @param fragmentos las contraseñas, leídas con {@link ConjuntoFragmentos#cargarTodos(String)}; deben indicar t.
+     * @return el secreto recuperado y las x de las contraseñas dañadas.
+     * @throws IllegalArgumentException Si no se conoce t, hay menos de t puntos o hay demasiados dañados.
+     */
+    public static CorreccionErrores.Resultado recuperaSecretoCorrigiendo(ConjuntoFragmentos fragmentos) {
+        if (fragmentos.minimo() < 1) {
+            throw new IllegalArgumentException("El archivo con contraseñas no indica t; no se pueden corregir errores.");
+        }
+        return CorreccionErrores.decodificar(fragmentos.puntos(), fragmentos.minimo(), fragmentos.campo());
+    }
+
+    /**
+     * Aplica la fórmula de Lagrange en x = 0 para recuperar el término independiente del polinomio.
+     * @param puntos Lista de puntos (x, y).
+     * @param campo Campo finito en el que se generaron los puntos.
+     * @return el secreto.
+     */
+    static BigInteger interpolarEnCero(List<BigInteger[]> puntos, CampoFinito<?> campo) {
+        return interpolarEnCeroEnCampo(puntos, campo);
+    }
+
+    private static <E extends CampoFinito.Elemento<E>> BigInteger interpolarEnCeroEnCampo(List<BigInteger[]> puntos,
+                                                                                         CampoFinito<E> campo) {
+        // Los términos de Lagrange Li(0) solo dependen de las x: se ordenan los puntos para buscarlos en la caché,
+        // y si no están se calculan todos con una sola inversión modular
+        List<BigInteger[]> ordenados = new ArrayList<>(puntos);
+        ordenados.sort((a, b) -> a[0].compareTo(b[0]));
+        BigInteger[] x = new BigInteger[ordenados.size()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = ordenados.get(i)[0];
+        }
+        List<E> terminos = CACHE_LAGRANGE.terminos(x, campo, xs -> terminosLagrange(ordenados, campo));
+
+        // Iteramos sobre los puntos (x, y) y acumulamos yi * Li(0)
+        E acumulado = campo.elemento();
+        E yi = campo.elemento();
+        for (int i = 0; i < ordenados.size(); i++) {
+            yi.asignar(ordenados.get(i)[1]);
+            acumulado.sumar(yi.multiplicar(terminos.get(i)));
+        }
+        return acumulado.aBigInteger();
+    }
 
+    /**
+     * @return la caché de términos de Lagrange que usa la recuperación de secretos, para consultar sus aciertos
+     * y fallos o vaciarla.
+     */
+    public static CacheLagrange cacheLagrange() {
+        return CACHE_LAGRANGE;
+    }
 
     /**
-     * Recupera lospuntos a partir de un archivo con contraseñas.
+     * Obtiene el campo indicado en un archivo con contraseñas. Los archivos escritos antes de poder elegir
+     * el campo no tienen esa línea y usan el campo original.
+     * @param archivoConContraseñas Nombre del archivo con contraseñas.
+     * @return el campo usado para generar los puntos.
+     */
+    public static CampoFinito<?> obtenerCampo(String archivoConContraseñas) {
+        try {
+            if (FormatoBinarioFrg.esBinario(new File(archivoConContraseñas))) {
+                return FormatoBinarioFrg.leerEncabezado(new File(archivoConContraseñas)).campo;
+            }
+            List<String> otrasLineas = new ArrayList<>();
+            FormatoTextoFrg.leer(new File(archivoConContraseñas), null, otrasLineas);
+            for (String linea : otrasLineas) {
+                if (linea.startsWith(PREFIJO_CAMPO)) {
+                    return CampoFinito.porIdentificador(linea.substring(PREFIJO_CAMPO.length()).trim());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo con evaluaciones.");
+            e.printStackTrace();
+        }
+        return CampoFinito.P257;
+    }
+
+    /**
+     * Recupera lospuntos a partir de un archivo con contraseñas, en formato de texto o binario
+     * ({@link FormatoBinarioFrg}).
      * @param archivoConContraseñas Nombre del archivo con contraseñas.
      * @return Una lista de puntos (x, y) como BigInteger[].
      */
@@ -168,16 +518,10 @@ public class SecretoShamir {
         File archivo = new File(archivoConContraseñas);
         List<BigInteger[]> puntos = new ArrayList<>();
         try {
-            List<String> lineas = Files.readAllLines(archivo.toPath());
-            for (String linea : lineas) {
-                linea = linea.trim(); // Eliminar espacios en blanco
-                if (linea.matches("\\(\\d+, \\d+\\)")) { // Validar formato "(x, y)"
-                    String[] punto = linea.replace("(", "").replace(")", "").split(", ");
-                    BigInteger x = new BigInteger(punto[0]);
-                    BigInteger y = new BigInteger(punto[1]);
-                    puntos.add(new BigInteger[]{x, y});
-                }
+            if (FormatoBinarioFrg.esBinario(archivo)) {
+                return FormatoBinarioFrg.leerPuntos(archivo);
             }
+            FormatoTextoFrg.leer(archivo, puntos, null);
             return puntos;
         } catch (IOException e) {
             System.err.println("Error al leer el archivo con evaluaciones.");
@@ -222,6 +566,188 @@ public class SecretoShamir {
         return li;
     }
 
+    /**
+     * Calcula los términos de Lagrange Li(0) de todos los puntos con una sola inversión modular, en el campo
+     * original ({@link CampoFinito#P257}).
+     * Para cada punto se acumulan por separado el numerador, el producto de (-xj), y el denominador, el producto
+     * de (xi - xj); después se invierten todos los denominadores a la vez con el truco de Montgomery: se invierte
+     * el producto de todos y cada inverso se obtiene con dos multiplicaciones al recorrer los productos parciales.
+     * El resultado es el mismo que el de {@link #calcularTérminoLagrange(int, List)} para cada i.
+     * @param puntos Lista de puntos (x, y).
+     * @return Los valores Li(0), en el mismo orden que los puntos.
+     * @throws ArithmeticException Si dos puntos tienen la misma x.
+     */
+    public static BigInteger[] calcularTérminosLagrange(List<BigInteger[]> puntos) {
+        List<ElementoP257> terminos = terminosLagrange(puntos, CampoFinito.P257);
+        BigInteger[] resultado = new BigInteger[terminos.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = terminos.get(i).aBigInteger();
+        }
+        return resultado;
+    }
+
+    /**
+     * Calcula los términos de Lagrange Li(0) como elementos de un campo; ver {@link #calcularTérminosLagrange(List)}.
+     * Todas las operaciones se hacen en su lugar sobre los elementos del campo.
+     */
+    static <E extends CampoFinito.Elemento<E>> List<E> terminosLagrange(List<BigInteger[]> puntos, CampoFinito<E> campo) {
+        int t = puntos.size();
+        int[] indices = indicesSecuenciales(puntos);
+        if (indices != null) {
+            return terminosLagrangeSecuenciales(indices, campo);
+        }
+        List<E> x = new ArrayList<>(t);
+        for (BigInteger[] punto : puntos) {
+            x.add(campo.elemento(punto[0]));
+        }
+        E factor = campo.elemento();
+
+        // Numeradores: producto de (-xj) para j != i, con productos de prefijos y sufijos
+        List<E> sufijos = new ArrayList<>(t + 1);
+        for (int j = 0; j <= t; j++) {
+            sufijos.add(campo.uno());
+        }
+        for (int j = t - 1; j >= 0; j--) {
+            sufijos.get(j).asignar(sufijos.get(j + 1)).multiplicar(factor.asignar(x.get(j)).negar());
+        }
+        List<E> terminos = new ArrayList<>(t);
+        E prefijo = campo.uno();
+        for (int i = 0; i < t; i++) {
+            terminos.add(prefijo.copia().multiplicar(sufijos.get(i + 1)));
+            prefijo.multiplicar(factor.asignar(x.get(i)).negar());
+        }
+
+        // Denominadores: producto de (xi - xj) para j != i
+        List<E> denominadores = new ArrayList<>(t);
+        for (int i = 0; i < t; i++) {
+            E denominador = campo.uno();
+            for (int j = 0; j < t; j++) {
+                if (i != j) {
+                    denominador.multiplicar(factor.asignar(x.get(i)).restar(x.get(j)));
+                }
+            }
+            denominadores.add(denominador);
+        }
+
+        // Inversión por lotes: sufijos[i] se reutiliza como d0 * ... * d(i-1)
+        E acumulado = campo.uno();
+        for (int i = 0; i < t; i++) {
+            sufijos.get(i).asignar(acumulado);
+            acumulado.multiplicar(denominadores.get(i));
+        }
+        if (acumulado.esCero()) {
+            throw new ArithmeticException("Dos puntos tienen la misma coordenada x.");
+        }
+        E inverso = acumulado.invertir();  // inverso de d0 * ... * d(t-1)
+        for (int i = t - 1; i >= 0; i--) {
+            factor.asignar(inverso).multiplicar(sufijos.get(i));  // inverso de di
+            inverso.multiplicar(denominadores.get(i));
+            terminos.get(i).multiplicar(factor);
+        }
+        return terminos;
+    }
+
+    /**
+     * Revisa si las x de los puntos son índices de {@link #generaPuntosSecuenciales} y conviene usar
+     * {@link #terminosLagrangeSecuenciales}: enteros entre 1 y 2^31 - 1 con el mayor m a lo más 2t, para que
+     * los índices que faltan en [1, m] no sean más que los puntos.
+     * @return los índices, o null si no se cumple.
+     */
+    private static int[] indicesSecuenciales(List<BigInteger[]> puntos) {
+        int t = puntos.size();
+        int[] indices = new int[t];
+        for (int i = 0; i < t; i++) {
+            BigInteger x = puntos.get(i)[0];
+            if (x.signum() <= 0 || x.bitLength() > 31 || x.intValue() > 2 * t) {
+                return null;
+            }
+            indices[i] = x.intValue();
+        }
+        return indices;
+    }
+
+    /**
+     * Términos de Lagrange en x = 0 cuando las x son índices a_i entre 1 y m. Con S el conjunto de índices y
+     * P su producto,
+     * <pre>
+     *   Li(0) = prod_{j != i} aj / (aj - ai) = (-1)^(ai - 1) · P · prod_{k en [1, m] - S} (k - ai) / (ai! · (m - ai)!)
+     * </pre>
+     * porque el producto de (k - ai) sobre todo [1, m] sin ai es (-1)^(ai - 1) · (ai - 1)! · (m - ai)!. Solo
+     * aparecen productos de enteros pequeños y los inversos de los factoriales salen de una sola inversión:
+     * cuesta O(m + t·(m - t)) operaciones en vez de O(t^2).
+     */
+    private static <E extends CampoFinito.Elemento<E>> List<E> terminosLagrangeSecuenciales(int[] indices,
+                                                                                          CampoFinito<E> campo) {
+        int t = indices.length;
+        int m = 0;
+        for (int a : indices) {
+            m = Math.max(m, a);
+        }
+        boolean[] presentes = new boolean[m + 1];
+        for (int a : indices) {
+            if (presentes[a]) {
+                throw new ArithmeticException("Dos puntos tienen la misma coordenada x.");
+            }
+            presentes[a] = true;
+        }
+        int[] faltantes = new int[m - t];
+        for (int k = 1, f = 0; k <= m; k++) {
+            if (!presentes[k]) {
+                faltantes[f++] = k;
+            }
+        }
+
+        // Inversos de los factoriales 0!, ..., m! con una sola inversión
+        List<E> inversosFactoriales = new ArrayList<>(m + 1);
+        E factorial = campo.uno();
+        for (int k = 1; k <= m; k++) {
+            factorial.multiplicar(k);
+        }
+        for (int k = 0; k <= m; k++) {
+            inversosFactoriales.add(null);
+        }
+        E inverso = factorial.invertir();
+        for (int k = m; k >= 0; k--) {
+            inversosFactoriales.set(k, inverso.copia());
+            if (k > 0) {
+                inverso.multiplicar(k);
+            }
+        }
+
+        E producto = multiplicarEnteros(campo.uno(), indices, t);
+        int[] factores = new int[faltantes.length];
+        List<E> terminos = new ArrayList<>(t);
+        for (int a : indices) {
+            int negativos = a - 1;
+            for (int f = 0; f < faltantes.length; f++) {
+                factores[f] = Math.abs(faltantes[f] - a);
+                if (faltantes[f] < a) {
+                    negativos++;
+                }
+            }
+            E termino = multiplicarEnteros(producto.copia(), factores, factores.length);
+            termino.multiplicar(inversosFactoriales.get(a)).multiplicar(inversosFactoriales.get(m - a));
+            terminos.add(negativos % 2 == 0 ? termino : termino.negar());
+        }
+        return terminos;
+    }
+
+    /**
+     * Multiplica el elemento por los primeros {@code cuantos} enteros positivos del arreglo, juntándolos en un
+     * solo entero mientras quepan en 31 bits para hacer menos productos en el campo.
+     */
+    private static <E extends CampoFinito.Elemento<E>> E multiplicarEnteros(E elemento, int[] factores, int cuantos) {
+        long bloque = 1;
+        for (int i = 0; i < cuantos; i++) {
+            if (bloque * factores[i] > Integer.MAX_VALUE) {
+                elemento.multiplicar((int) bloque);
+                bloque = 1;
+            }
+            bloque *= factores[i];
+        }
+        return elemento.multiplicar((int) bloque);
+    }
+
     /**
      * Normaliza un arreglo de bytes.
      * @param bytes Arreglo de bytes a normalizar.
@@ -0,0 +1,409 @@
+package mx.unam.criptografia;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Servidor de larga duración que atiende operaciones de Shamir y AES en un socket local (solo loopback).
+ * Evita pagar el arranque de la JVM y el calentamiento del JIT en cada operación: las clases se quedan
+ * cargadas y compiladas entre solicitudes, y las solicitudes se atienden de forma concurrente.
+ *
+ * <p>El socket es local pero cualquier usuario de la máquina puede conectarse, y el servidor lee y escribe
+ * archivos con los permisos de quien lo inició. Por eso, al arrancar, genera un token aleatorio de 256 bits y lo
+ * escribe en un archivo que solo puede leer su dueño (permisos 0600), por defecto
+ * {@link #archivoToken(int)}. La primera línea de cada conexión debe ser ese token; si no coincide se responde
+ * con un error y se cierra la conexión sin ejecutar nada. El archivo se borra al cerrar el servidor.</p>
+ *
+ * <p>El protocolo es de texto UTF-8 por líneas. Después del token, cada solicitud es una línea con los argumentos separados por
+ * tabuladores, con la misma sintaxis que la línea de comandos; las operaciones que necesitan contraseña
+ * (-c sin --verificable y -dividir) llevan en la siguiente línea el SHA-256 de la contraseña en hexadecimal.
+ * Con --verificable, -c comparte una clave aleatoria ({@link SecretoShamir#secretoAleatorio()}). La respuesta
+ * empieza con "OK" o "ERROR\t&lt;mensaje&gt;", sigue con cero o más líneas de detalle y termina con una
+ * línea vacía. Una misma conexión puede enviar varias solicitudes.</p>
+ *
+ * <p>Operaciones:</p>
+ * <ul>
+ *     <li>-c &lt;archivo&gt; &lt;n&gt; &lt;t&gt; &lt;documento claro&gt; [--campo &lt;id&gt;]: genera el .frg y cifra el documento.</li>
+ *     <li>-d &lt;archivo.frg&gt; &lt;archivo.aes&gt;: descifra; el documento se guarda junto al archivo cifrado.</li>
+ *     <li>-dividir &lt;archivo&gt; &lt;n&gt; &lt;t&gt;: solo genera el archivo .frg con las contraseñas.</li>
+ *     <li>-recuperar &lt;archivo.frg&gt;: regresa el secreto recuperado en hexadecimal.</li>
+ *     <li>-estadisticas: regresa los percentiles de latencia de cada operación.</li>
+ * </ul>
+ */
+public class ServidorShamir implements Closeable {
+
+    /**
+     * Número de latencias que se conservan por operación para calcular los percentiles.
+     */
+    private static final int MUESTRAS = 10_000;
+
+    /**
+     * Operaciones de las que se registra la latencia.
+     */
+    private static final List<String> OPERACIONES = Arrays.asList("-c", "-d", "-dividir", "-recuperar");
+
+    /**
+     * Número de bytes aleatorios del token.
+     */
+    private static final int BYTES_TOKEN = 32;
+
+    /**
+     * Milisegundos que se espera el token al abrir una conexión. Sin este límite, conexiones que nunca se
+     * autentican ocuparían todos los hilos del servidor.
+     */
+    static final int ESPERA_TOKEN_MS = 5_000;
+
+    private final ServerSocket socket;
+    private final ExecutorService conexiones;
+    private final File archivoToken;
+    private final byte[] token;
+    private final ProcesadorEntrada validador = new ProcesadorEntrada();
+    private final Map<String, Latencias> latencias = new TreeMap<>();
+
+    /**
+     * Constructor. Abre el socket en la interfaz loopback y escribe el token en {@link #archivoToken(int)}.
+     * @param puerto Puerto donde se atienden las solicitudes (0 para uno libre).
+     * @param hilos Número de conexiones que se atienden al mismo tiempo (sin efecto con hilos virtuales).
+     * @throws IOException Si no se puede abrir el socket o escribir el token.
+     */
+    public ServidorShamir(int puerto, int hilos) throws IOException {
+        this(puerto, hilos, null);
+    }
+
+    /**
+     * Constructor. Abre el socket en la interfaz loopback y escribe el token en el archivo indicado.
+     * @param puerto Puerto donde se atienden las solicitudes (0 para uno libre).
+     * @param hilos Número de conexiones que se atienden al mismo tiempo (sin efecto con hilos virtuales).
+     * @param archivoToken Archivo donde se escribe el token, o null para {@link #archivoToken(int)}.
+     * @throws IOException Si no se puede abrir el socket o escribir el token.
+     */
+    public ServidorShamir(int puerto, int hilos, File archivoToken) throws IOException {
+        this.socket = new ServerSocket(puerto, 50, InetAddress.getLoopbackAddress());
+        try {
+            this.archivoToken = archivoToken != null ? archivoToken : archivoToken(socket.getLocalPort());
+            byte[] aleatorio = new byte[BYTES_TOKEN];
+            new SecureRandom().nextBytes(aleatorio);
+            this.token = hexadecimal(aleatorio).getBytes(StandardCharsets.US_ASCII);
+            escribirToken(this.archivoToken.toPath(), token);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+        this.conexiones = Hilos.ejecutorConexiones(hilos);
+    }
+
+    /**
+     * Archivo donde el servidor que escucha en un puerto deja su token: .shamir-servidor-&lt;puerto&gt;.token en
+     * el directorio del usuario.
+     * @param puerto Puerto del servidor.
+     * @return el archivo del token.
+     */
+    public static File archivoToken(int puerto) {
+        return new File(System.getProperty("user.home"), ".shamir-servidor-" + puerto + ".token");
+    }
+
+    /**
+     * Crea el archivo del token con permisos de lectura y escritura solo para el dueño. Un archivo anterior se
+     * borra y el nuevo se crea con los permisos desde el principio, para que nunca sea legible por otros.
+     */
+    private static void escribirToken(Path ruta, byte[] token) throws IOException {
+        Files.deleteIfExists(ruta);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(ruta, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            File archivo = Files.createFile(ruta).toFile();
+            archivo.setReadable(false, false);
+            archivo.setWritable(false, false);
+            archivo.setReadable(true, true);
+            archivo.setWritable(true, true);
+        }
+        Files.write(ruta, token);
+    }
+
+    /**
+     * @return el archivo donde está el token de este servidor.
+     */
+    public File getArchivoToken() {
+        return archivoToken;
+    }
+
+    /**
+     * @return el puerto donde escucha el servidor.
+     */
+    public int getPuerto() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Acepta conexiones hasta que se cierre el servidor. Cada conexión se atiende en el conjunto de hilos.
+     */
+    public void atender() {
+        while (!socket.isClosed()) {
+            try {
+                Socket conexion = socket.accept();
+                conexiones.execute(() -> atender(conexion));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Error al aceptar una conexión: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Cierra el socket y deja de atender conexiones.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        conexiones.shutdownNow();
+        Files.deleteIfExists(archivoToken.toPath());
+    }
+
+    /**
+     * Atiende todas las solicitudes de una conexión, si empieza con el token.
+     */
+    private void atender(Socket conexion) {
+        try {
+            conexion.setSoTimeout(ESPERA_TOKEN_MS);
+            BufferedReader entrada = new BufferedReader(new InputStreamReader(conexion.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter salida = new PrintWriter(new OutputStreamWriter(conexion.getOutputStream(), StandardCharsets.UTF_8));
+            String linea = leerToken(entrada);
+            if (linea == null || !MessageDigest.isEqual(token, linea.getBytes(StandardCharsets.US_ASCII))) {
+                salida.print("ERROR\tToken inválido.\n\n");
+                salida.flush();
+                return;
+            }
+            conexion.setSoTimeout(0);
+            while ((linea = entrada.readLine()) != null) {
+                String[] args = linea.split("\t");
+                long inicio = System.nanoTime();
+                List<String> respuesta;
+                try {
+                    respuesta = ejecutar(args, entrada);
+                    respuesta.add(0, "OK");
+                } catch (Exception e) {
+                    respuesta = new ArrayList<>();
+                    respuesta.add("ERROR\t" + String.valueOf(e.getMessage()).replace('\n', ' '));
+                }
+                if (OPERACIONES.contains(args[0])) {
+                    latencias(args[0]).registrar(System.nanoTime() - inicio);
+                }
+                for (String renglon : respuesta) {
+                    salida.print(renglon);
+                    salida.print('\n');
+                }
+                salida.print('\n');
+                salida.flush();
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("Conexión cerrada: no envió el token a tiempo.");
+        } catch (IOException e) {
+            System.err.println("Error en la conexión: " + e.getMessage());
+        } finally {
+            try {
+                conexion.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar la conexión: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lee la primera línea de la conexión sin pasar de la longitud del token.
+     * @return la línea, o null si la conexión se cerró antes o la línea es más larga que el token.
+     */
+    private String leerToken(BufferedReader entrada) throws IOException {
+        StringBuilder linea = new StringBuilder(token.length);
+        int caracter;
+        while ((caracter = entrada.read()) != '\n') {
+            if (caracter < 0 || linea.length() == token.length) {
+                return null;
+            }
+            linea.append((char) caracter);
+        }
+        return linea.toString();
+    }
+
+    /**
+     * Ejecuta una solicitud.
+     * @param args Argumentos con la sintaxis de la línea de comandos.
+     * @param entrada Conexión de donde se lee la contraseña, si la operación la necesita.
+     * @return las líneas de detalle de la respuesta.
+     * @throws Exception Si los parámetros no son válidos o la operación falla.
+     */
+    private List<String> ejecutar(String[] args, BufferedReader entrada) throws Exception {
+        List<String> respuesta = new ArrayList<>();
+        switch (args[0]) {
+            case "-c": {
+                byte[] contraseña = validador.verificableCifrar(args) ? SecretoShamir.secretoAleatorio()
+                                                                      : leerContraseña(entrada);
+                validador.parametrosValidosCifrar(args);
+                String base = args[1].endsWith(".frg") ? args[1].substring(0, args[1].length() - 4) : args[1];
+                int numeroTotalEvaluaciones = Integer.parseInt(args[2]);
+                int minimoEvaluaciones = Integer.parseInt(args[3]);
+                SecretoShamir.escribeArchivoConContraseñas(base, args[2], args[3], contraseña,
+                                                           validador.campoCifrar(args),
+                                                           validador.secuencialCifrar(args),
+                                                           validador.binarioCifrar(args),
+                                                           validador.verificableCifrar(args));
+                SecretKeySpec clave = AES.generarClaveAES(contraseña);
+                ContenedorAES.cifrar(clave, new File(args[4]), new File(base + ".aes"),
+                    numeroTotalEvaluaciones, minimoEvaluaciones);
+                respuesta.add(base + ".aes");
+                respuesta.add(base + ".frg");
+                if (validador.verificableCifrar(args)) {
+                    respuesta.add(base + CompromisosFeldman.EXTENSION);
+                }
+                return respuesta;
+            }
+            case "-d": {
+                boolean corregir = args.length == 4 && "--corregir".equals(args[3]);
+                esperarArgumentos(args, corregir ? 4 : 3);
+                validador.documentoContreseñasValido(args[1]);
+                File archivoCifrado = new File(args[2]);
+                File directorio = archivoCifrado.getAbsoluteFile().getParentFile();
+                AES.ClaveRecuperada clave = corregir ? AES.recuperarClaveCorrigiendo(args[1])
+                                                     : AES.recuperarClave(args[1]);
+                respuesta.add(AES.descifrar(clave, archivoCifrado, directorio, ContenedorAES.ModoES.MAPEADO));
+                return respuesta;
+            }
+            case "-dividir": {
+                byte[] contraseña = leerContraseña(entrada);
+                esperarArgumentos(args, 4);
+                validador.archivoValidoContrasenas(args[1]);
+                validador.numeroDeEvaluaciones(args[2]);
+                validador.numeroMinimoDePuntosValido(args[3], Integer.parseInt(args[2]));
+                SecretoShamir.escribeArchivoConContraseñas(args[1], args[2], args[3], contraseña, CampoFinito.P257,
+                                                           false, false, false);
+                respuesta.add(args[1].endsWith(".frg") ? args[1] : args[1] + ".frg");
+                return respuesta;
+            }
+            case "-recuperar": {
+                esperarArgumentos(args, 2);
+                validador.documentoContreseñasValido(args[1]);
+                respuesta.add(hexadecimal(SecretoShamir.recuperaSecreto(args[1])));
+                return respuesta;
+            }
+            case "-estadisticas": {
+                synchronized (latencias) {
+                    for (Map.Entry<String, Latencias> operacion : latencias.entrySet()) {
+                        respuesta.add(operacion.getKey() + "\t" + operacion.getValue().resumen());
+                    }
+                }
+                return respuesta;
+            }
+            default:
+                throw new IllegalArgumentException("Operación desconocida: " + args[0]);
+        }
+    }
+
+    private static void esperarArgumentos(String[] args, int numero) {
+        if (args.length != numero) {
+            throw new IllegalArgumentException("Parámetros insuficientes o demasiados para la operación " + args[0] + ".");
+        }
+    }
+
+    private static byte[] leerContraseña(BufferedReader entrada) throws IOException {
+        String linea = entrada.readLine();
+        if (linea == null) {
+            throw new IllegalArgumentException("No se recibió la contraseña.");
+        }
+        return desdeHexadecimal(linea);
+    }
+
+    private Latencias latencias(String operacion) {
+        synchronized (latencias) {
+            return latencias.computeIfAbsent(operacion, o -> new Latencias());
+        }
+    }
+
+    /**
+     * Convierte bytes a hexadecimal.
+     */
+    static String hexadecimal(byte[] bytes) {
+        StringBuilder texto = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            texto.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Convierte hexadecimal a bytes.
+     */
+    static byte[] desdeHexadecimal(String texto) {
+        if (texto.length() % 2 != 0) {
+            throw new IllegalArgumentException("La contraseña recibida no es hexadecimal.");
+        }
+        byte[] bytes = new byte[texto.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int alto = Character.digit(texto.charAt(2 * i), 16);
+            int bajo = Character.digit(texto.charAt(2 * i + 1), 16);
+            if (alto < 0 || bajo < 0) {
+                throw new IllegalArgumentException("La contraseña recibida no es hexadecimal.");
+            }
+            bytes[i] = (byte) ((alto << 4) | bajo);
+        }
+        return bytes;
+    }
+
+    /**
+     * Latencias de una operación. Conserva las últimas {@link #MUESTRAS} en un arreglo circular.
+     */
+    static final class Latencias {
+        private final long[] muestras = new long[MUESTRAS];
+        private long total;
+
+        synchronized void registrar(long nanos) {
+            muestras[(int) (total % MUESTRAS)] = nanos;
+            total++;
+        }
+
+        /**
+         * @return el percentil p (0 a 100) en nanosegundos de las muestras conservadas, o 0 si no hay muestras.
+         */
+        synchronized long percentil(double p) {
+            int cuantas = (int) Math.min(total, MUESTRAS);
+            if (cuantas == 0) {
+                return 0;
+            }
+            long[] ordenadas = Arrays.copyOf(muestras, cuantas);
+            Arrays.sort(ordenadas);
+            int indice = (int) Math.ceil(p / 100 * cuantas) - 1;
+            return ordenadas[Math.max(0, Math.min(cuantas - 1, indice))];
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        String resumen() {
+            return String.format("n=%d\tp50=%.3f ms\tp90=%.3f ms\tp99=%.3f ms\tmax=%.3f ms", total(),
+                percentil(50) / 1e6, percentil(90) / 1e6, percentil(99) / 1e6, percentil(100) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package mx.unam.criptografia;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Crea los ejecutores de los comandos concurrentes (servidor y lotes) con hilos virtuales.
+ * Esta versión solo se compila con el perfil java21 y se guarda en META-INF/versions/21 del JAR.
+ */
+final class Hilos {
+
+    private Hilos() {
+    }
+
+    /**
+     * Ejecutor para atender conexiones del servidor: un hilo virtual por conexión, sin límite.
+     * Las recuperaciones pasan casi todo el tiempo esperando E/S, así que no hace falta dimensionar un conjunto.
+     * @param hilos Se ignora.
+     * @return un ejecutor con un hilo virtual por tarea.
+     */
+    static ExecutorService ejecutorConexiones(int hilos) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shamir-conexion-", 0).factory());
+    }
+
+    /**
+     * Ejecutor para procesar los archivos de un lote. Se mantiene el límite de archivos simultáneos, que acota
+     * la memoria y los descriptores abiertos, pero cada archivo corre en un hilo virtual.
+     * @param hilos Número de archivos que se procesan al mismo tiempo.
+     * @return un conjunto fijo de hilos virtuales.
+     */
+    static ExecutorService ejecutorLote(int hilos) {
+        return Executors.newFixedThreadPool(hilos, Thread.ofVirtual().name("shamir-lote-", 0).factory());
+    }
+
+    /**
+     * @return una descripción de los hilos que se usan, para los mensajes del programa.
+     */
+    static String descripcion(int hilos) {
+        return "hilos virtuales";
+    }
+}
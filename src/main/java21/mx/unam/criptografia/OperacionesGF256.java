@@ -0,0 +1,83 @@
+package mx.unam.criptografia;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Operación sobre arreglos de {@link CampoGF256} con instrucciones vectoriales.
+ * Esta versión solo se compila con el perfil java21 y se guarda en META-INF/versions/21 del JAR.
+ * El módulo jdk.incubator.vector no se carga por defecto: si la JVM no se inició con
+ * --add-modules jdk.incubator.vector, se usa la misma lectura de tabla por byte que en Java 8.
+ */
+final class OperacionesGF256 {
+
+    private static final boolean VECTORES = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private OperacionesGF256() {
+    }
+
+    /**
+     * destino[desdeDestino + i] ^= c·origen[desdeOrigen + i] para i menor a {@code longitud}.
+     */
+    static void multiplicarYAcumular(int c, byte[] origen, int desdeOrigen, byte[] destino, int desdeDestino, int longitud) {
+        int i = VECTORES ? Vectorial.multiplicarYAcumular(c, origen, desdeOrigen, destino, desdeDestino, longitud) : 0;
+        byte[] renglon = CampoGF256.renglon(c);
+        for (; i < longitud; i++) {
+            destino[desdeDestino + i] ^= renglon[origen[desdeOrigen + i] & 0xFF];
+        }
+    }
+
+    /**
+     * @return una descripción de la implementación, para los mensajes del programa.
+     */
+    static String descripcion() {
+        return VECTORES ? "vectores de " + Vectorial.ESPECIE.vectorBitSize() + " bits" : "tablas";
+    }
+
+    /**
+     * Multiplicación por una constante con dos consultas de 16 entradas por byte, como la instrucción PSHUFB:
+     * c·a = c·(a &amp; 0x0F) ^ c·(a &amp; 0xF0). Las tablas de los dos nibbles se repiten en todo el vector para que
+     * cada carril pueda elegir su entrada. La clase solo se carga si el módulo está disponible.
+     */
+    private static final class Vectorial {
+
+        static final VectorSpecies<Byte> ESPECIE = ByteVector.SPECIES_PREFERRED;
+
+        /**
+         * BAJOS[c] y ALTOS[c] tienen c·a para a = 0x00 a 0x0F y a = 0x00 a 0xF0, repetidos en todos los carriles.
+         */
+        private static final byte[][] BAJOS = new byte[256][ESPECIE.length()];
+        private static final byte[][] ALTOS = new byte[256][ESPECIE.length()];
+
+        static {
+            for (int c = 0; c < 256; c++) {
+                byte[] renglon = CampoGF256.renglon(c);
+                for (int j = 0; j < ESPECIE.length(); j++) {
+                    BAJOS[c][j] = renglon[j & 0x0F];
+                    ALTOS[c][j] = renglon[(j & 0x0F) << 4];
+                }
+            }
+        }
+
+        /**
+         * Procesa los bloques completos del tamaño del vector.
+         * @return el número de bytes procesados; el resto lo procesa el ciclo escalar.
+         */
+        static int multiplicarYAcumular(int c, byte[] origen, int desdeOrigen, byte[] destino, int desdeDestino, int longitud) {
+            int carriles = ESPECIE.length();
+            ByteVector tablaBajos = ByteVector.fromArray(ESPECIE, BAJOS[c], 0);
+            ByteVector tablaAltos = ByteVector.fromArray(ESPECIE, ALTOS[c], 0);
+            int limite = ESPECIE.loopBound(longitud);
+            for (int i = 0; i < limite; i += carriles) {
+                ByteVector a = ByteVector.fromArray(ESPECIE, origen, desdeOrigen + i);
+                ByteVector bajo = a.and((byte) 0x0F).selectFrom(tablaBajos);
+                ByteVector alto = a.lanewise(VectorOperators.LSHR, 4).selectFrom(tablaAltos);
+                ByteVector.fromArray(ESPECIE, destino, desdeDestino + i)
+                    .lanewise(VectorOperators.XOR, bajo.lanewise(VectorOperators.XOR, alto))
+                    .intoArray(destino, desdeDestino + i);
+            }
+            return limite;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para los comandos que procesan varios archivos.
+ */
+public class ComandosLoteTest extends Calificador {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private final byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+
+    public ComandosLoteTest() {
+    }
+
+    /**
+     * Crea un directorio con algunos archivos aleatorios, uno de ellos en un subdirectorio.
+     */
+    private File directorioConArchivos() throws IOException {
+        File directorio = carpeta.newFolder("documentos");
+        File subdirectorio = new File(directorio, "sub");
+        subdirectorio.mkdir();
+        Random aleatorio = new Random(7);
+        for (File archivo : new File[]{new File(directorio, "a.txt"), new File(directorio, "b.txt"), new File(subdirectorio, "c.txt")}) {
+            byte[] datos = new byte[1000 + aleatorio.nextInt(100000)];
+            aleatorio.nextBytes(datos);
+            Files.write(archivo.toPath(), datos);
+        }
+        return directorio;
+    }
+
+    @Test
+    public void testCifrarDirectorio() throws Exception {
+        inicioPrueba("cifrarDirectorio", 1);
+        File directorio = directorioConArchivos();
+        ComandoCifrarDirectorio comando = new ComandoCifrarDirectorio(directorio.getPath(), contraseña, 4, 3, null, 2, CampoFinito.P257);
+        List<ComandoCifrarDirectorio.Resultado> resultados = comando.cifrarTodos();
+        assertEquals(3, resultados.size());
+
+        SecretKeySpec clave = AES.generarClaveAES(SecretoShamir.recuperaSecreto(new File(directorio, "a.txt.frg").getPath()));
+        for (ComandoCifrarDirectorio.Resultado resultado : resultados) {
+            assertTrue(resultado.detalle, resultado.exitoso);
+            File descifrado = carpeta.newFile();
+            try (FileChannel canal = FileChannel.open(new File(resultado.archivo + ".aes").toPath(), StandardOpenOption.READ)) {
+                ContenedorAES.descifrar(clave, canal, ContenedorAES.leerEncabezado(canal), descifrado);
+            }
+            assertArrayEquals(Files.readAllBytes(resultado.archivo), Files.readAllBytes(descifrado.toPath()));
+        }
+        List<String> manifiesto = Files.readAllLines(
+            new File(directorio, ComandoCifrarDirectorio.NOMBRE_MANIFIESTO).toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, manifiesto.size());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCifrarDirectorioErrorFragmentos() throws Exception {
+        inicioPrueba("cifrarDirectorio reporta el .frg que no se pudo escribir", 1);
+        File directorio = directorioConArchivos();
+        // Un directorio con el nombre del .frg impide escribirlo
+        assertTrue(new File(directorio, "b.txt.frg").mkdir());
+        List<ComandoCifrarDirectorio.Resultado> resultados =
+            new ComandoCifrarDirectorio(directorio.getPath(), contraseña, 4, 3, null, 2, CampoFinito.P257).cifrarTodos();
+        assertEquals(3, resultados.size());
+        for (ComandoCifrarDirectorio.Resultado resultado : resultados) {
+            boolean esB = resultado.archivo.getFileName().toString().equals("b.txt");
+            assertEquals(resultado.detalle, !esB, resultado.exitoso);
+        }
+        assertFalse(new File(directorio, "b.txt.aes").exists());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCifrarDirectorioSecretoCompartido() throws Exception {
+        inicioPrueba("cifrarDirectorio con secreto compartido", 1);
+        File directorio = directorioConArchivos();
+        String compartido = new File(carpeta.getRoot(), "compartido").getPath();
+        ComandoCifrarDirectorio comando = new ComandoCifrarDirectorio(directorio.getPath(), contraseña, 4, 3, compartido, 2, CampoFinito.P257);
+        List<ComandoCifrarDirectorio.Resultado> resultados = comando.cifrarTodos();
+        assertEquals(3, resultados.size());
+        for (ComandoCifrarDirectorio.Resultado resultado : resultados) {
+            assertTrue(resultado.detalle, resultado.exitoso);
+            assertFalse(new File(resultado.archivo + ".frg").exists());
+        }
+        assertTrue(new File(compartido + ".frg").exists());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testDescifrarLote() throws Exception {
+        inicioPrueba("descifrar varios archivos con un solo .frg", 1);
+        File directorio = directorioConArchivos();
+        String compartido = new File(carpeta.getRoot(), "compartido").getPath();
+        List<ComandoCifrarDirectorio.Resultado> cifrados =
+            new ComandoCifrarDirectorio(directorio.getPath(), contraseña, 4, 3, compartido, 2, CampoFinito.P257).cifrarTodos();
+        byte[][] originales = new byte[cifrados.size()][];
+        for (int i = 0; i < cifrados.size(); i++) {
+            originales[i] = Files.readAllBytes(cifrados.get(i).archivo);
+            Files.delete(cifrados.get(i).archivo);
+        }
+
+        List<String> nombres = Arrays.asList(new File(directorio, "*.aes").getPath(),
+            new File(directorio, "sub/c.txt.aes").getPath(), new File(directorio, "falta.aes").getPath());
+        List<ComandoDescifrarLote.Resultado> resultados =
+            new ComandoDescifrarLote(compartido + ".frg", nombres, 2).descifrarTodos();
+        assertEquals(4, resultados.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(resultados.get(i).detalle, resultados.get(i).exitoso);
+            assertArrayEquals(originales[i], Files.readAllBytes(cifrados.get(i).archivo));
+        }
+        assertFalse(resultados.get(3).exitoso);
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testDispersion() throws Exception {
+        inicioPrueba("cifrar y dispersar en piezas, reconstruir con t piezas", 1);
+        Random aleatorio = new Random(14);
+        for (int tamano : new int[]{0, 1, 6, 3 * DispersionIDA.TAMANO_FRANJA + 17}) {
+            File archivo = carpeta.newFile();
+            byte[] datos = new byte[tamano];
+            aleatorio.nextBytes(datos);
+            Files.write(archivo.toPath(), datos);
+            List<File> piezas = DispersionIDA.dispersar(archivo, 5, 3, 2);
+            assertEquals(DispersionIDA.TAMANO_ENCABEZADO + (tamano + 2) / 3, piezas.get(0).length());
+            File reconstruido = carpeta.newFile();
+            DispersionIDA.reconstruir(Arrays.asList(piezas.get(4), piezas.get(1), piezas.get(3)), reconstruido, 3);
+            assertArrayEquals(datos, Files.readAllBytes(reconstruido.toPath()));
+        }
+
+        File claro = new File(carpeta.newFolder("claro"), "documento.txt");
+        byte[] documento = new byte[200000];
+        aleatorio.nextBytes(documento);
+        Files.write(claro.toPath(), documento);
+        String base = new File(carpeta.newFolder("piezas"), "documento").getPath();
+        List<File> piezas = new ComandoCifrarDisperso(base, claro.getPath(), contraseña, 4, 2, 2, CampoFinito.P257)
+            .cifrarYDispersar();
+        assertEquals(4, piezas.size());
+        assertFalse(new File(base + ".aes").exists());
+        String descifrado = new ComandoDescifrarDisperso(base + ".frg",
+            Arrays.asList(piezas.get(3).getPath(), piezas.get(0).getPath()), 2).reconstruirYDescifrar();
+        assertTrue(descifrado, descifrado.startsWith(new File(new File(base).getParentFile(), "documento.txt").getPath()));
+        assertArrayEquals(documento, Files.readAllBytes(new File(new File(base).getParentFile(), "documento.txt").toPath()));
+        agregaPuntos(1);
+        aprobada();
+    }
+}
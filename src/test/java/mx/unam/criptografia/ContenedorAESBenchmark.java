@@ -0,0 +1,88 @@
+package mx.unam.criptografia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara los modos de entrada/salida del formato por bloques: búferes del heap (la lectura y escritura por
+ * flujos que se usaba antes de mapear la entrada), entrada mapeada en memoria con salida en búferes directos y
+ * el pipeline de tres etapas, que es el modo que usan -c y -d desde la línea de comandos.
+ *
+ * Se ejecuta con: mvn test -Pbenchmark -Djmh.filtro=ContenedorAESBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContenedorAESBenchmark {
+
+    @Param({"BUFERES", "MAPEADO", "PIPELINE"})
+    public ContenedorAES.ModoES modo;
+
+    @Param({"67108864"})
+    public int tamano;
+
+    private final SecretKeySpec clave = new SecretKeySpec(ProcesadorContraseña.getSHA256("hola"), "AES");
+    private File carpeta;
+    private File claro;
+    private File cifrado;
+    private File descifrado;
+    private File medicion;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        carpeta = Files.createTempDirectory("contenedor-aes").toFile();
+        claro = new File(carpeta, "claro.txt");
+        cifrado = new File(carpeta, "claro.aes");
+        descifrado = new File(carpeta, "descifrado.txt");
+        medicion = new File(carpeta, "medicion.aes");
+        byte[] datos = new byte[tamano];
+        new Random(1).nextBytes(datos);
+        Files.write(claro.toPath(), datos);
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3, modo);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        claro.delete();
+        cifrado.delete();
+        descifrado.delete();
+        medicion.delete();
+        carpeta.delete();
+    }
+
+    @Benchmark
+    public void cifrar() throws IOException {
+        ContenedorAES.cifrar(clave, claro, medicion, 5, 3, modo);
+    }
+
+    @Benchmark
+    public void descifrar() throws IOException {
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            ContenedorAES.descifrar(clave, canal, encabezado, descifrado, modo);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de pruebas unitarias para el formato cifrado por bloques.
+ */
+public class ContenedorAESTest extends Calificador {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private final SecretKeySpec clave = new SecretKeySpec(ProcesadorContraseña.getSHA256("hola"), "AES");
+
+    public ContenedorAESTest() {
+    }
+
+    /**
+     * Crea un archivo con datos aleatorios.
+     */
+    private File archivoAleatorio(String nombre, int tamano) throws IOException {
+        byte[] datos = new byte[tamano];
+        new Random(tamano).nextBytes(datos);
+        File archivo = carpeta.newFile(nombre);
+        Files.write(archivo.toPath(), datos);
+        return archivo;
+    }
+
+    /**
+     * Cifra y descifra un archivo, y regresa el resultado descifrado.
+     */
+    private byte[] idaYVuelta(File claro, File cifrado) throws IOException {
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3);
+        return descifrar(claro, cifrado);
+    }
+
+    /**
+     * Descifra un archivo y regresa el resultado.
+     */
+    private byte[] descifrar(File claro, File cifrado) throws IOException {
+        File descifrado = new File(carpeta.getRoot(), "descifrado.txt");
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            assertNotNull(encabezado);
+            assertEquals(5, encabezado.numeroTotalEvaluaciones);
+            assertEquals(3, encabezado.minimoEvaluaciones);
+            assertEquals(claro.getName(), encabezado.nombreArchivoClaro);
+            ContenedorAES.descifrar(clave, canal, encabezado, descifrado);
+        }
+        return Files.readAllBytes(descifrado.toPath());
+    }
+
+    @Test
+    public void testCifrarDescifrarVariosBloques() throws IOException {
+        inicioPrueba("cifrar/descifrar varios bloques", 1);
+        File claro = archivoAleatorio("claro.txt", 3 * ContenedorAES.TAMANO_BLOQUE + 123);
+        File cifrado = new File(carpeta.getRoot(), "claro.aes");
+        assertArrayEquals(Files.readAllBytes(claro.toPath()), idaYVuelta(claro, cifrado));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testModosES() throws IOException {
+        inicioPrueba("modos de entrada/salida", 1);
+        File claro = archivoAleatorio("modos.txt", 5 * ContenedorAES.TAMANO_BLOQUE + 9);
+        byte[] original = Files.readAllBytes(claro.toPath());
+        for (ContenedorAES.ModoES cifrado : ContenedorAES.ModoES.values()) {
+            File archivoCifrado = new File(carpeta.getRoot(), "modos-" + cifrado + ".aes");
+            ContenedorAES.cifrar(clave, claro, archivoCifrado, 5, 3, cifrado);
+            for (ContenedorAES.ModoES descifrado : ContenedorAES.ModoES.values()) {
+                File archivoDescifrado = new File(carpeta.getRoot(), "modos-" + cifrado + "-" + descifrado + ".txt");
+                try (FileChannel canal = FileChannel.open(archivoCifrado.toPath(), StandardOpenOption.READ)) {
+                    ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+                    ContenedorAES.descifrar(clave, canal, encabezado, archivoDescifrado, descifrado);
+                }
+                assertArrayEquals(original, Files.readAllBytes(archivoDescifrado.toPath()));
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testPipeline() throws IOException {
+        inicioPrueba("pipeline con pocos búferes", 1);
+        File claro = archivoAleatorio("pipeline.txt", 9 * ContenedorAES.TAMANO_BLOQUE + 1);
+        File cifrado = new File(carpeta.getRoot(), "pipeline.aes");
+        PipelineBloques.Configuracion configuracion = new PipelineBloques.Configuracion(3, 1, 2);
+        PipelineBloques.Estadisticas estadisticas =
+            ContenedorAES.cifrar(clave, claro, cifrado, 5, 3, configuracion);
+        assertEquals(10, estadisticas.lectura.bloques());
+        assertEquals(10, estadisticas.cifrado.bloques());
+        assertEquals(10, estadisticas.escritura.bloques());
+        assertNotNull(estadisticas.cuelloDeBotella());
+
+        File descifrado = new File(carpeta.getRoot(), "pipeline-descifrado.txt");
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            ContenedorAES.descifrar(clave, canal, encabezado, descifrado, configuracion);
+        }
+        assertArrayEquals(Files.readAllBytes(claro.toPath()), Files.readAllBytes(descifrado.toPath()));
+
+        try (RandomAccessFile archivo = new RandomAccessFile(cifrado, "rw")) {
+            archivo.seek(archivo.length() / 2);
+            int valor = archivo.read();
+            archivo.seek(archivo.length() / 2);
+            archivo.write(valor ^ 1);
+        }
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            ContenedorAES.descifrar(clave, canal, encabezado, descifrado, configuracion);
+            fail("El pipeline no reportó la alteración del archivo cifrado.");
+        } catch (IllegalArgumentException e) {
+            agregaPuntos(1);
+            aprobada();
+        }
+    }
+
+    @Test
+    public void testPipelineConservaFallo() throws Exception {
+        inicioPrueba("pipeline reporta el error original de un trabajador", 1);
+        int tamano = 1024;
+        File entrada = archivoAleatorio("fallo.txt", 8 * tamano);
+        CountDownLatch escribiendo = new CountDownLatch(1);
+        IllegalStateException inyectado = new IllegalStateException("fallo inyectado");
+        PipelineBloques.Trabajo trabajo = new PipelineBloques.Trabajo() {
+            @Override
+            public long posicion(long indice) {
+                return indice * tamano;
+            }
+
+            @Override
+            public int longitud(long indice) {
+                return tamano;
+            }
+
+            @Override
+            public void procesar(long indice, ByteBuffer origen, ByteBuffer destino) {
+                if (indice == 1) {
+                    // Falla mientras el escritor está escribiendo el bloque 0
+                    try {
+                        escribiendo.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw inyectado;
+                }
+                destino.put(origen).flip();
+            }
+        };
+        try (FileChannel lectura = FileChannel.open(entrada.toPath(), StandardOpenOption.READ);
+             FileChannel escritura = new EscrituraHastaInterrupcion(escribiendo)) {
+            new PipelineBloques(new PipelineBloques.Configuracion(4, 2, 2))
+                .ejecutar(lectura, escritura, 0, 7, tamano, tamano, trabajo);
+            fail("El pipeline no reportó el fallo del trabajador.");
+        } catch (IllegalStateException e) {
+            assertSame(inyectado, e);
+        }
+        assertFalse(Thread.interrupted());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    /**
+     * Canal de salida cuya primera escritura no termina hasta que se interrumpe al hilo que escribe, y que deja
+     * la interrupción pendiente, como cuando fallar() interrumpe al escritor justo después de una escritura.
+     */
+    private static final class EscrituraHastaInterrupcion extends FileChannel {
+        private final CountDownLatch escribiendo;
+
+        EscrituraHastaInterrupcion(CountDownLatch escribiendo) {
+            this.escribiendo = escribiendo;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (escribiendo.getCount() > 0) {
+                escribiendo.countDown();
+                long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (!Thread.currentThread().isInterrupted() && System.nanoTime() < limite) {
+                    Thread.yield();
+                }
+            }
+            int escritos = src.remaining();
+            src.position(src.limit());
+            return escritos;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() {
+            return 0;
+        }
+
+        @Override
+        public FileChannel position(long newPosition) {
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public FileChannel truncate(long size) {
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) {
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() {
+        }
+    }
+
+    @Test
+    public void testCifrarDescifrarBloquesExactos() throws IOException {
+        inicioPrueba("cifrar/descifrar bloques exactos", 1);
+        File claro = archivoAleatorio("exacto.txt", 2 * ContenedorAES.TAMANO_BLOQUE);
+        File cifrado = new File(carpeta.getRoot(), "exacto.aes");
+        assertArrayEquals(Files.readAllBytes(claro.toPath()), idaYVuelta(claro, cifrado));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testDescifrarRango() throws IOException {
+        inicioPrueba("descifrarRango", 1);
+        int bloque = ContenedorAES.TAMANO_BLOQUE;
+        File claro = archivoAleatorio("rango.txt", 4 * bloque + 77);
+        File cifrado = new File(carpeta.getRoot(), "rango.aes");
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3);
+        byte[] original = Files.readAllBytes(claro.toPath());
+        long[][] rangos = {
+            {0, 10}, {bloque - 5, 10}, {2L * bloque + 3, 1024}, {4L * bloque, 77}, {4L * bloque + 70, 1000}, {5, 0},
+            {bloque + 1, Long.MAX_VALUE}
+        };
+        File parcial = new File(carpeta.getRoot(), "rango.txt.rango");
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            assertEquals(original.length, encabezado.tamanoClaro(canal.size()));
+            for (ContenedorAES.ModoES modo : ContenedorAES.ModoES.values()) {
+                for (long[] rango : rangos) {
+                    ContenedorAES.descifrarRango(clave, canal, encabezado, rango[0], rango[1], parcial, modo);
+                    int fin = (int) (rango[0] + Math.min(rango[1], original.length - rango[0]));
+                    assertArrayEquals(Arrays.copyOfRange(original, (int) rango[0], fin), Files.readAllBytes(parcial.toPath()));
+                }
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testDetectaAlteracion() throws IOException {
+        inicioPrueba("detecta alteración", 1);
+        File claro = archivoAleatorio("alterado.txt", ContenedorAES.TAMANO_BLOQUE + 10);
+        File cifrado = new File(carpeta.getRoot(), "alterado.aes");
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3);
+        try (RandomAccessFile archivo = new RandomAccessFile(cifrado, "rw")) {
+            archivo.seek(archivo.length() - 20);
+            int valor = archivo.read();
+            archivo.seek(archivo.length() - 20);
+            archivo.write(valor ^ 1);
+        }
+        try {
+            descifrar(claro, cifrado);
+        } catch (IllegalArgumentException e) {
+            agregaPuntos(1);
+            aprobada();
+            return;
+        }
+        fail("No se detectó la alteración del archivo cifrado.");
+    }
+
+    @Test
+    public void testDetectaTruncamiento() throws IOException {
+        inicioPrueba("detecta truncamiento", 1);
+        File claro = archivoAleatorio("truncado.txt", 2 * ContenedorAES.TAMANO_BLOQUE + 10);
+        File cifrado = new File(carpeta.getRoot(), "truncado.aes");
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3);
+        File descifrado = new File(carpeta.getRoot(), "truncado-descifrado.txt");
+        try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+            canal.truncate(encabezado.longitud() + 2L * encabezado.tamanoBloqueCifrado());
+            ContenedorAES.descifrar(clave, canal, encabezado, descifrado);
+        } catch (IllegalArgumentException e) {
+            agregaPuntos(1);
+            aprobada();
+            return;
+        }
+        fail("No se detectó el truncamiento del archivo cifrado.");
+    }
+
+    @Test
+    public void testClaveEquivocadaConservaArchivo() throws IOException {
+        inicioPrueba("clave equivocada conserva el archivo existente", 1);
+        File claro = archivoAleatorio("conservado.txt", 2 * ContenedorAES.TAMANO_BLOQUE + 10);
+        File cifrado = new File(carpeta.getRoot(), "conservado.aes");
+        ContenedorAES.cifrar(clave, claro, cifrado, 5, 3);
+        byte[] original = Files.readAllBytes(claro.toPath());
+        SecretKeySpec otraClave = new SecretKeySpec(ProcesadorContraseña.getSHA256("adios"), "AES");
+        for (ContenedorAES.ModoES modo : ContenedorAES.ModoES.values()) {
+            try (FileChannel canal = FileChannel.open(cifrado.toPath(), StandardOpenOption.READ)) {
+                ContenedorAES.Encabezado encabezado = ContenedorAES.leerEncabezado(canal);
+                ContenedorAES.descifrar(otraClave, canal, encabezado, claro, modo);
+                fail("Se descifró con una clave equivocada (" + modo + ").");
+            } catch (IllegalArgumentException e) {
+                assertArrayEquals(original, Files.readAllBytes(claro.toPath()));
+            }
+        }
+        // No quedan archivos temporales
+        assertEquals(2, carpeta.getRoot().list().length);
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testFormatoAnteriorSinEncabezado() throws IOException {
+        inicioPrueba("formato anterior sin encabezado", 1);
+        File anterior = carpeta.newFile("anterior.aes");
+        Files.write(anterior.toPath(), new byte[]{5, 3, 4, 'a', '.', 't', 'x', 1, 2, 3});
+        try (FileChannel canal = FileChannel.open(anterior.toPath(), StandardOpenOption.READ)) {
+            assertNull(ContenedorAES.leerEncabezado(canal));
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+}
@@ -0,0 +1,63 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para la aritmética módulo el primo de Mersenne 2^521 - 1.
+ */
+public class ElementoM521Test extends Calificador {
+
+    private static final BigInteger P = ElementoM521.MODULO;
+
+    public ElementoM521Test() {
+    }
+
+    /**
+     * Valores aleatorios menores a p, junto con los casos de borde.
+     */
+    private static BigInteger[] valores() {
+        Random aleatorio = new Random(521);
+        BigInteger[] valores = new BigInteger[200];
+        valores[0] = BigInteger.ZERO;
+        valores[1] = BigInteger.ONE;
+        valores[2] = P.subtract(BigInteger.ONE);
+        valores[3] = BigInteger.ONE.shiftLeft(520);
+        valores[4] = BigInteger.ONE.shiftLeft(512).subtract(BigInteger.ONE);
+        for (int i = 5; i < valores.length; i++) {
+            valores[i] = new BigInteger(521, aleatorio).mod(P);
+        }
+        return valores;
+    }
+
+    @Test
+    public void testOperaciones() {
+        inicioPrueba("operaciones del campo M521", 1);
+        BigInteger[] valores = valores();
+        ElementoM521 a = new ElementoM521();
+        ElementoM521 b = new ElementoM521();
+        for (int i = 0; i < valores.length; i++) {
+            BigInteger x = valores[i];
+            BigInteger y = valores[(7 * i + 3) % valores.length];
+            int entero = i == 0 ? Integer.MAX_VALUE : i;
+            b.asignar(y);
+            assertEquals(x, a.asignar(x).aBigInteger());
+            assertEquals(x.add(y).mod(P), a.asignar(x).sumar(b).aBigInteger());
+            assertEquals(x.subtract(y).mod(P), a.asignar(x).restar(b).aBigInteger());
+            assertEquals(x.multiply(y).mod(P), a.asignar(x).multiplicar(b).aBigInteger());
+            assertEquals(x.multiply(x).mod(P), a.asignar(x).multiplicar(a).aBigInteger());
+            assertEquals(x.multiply(BigInteger.valueOf(entero)).mod(P), a.asignar(x).multiplicar(entero).aBigInteger());
+            assertEquals(x.negate().mod(P), a.asignar(x).negar().aBigInteger());
+            if (x.signum() != 0) {
+                assertEquals(x.modInverse(P), a.asignar(x).invertir().aBigInteger());
+            }
+        }
+        assertTrue(a.asignar(P.subtract(BigInteger.ONE)).sumar(b.asignarUno()).esCero());
+        assertEquals(BigInteger.TEN, new ElementoM521(P.add(BigInteger.TEN)).aBigInteger());
+        agregaPuntos(1);
+        aprobada();
+    }
+}
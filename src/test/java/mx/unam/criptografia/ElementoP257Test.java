@@ -0,0 +1,82 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para la aritmética del campo con palabras de tamaño fijo.
+ */
+public class ElementoP257Test extends Calificador {
+
+    private static final BigInteger P = ElementoP257.MODULO;
+
+    public ElementoP257Test() {
+    }
+
+    /**
+     * Valores aleatorios menores a p, junto con los casos de borde.
+     */
+    private static BigInteger[] valores() {
+        Random aleatorio = new Random(257);
+        BigInteger[] valores = new BigInteger[200];
+        valores[0] = BigInteger.ZERO;
+        valores[1] = BigInteger.ONE;
+        valores[2] = P.subtract(BigInteger.ONE);
+        valores[3] = BigInteger.ONE.shiftLeft(256);
+        for (int i = 4; i < valores.length; i++) {
+            valores[i] = new BigInteger(257, aleatorio).mod(P);
+        }
+        return valores;
+    }
+
+    @Test
+    public void testOperaciones() {
+        inicioPrueba("operaciones del campo", 1);
+        BigInteger[] valores = valores();
+        ElementoP257 a = new ElementoP257();
+        ElementoP257 b = new ElementoP257();
+        for (int i = 0; i < valores.length; i++) {
+            BigInteger x = valores[i];
+            BigInteger y = valores[(7 * i + 3) % valores.length];
+            b.asignar(y);
+            assertEquals(x, a.asignar(x).aBigInteger());
+            assertEquals(x.add(y).mod(P), a.asignar(x).sumar(b).aBigInteger());
+            assertEquals(x.subtract(y).mod(P), a.asignar(x).restar(b).aBigInteger());
+            assertEquals(x.multiply(y).mod(P), a.asignar(x).multiplicar(b).aBigInteger());
+            assertEquals(x.multiply(x).mod(P), a.asignar(x).multiplicar(a).aBigInteger());
+            assertEquals(x.multiply(BigInteger.valueOf(i)).mod(P), a.asignar(x).multiplicar(i).aBigInteger());
+            assertEquals(x.negate().mod(P), a.asignar(x).negar().aBigInteger());
+            if (x.signum() != 0) {
+                assertEquals(x.modInverse(P), a.asignar(x).invertir().aBigInteger());
+            }
+        }
+        assertEquals(BigInteger.ONE, ElementoP257.uno().aBigInteger());
+        assertEquals(BigInteger.TEN, new ElementoP257(P.add(BigInteger.TEN)).aBigInteger());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testHorner() {
+        inicioPrueba("evaluaPolinomioHorner en el campo", 1);
+        BigInteger[] valores = valores();
+        List<ElementoP257> coeficientes = new ArrayList<>();
+        List<BigInteger> lista = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            coeficientes.add(new ElementoP257(valores[i + 4]));
+            lista.add(valores[i + 4]);
+        }
+        ElementoP257 resultado = new ElementoP257();
+        for (BigInteger x : valores) {
+            SecretoShamir.evaluaPolinomioHorner(coeficientes, new ElementoP257(x), resultado);
+            assertEquals(SecretoShamir.evaluaPolinomioHorner(lista, x).mod(P), resultado.aBigInteger());
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+}
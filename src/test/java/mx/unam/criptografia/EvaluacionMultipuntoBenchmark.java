@@ -0,0 +1,78 @@
+package mx.unam.criptografia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la evaluación de n puntos con Horner en el campo contra el árbol de subproductos de
+ * {@link EvaluacionMultipunto}, para ubicar {@link SecretoShamir#UMBRAL_MULTIPUNTO}. Cada evaluación tarda
+ * segundos, así que se mide una sola ejecución por iteración.
+ *
+ * Se ejecuta con: mvn test -Pbenchmark -Djmh.filtro=EvaluacionMultipuntoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class EvaluacionMultipuntoBenchmark {
+
+    @Param({"20000", "100000"})
+    public int n;
+
+    @Param({"256", "1024", "4096"})
+    public int t;
+
+    private List<BigInteger> coeficientes;
+    private List<BigInteger> xs;
+    private List<ElementoP257> coeficientesCampo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(1);
+        coeficientes = new ArrayList<>();
+        coeficientesCampo = new ArrayList<>();
+        for (int i = 0; i < t; i++) {
+            BigInteger coeficiente = new BigInteger(128, random);
+            coeficientes.add(coeficiente);
+            coeficientesCampo.add(new ElementoP257(coeficiente));
+        }
+        xs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            xs.add(new BigInteger(100, random));
+        }
+    }
+
+    @Benchmark
+    public BigInteger[] horner() {
+        BigInteger[] valores = new BigInteger[n];
+        ElementoP257 x = new ElementoP257();
+        ElementoP257 y = new ElementoP257();
+        for (int i = 0; i < n; i++) {
+            valores[i] = SecretoShamir.evaluaPolinomioHorner(coeficientesCampo, x.asignar(xs.get(i)), y).aBigInteger();
+        }
+        return valores;
+    }
+
+    @Benchmark
+    public BigInteger[] multipunto() {
+        return EvaluacionMultipunto.evaluar(coeficientes, xs, ElementoP257.MODULO);
+    }
+}
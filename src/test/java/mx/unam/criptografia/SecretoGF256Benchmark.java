@@ -0,0 +1,72 @@
+package mx.unam.criptografia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la división y la recuperación de datos byte por byte en GF(256) y la operación sobre arreglos que las
+ * domina. Con la clase de Java 21 y --add-modules jdk.incubator.vector se mide la versión vectorial.
+ *
+ * Se ejecuta con: mvn test -Pbenchmark -Djmh.filtro=SecretoGF256Benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SecretoGF256Benchmark {
+
+    @Param({"3", "8"})
+    public int t;
+
+    @Param({"16777216"})
+    public int tamano;
+
+    private byte[] datos;
+    private byte[][] fragmentos;
+    private int[] x;
+    private byte[][] elegidos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        datos = new byte[tamano];
+        new Random(1).nextBytes(datos);
+        fragmentos = SecretoGF256.dividir(datos, t + 2, t);
+        x = new int[t];
+        elegidos = new byte[t][];
+        for (int j = 0; j < t; j++) {
+            x[j] = j + 3;
+            elegidos[j] = fragmentos[j + 2];
+        }
+    }
+
+    @Benchmark
+    public byte[][] dividir() {
+        return SecretoGF256.dividir(datos, t + 2, t);
+    }
+
+    @Benchmark
+    public byte[] combinar() {
+        return SecretoGF256.combinar(x, elegidos);
+    }
+
+    @Benchmark
+    public byte[] multiplicarYAcumular() {
+        CampoGF256.multiplicarYAcumular(0x57, datos, 0, fragmentos[0], 0, tamano);
+        return fragmentos[0];
+    }
+}
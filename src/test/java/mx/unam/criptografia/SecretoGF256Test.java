@@ -0,0 +1,84 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para el esquema de Shamir byte por byte en GF(256).
+ */
+public class SecretoGF256Test extends Calificador {
+
+    public SecretoGF256Test() {
+    }
+
+    @Test
+    public void testCampo() {
+        inicioPrueba("multiplicar e inverso en GF(256)", 1);
+        for (int a = 0; a < 256; a++) {
+            for (int b = 0; b < 256; b++) {
+                // Multiplicación de polinomios con reducción por 0x11B, bit por bit
+                int producto = 0;
+                int x = a;
+                for (int y = b; y != 0; y >>= 1) {
+                    if ((y & 1) != 0) {
+                        producto ^= x;
+                    }
+                    x <<= 1;
+                    if (x > 0xFF) {
+                        x ^= 0x11B;
+                    }
+                }
+                assertEquals(producto, CampoGF256.multiplicar(a, b));
+            }
+            if (a != 0) {
+                assertEquals(1, CampoGF256.multiplicar(a, CampoGF256.inverso(a)));
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testDividirYCombinar() throws IOException {
+        inicioPrueba("dividir y combinar en GF(256)", 1);
+        Random aleatorio = new Random(256);
+        byte[] datos = new byte[3 * SecretoGF256.TAMANO_BLOQUE + 1234];
+        aleatorio.nextBytes(datos);
+
+        byte[][] fragmentos = SecretoGF256.dividir(datos, 6, 4);
+        assertArrayEquals(datos, SecretoGF256.combinar(new int[]{6, 1, 4, 3},
+            new byte[][]{fragmentos[5], fragmentos[0], fragmentos[3], fragmentos[2]}));
+        assertFalse(Arrays.equals(datos, SecretoGF256.combinar(new int[]{1, 2, 3},
+            new byte[][]{fragmentos[0], fragmentos[1], fragmentos[2]})));
+
+        ByteArrayOutputStream[] salidas = new ByteArrayOutputStream[5];
+        for (int j = 0; j < salidas.length; j++) {
+            salidas[j] = new ByteArrayOutputStream();
+        }
+        assertEquals(datos.length, SecretoGF256.dividir(new ByteArrayInputStream(datos), salidas, 3));
+        InputStream[] entradas = {
+            new ByteArrayInputStream(salidas[4].toByteArray()),
+            new ByteArrayInputStream(salidas[1].toByteArray()),
+            new ByteArrayInputStream(salidas[2].toByteArray())
+        };
+        ByteArrayOutputStream recuperados = new ByteArrayOutputStream();
+        assertEquals(datos.length, SecretoGF256.combinar(new int[]{5, 2, 3}, entradas, recuperados));
+        assertArrayEquals(datos, recuperados.toByteArray());
+
+        try {
+            SecretoGF256.combinar(new int[]{1, 1}, new byte[][]{fragmentos[0], fragmentos[0]});
+            fail("Se esperaba un error por coordenadas repetidas.");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+}
@@ -4,11 +4,22 @@ package mx.unam.criptografia;
 
 
 import static org.junit.Assert.*;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 
 /**
@@ -17,6 +28,9 @@ import java.util.List;
 public class SecretoShamirTest extends Calificador {
 
 
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
     public SecretoShamirTest() {
     }
 
@@ -43,6 +57,27 @@ public class SecretoShamirTest extends Calificador {
         aprobada();
     }
 
+    @Test
+    public void testCoeficientesUniformes() {
+        inicioPrueba("generaPolinomio usa coeficientes uniformes módulo p: t - 1 contraseñas no cumplen y ≡ s (mod x)", 1);
+        byte[] secreto = ProcesadorContraseña.getSHA256("hola");
+        BigInteger s = new BigInteger(1, secreto);
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            for (int t : new int[]{2, 3, 4}) {
+                List<BigInteger> coeficientes = SecretoShamir.generaPolinomio(t, secreto, campo);
+                for (BigInteger coeficiente : coeficientes.subList(1, t)) {
+                    assertTrue(coeficiente.compareTo(campo.modulo()) < 0);
+                }
+                assertTrue(coeficientes.get(t - 1).bitLength() > campo.modulo().bitLength() - 32);
+                for (BigInteger[] punto : SecretoShamir.generaPuntos(t - 1, coeficientes, campo)) {
+                    assertNotEquals(s.mod(punto[0]), punto[1].mod(punto[0]));
+                }
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
     @Test
     public void testEvaluaPolinomio() {
         inicioPrueba("evaluaPolinomio", 1);
@@ -91,4 +126,402 @@ public class SecretoShamirTest extends Calificador {
         agregaPuntos(1);
         aprobada();
     }
+
+    @Test
+    public void testCalcularTérminosLagrange() {
+        inicioPrueba("calcularTérminosLagrange", 1);
+        byte[] secreto = ProcesadorContraseña.getSHA256("hola");
+        for (int t : new int[]{2, 3, 4, 5, 7, 10, 16, 50, 200}) {
+            List<BigInteger[]> puntos = SecretoShamir.generaPuntos(t, SecretoShamir.generaPolinomio(t, secreto));
+            BigInteger[] terminos = SecretoShamir.calcularTérminosLagrange(puntos);
+            for (int i = 0; i < t; i++) {
+                assertEquals(SecretoShamir.calcularTérminoLagrange(i, puntos), terminos[i]);
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCampos() throws IOException {
+        inicioPrueba("archivoConContraseñas y recuperaSecreto en cada campo", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            String archivo = new File(carpeta.getRoot(), "contraseñas-" + campo.identificador()).getPath();
+            SecretoShamir.archivoConContraseñas(archivo, "5", "3", contraseña, campo);
+            assertSame(campo, SecretoShamir.obtenerCampo(archivo + ".frg"));
+            assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(archivo + ".frg"));
+        }
+        // Los archivos sin la línea del campo usan el campo original
+        assertSame(CampoFinito.P257, SecretoShamir.obtenerCampo("src/test/java/mx/unam/criptografia/archivosTests/contraseñas-4-3.frg"));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testEvaluacionMultipunto() {
+        inicioPrueba("EvaluacionMultipunto coincide con Horner", 1);
+        Random random = new Random(7);
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            for (int t : new int[]{1, 3, 40, 100}) {
+                List<BigInteger> coeficientes = new ArrayList<>();
+                for (int i = 0; i < t; i++) {
+                    coeficientes.add(new BigInteger(campo.modulo().bitLength() + 8, random));
+                }
+                List<BigInteger> xs = new ArrayList<>();
+                for (int i = 0; i < 150; i++) {
+                    xs.add(new BigInteger(100, random));
+                }
+                BigInteger[] valores = EvaluacionMultipunto.evaluar(coeficientes, xs, campo.modulo());
+                for (int i = 0; i < xs.size(); i++) {
+                    BigInteger esperado = BigInteger.ZERO;
+                    for (int k = t - 1; k >= 0; k--) {
+                        esperado = esperado.multiply(xs.get(i)).add(coeficientes.get(k)).mod(campo.modulo());
+                    }
+                    assertEquals(esperado, valores[i]);
+                }
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testGeneraPuntosEnParalelo() {
+        inicioPrueba("generaPuntos con varios bloques en paralelo", 1);
+        byte[] secreto = ProcesadorContraseña.getSHA256("hola");
+        List<BigInteger> coeficientes = SecretoShamir.generaPolinomio(5, secreto);
+        List<BigInteger[]> puntos = SecretoShamir.generaPuntos(5000, coeficientes);
+        assertEquals(5000, puntos.size());
+        Set<BigInteger> valoresX = new HashSet<>();
+        for (BigInteger[] punto : puntos) {
+            assertTrue(valoresX.add(punto[0]));
+            assertEquals(SecretoShamir.evaluaPolinomioHorner(coeficientes, punto[0]), punto[1]);
+        }
+        assertEquals(new BigInteger(1, secreto),
+                     SecretoShamir.interpolarEnCero(puntos.subList(4000, 4005), CampoFinito.P257));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testPuntosSecuenciales() {
+        inicioPrueba("archivoConContraseñas con x = 1, ..., n y recuperación con cualquier subconjunto", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        String archivo = new File(carpeta.getRoot(), "secuenciales").getPath();
+        SecretoShamir.archivoConContraseñas(archivo, "7", "4", contraseña, CampoFinito.P257, true);
+        List<BigInteger[]> puntos = SecretoShamir.obtenerPuntos(archivo + ".frg");
+        for (int i = 0; i < puntos.size(); i++) {
+            assertEquals(BigInteger.valueOf(i + 1), puntos.get(i)[0]);
+        }
+        assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(archivo + ".frg"));
+        List<BigInteger[]> subconjunto = new ArrayList<>();
+        subconjunto.add(puntos.get(6));
+        subconjunto.add(puntos.get(1));
+        subconjunto.add(puntos.get(4));
+        subconjunto.add(puntos.get(2));
+        assertEquals(new BigInteger(1, contraseña), SecretoShamir.interpolarEnCero(subconjunto, CampoFinito.P257));
+
+        // Con x pequeñas, menos de t contraseñas no deben acotar el secreto: y(1) - s = a_1 + ... + a_(t-1) mod p
+        // tiene que ser del tamaño de p, no de unos 128 bits como con coeficientes cortos
+        BigInteger s = new BigInteger(1, contraseña);
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            for (int t : new int[]{2, 3, 4}) {
+                List<BigInteger> coeficientes = SecretoShamir.generaPolinomio(t, contraseña, campo);
+                BigInteger[] primero = SecretoShamir.generaPuntosSecuenciales(t - 1, coeficientes, campo).get(0);
+                assertEquals(BigInteger.ONE, primero[0]);
+                assertTrue(primero[1].subtract(s).mod(campo.modulo()).bitLength() > 192);
+            }
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCacheLagrange() {
+        inicioPrueba("CacheLagrange reutiliza los términos del mismo conjunto de x y desaloja por LRU", 1);
+        CacheLagrange cache = new CacheLagrange(6);
+        BigInteger[] x = {BigInteger.valueOf(2), BigInteger.valueOf(5), BigInteger.valueOf(9)};
+        List<BigInteger[]> puntos = new ArrayList<>();
+        for (BigInteger xi : x) {
+            puntos.add(new BigInteger[]{xi, BigInteger.ZERO});
+        }
+        List<ElementoP257> terminos = cache.terminos(x, CampoFinito.P257,
+                                                     xs -> SecretoShamir.terminosLagrange(puntos, CampoFinito.P257));
+        assertSame(terminos, cache.terminos(x.clone(), CampoFinito.P257, xs -> { throw new AssertionError(); }));
+        assertEquals(1, cache.aciertos());
+        assertEquals(1, cache.fallos());
+
+        // Otro campo es otra entrada; al pasar de 6 términos se desaloja la menos usada
+        cache.terminos(x, CampoFinito.M521, xs -> SecretoShamir.terminosLagrange(puntos, CampoFinito.M521));
+        assertEquals(2, cache.tamano());
+        BigInteger[] otras = {BigInteger.valueOf(3)};
+        cache.terminos(otras, CampoFinito.P257, xs -> Collections.singletonList(CampoFinito.P257.uno()));
+        assertEquals(2, cache.tamano());
+        assertNotSame(terminos, cache.terminos(x, CampoFinito.P257,
+                                               xs -> SecretoShamir.terminosLagrange(puntos, CampoFinito.P257)));
+        assertEquals(4, cache.fallos());
+
+        // La recuperación usa la caché compartida sin importar el orden de los puntos
+        byte[] secreto = ProcesadorContraseña.getSHA256("hola");
+        List<BigInteger[]> compartidos = SecretoShamir.generaPuntos(5, SecretoShamir.generaPolinomio(3, secreto));
+        long aciertos = SecretoShamir.cacheLagrange().aciertos();
+        BigInteger esperado = new BigInteger(1, secreto);
+        assertEquals(esperado, SecretoShamir.interpolarEnCero(compartidos.subList(0, 3), CampoFinito.P257));
+        Collections.reverse(compartidos);
+        assertEquals(esperado, SecretoShamir.interpolarEnCero(compartidos.subList(2, 5), CampoFinito.P257));
+        assertEquals(aciertos + 1, SecretoShamir.cacheLagrange().aciertos());
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testFormatoBinario() throws IOException {
+        inicioPrueba("archivoConContraseñas en formato binario, lectura automática y CRC32", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            String archivo = new File(carpeta.getRoot(), "binario-" + campo.identificador()).getPath() + ".frg";
+            SecretoShamir.archivoConContraseñas(archivo, "6", "4", contraseña, campo, false, true);
+            assertTrue(FormatoBinarioFrg.esBinario(new File(archivo)));
+            FormatoBinarioFrg.Encabezado encabezado = FormatoBinarioFrg.leerEncabezado(new File(archivo));
+            assertEquals(6, encabezado.numeroTotal);
+            assertEquals(4, encabezado.minimo);
+            assertEquals(6, encabezado.puntos);
+            assertSame(campo, SecretoShamir.obtenerCampo(archivo));
+            assertEquals(6, SecretoShamir.obtenerPuntos(archivo).size());
+            assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(archivo));
+
+            byte[] bytes = Files.readAllBytes(new File(archivo).toPath());
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(new File(archivo).toPath(), bytes);
+            try {
+                FormatoBinarioFrg.leerPuntos(new File(archivo));
+                fail("Se esperaba un error de CRC32.");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("CRC32"));
+            }
+        }
+        assertFalse(FormatoBinarioFrg.esBinario(new File("src/test/java/mx/unam/criptografia/archivosTests/contraseñas-4-3.frg")));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testFormatoTexto() throws IOException {
+        inicioPrueba("FormatoTextoFrg acepta y produce los mismos archivos que el formato con expresiones regulares", 1);
+        String[] lineas = {
+            "(12, 345)", "  (6, 7)\t", "(1,2)", "(1, 2) x", "(, 2)", "(1, )", "(-1, 2)", "(1,  2)", "( 1, 2)",
+            "(1, 2", "1, 2)", "(１, 2)", "", "Numero total de contraseñas: 3", "Campo: m521"
+        };
+        File archivo = carpeta.newFile("lineas.frg");
+        Files.write(archivo.toPath(), Arrays.asList(lineas), StandardCharsets.UTF_8);
+        List<BigInteger[]> puntos = new ArrayList<>();
+        List<String> otrasLineas = new ArrayList<>();
+        FormatoTextoFrg.leer(archivo, puntos, otrasLineas);
+        List<String> esperados = new ArrayList<>();
+        for (String linea : lineas) {
+            if (linea.trim().matches("\\(\\d+, \\d+\\)")) {
+                esperados.add(linea.trim());
+            }
+        }
+        assertEquals(esperados.size(), puntos.size());
+        for (int i = 0; i < puntos.size(); i++) {
+            assertEquals(esperados.get(i), "(" + puntos.get(i)[0] + ", " + puntos.get(i)[1] + ")");
+        }
+        assertEquals(Arrays.asList("(1,2)", "(1, 2) x", "(, 2)", "(1, )", "(-1, 2)", "(1,  2)", "( 1, 2)", "(1, 2",
+                                   "1, 2)", "(１, 2)", "Numero total de contraseñas: 3", "Campo: m521"), otrasLineas);
+
+        List<BigInteger[]> generados = SecretoShamir.generaPuntos(4, SecretoShamir.generaPolinomio(2, new byte[]{5}));
+        StringBuilder anterior = new StringBuilder();
+        for (BigInteger[] punto : generados) {
+            anterior.append(String.format("(%s, %s)%n", punto[0], punto[1]));
+        }
+        anterior.append(String.format(
+            "Numero total de contraseñas: %s%nNumero necesario de contraseñas para descifrar el archivo: %s%nCampo: p257%n",
+            "4", "2"));
+        FormatoTextoFrg.escribir(archivo, generados, "4", "2", CampoFinito.P257);
+        assertArrayEquals(anterior.toString().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(archivo.toPath()));
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testConjuntoFragmentos() throws Exception {
+        inicioPrueba("ConjuntoFragmentos se lee una vez y sirve para recuperar la clave", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        for (boolean binario : new boolean[]{false, true}) {
+            String archivo = new File(carpeta.getRoot(), "conjunto-" + binario).getPath() + ".frg";
+            SecretoShamir.archivoConContraseñas(archivo, "5", "3", contraseña, CampoFinito.M521, false, binario);
+            ConjuntoFragmentos fragmentos = ConjuntoFragmentos.cargar(archivo);
+            assertEquals(3, fragmentos.tamano());
+            assertEquals(5, fragmentos.numeroTotal());
+            assertEquals(3, fragmentos.minimo());
+            assertSame(CampoFinito.M521, fragmentos.campo());
+            assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(fragmentos));
+
+            AES.ClaveRecuperada clave = AES.recuperarClave(fragmentos);
+            assertEquals(3, clave.numeroPuntos);
+            assertArrayEquals(AES.generarClaveAES(contraseña).getEncoded(), clave.clave.getEncoded());
+
+            // Contraseñas que ya están en memoria
+            List<BigInteger[]> todos = SecretoShamir.obtenerPuntos(archivo);
+            ConjuntoFragmentos enMemoria = new ConjuntoFragmentos(todos.subList(1, 4), 0, 0, CampoFinito.M521);
+            assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(enMemoria));
+        }
+        ConjuntoFragmentos anterior = ConjuntoFragmentos.cargar("src/test/java/mx/unam/criptografia/archivosTests/contraseñas-4-3.frg");
+        assertEquals(3, anterior.tamano());
+        assertEquals(4, anterior.numeroTotal());
+        assertSame(CampoFinito.P257, anterior.campo());
+
+        // Después de t puntos el archivo ya no se lee: una línea dañada ahí no afecta la recuperación
+        File archivo = new File(carpeta.getRoot(), "primeros-t.frg");
+        SecretoShamir.archivoConContraseñas(archivo.getPath(), "5", "3", contraseña);
+        List<String> lineas = Files.readAllLines(archivo.toPath(), StandardCharsets.UTF_8);
+        lineas.set(3, "(" + lineas.get(0).substring(1));
+        Files.write(archivo.toPath(), lineas, StandardCharsets.UTF_8);
+        assertArrayEquals(contraseña, SecretoShamir.recuperaSecreto(archivo.getPath()));
+        ConjuntoFragmentos insuficientes = new ConjuntoFragmentos(anterior.puntos(2), 4, 3, CampoFinito.P257);
+        try {
+            SecretoShamir.recuperaSecreto(insuficientes);
+            fail("Se esperaba un error por tener menos de t puntos.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("suficientes"));
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testRecuperacionIncremental() throws Exception {
+        inicioPrueba("RecuperacionIncremental recupera el secreto con contraseñas que llegan de varios hilos", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            List<BigInteger[]> puntos = SecretoShamir.generaPuntos(40, SecretoShamir.generaPolinomio(25, contraseña, campo), campo);
+            RecuperacionIncremental recuperacion = new RecuperacionIncremental(25, campo);
+            assertFalse(recuperacion.agregar(puntos.get(0)[0], puntos.get(0)[1]));
+            try {
+                recuperacion.agregar(puntos.get(0)[0], puntos.get(1)[1]);
+                fail("Se esperaba un error por una x repetida.");
+            } catch (IllegalArgumentException e) {
+                assertEquals(1, recuperacion.recibidos());
+            }
+            try {
+                recuperacion.secreto();
+                fail("Se esperaba un error por faltar contraseñas.");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("24"));
+            }
+
+            // Cada hilo entrega una contraseña distinta; las que sobran después de t se ignoran
+            List<Thread> hilos = new ArrayList<>();
+            for (BigInteger[] punto : puntos.subList(1, puntos.size())) {
+                hilos.add(new Thread(() -> recuperacion.agregar(punto[0], punto[1])));
+            }
+            for (Thread hilo : hilos) {
+                hilo.start();
+            }
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+            assertTrue(recuperacion.completa());
+            assertEquals(25, recuperacion.recibidos());
+            assertArrayEquals(contraseña, recuperacion.secreto());
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCorreccionErrores() throws Exception {
+        inicioPrueba("CorreccionErrores descarta hasta (m - t)/2 contraseñas dañadas e informa sus x", 1);
+        byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+        BigInteger esperado = new BigInteger(1, contraseña);
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            List<BigInteger[]> puntos = SecretoShamir.generaPuntos(11, SecretoShamir.generaPolinomio(5, contraseña, campo), campo);
+            CorreccionErrores.Resultado sinErrores = CorreccionErrores.decodificar(puntos, 5, campo);
+            assertEquals(esperado, sinErrores.secreto);
+            assertTrue(sinErrores.xErroneas.isEmpty());
+
+            // Con m = 11 y t = 5 se corrigen 3
+            List<BigInteger> dañadas = new ArrayList<>();
+            for (int i : new int[]{1, 6, 9}) {
+                puntos.get(i)[1] = puntos.get(i)[1].add(BigInteger.ONE).mod(campo.modulo());
+                dañadas.add(puntos.get(i)[0]);
+            }
+            CorreccionErrores.Resultado corregido = CorreccionErrores.decodificar(puntos, 5, campo);
+            assertEquals(esperado, corregido.secreto);
+            assertEquals(dañadas, corregido.xErroneas);
+
+            puntos.get(3)[1] = puntos.get(3)[1].add(BigInteger.ONE);
+            try {
+                CorreccionErrores.decodificar(puntos, 5, campo);
+                fail("Se esperaba un error por tener demasiadas contraseñas dañadas.");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("3"));
+            }
+        }
+
+        // Desde el archivo: la primera contraseña, que sí se usa sin corregir, está dañada
+        File archivo = new File(carpeta.getRoot(), "dañado.frg");
+        SecretoShamir.archivoConContraseñas(archivo.getPath(), "7", "3", contraseña);
+        List<BigInteger[]> leidos = SecretoShamir.obtenerPuntos(archivo.getPath());
+        List<String> lineas = Files.readAllLines(archivo.toPath(), StandardCharsets.UTF_8);
+        lineas.set(0, "(" + leidos.get(0)[0] + ", " + leidos.get(0)[1].add(BigInteger.ONE) + ")");
+        Files.write(archivo.toPath(), lineas, StandardCharsets.UTF_8);
+        assertFalse(Arrays.equals(contraseña, SecretoShamir.recuperaSecreto(archivo.getPath())));
+        CorreccionErrores.Resultado resultado =
+            SecretoShamir.recuperaSecretoCorrigiendo(ConjuntoFragmentos.cargarTodos(archivo.getPath()));
+        assertArrayEquals(contraseña, SecretoShamir.ByteNormalizado(resultado.secreto.toByteArray()));
+        assertEquals(Collections.singletonList(leidos.get(0)[0]), resultado.xErroneas);
+        agregaPuntos(1);
+        aprobada();
+    }
+
+    @Test
+    public void testCompromisosFeldman() throws Exception {
+        inicioPrueba("CompromisosFeldman verifica contraseñas una por una y en lote", 1);
+        // Con compromisos se comparte una clave aleatoria: C_0 = g^secreto permitiría probar contraseñas
+        byte[] secreto = SecretoShamir.secretoAleatorio();
+        assertEquals(32, secreto.length);
+        assertNotEquals(0, secreto[0]);
+        for (CampoFinito<?> campo : CampoFinito.disponibles()) {
+            CompromisosFeldman.Grupo grupo = CompromisosFeldman.Grupo.paraCampo(campo);
+            assertEquals(2048, grupo.p.bitLength());
+            assertTrue(grupo.p.isProbablePrime(40));
+            assertTrue(grupo.esElemento(grupo.g));
+            assertNotEquals(BigInteger.ONE, grupo.g);
+
+            String archivo = new File(carpeta.getRoot(), "verificable-" + campo.identificador()).getPath();
+            SecretoShamir.archivoConContraseñas(archivo, "40", "6", secreto, campo, false, false, true);
+            assertArrayEquals(secreto, SecretoShamir.recuperaSecreto(archivo + ".frg"));
+            CompromisosFeldman compromisos = CompromisosFeldman.leer(new File(CompromisosFeldman.archivoPara(archivo)));
+            assertEquals(6, compromisos.minimo());
+            assertSame(campo, compromisos.campo());
+            List<BigInteger[]> puntos = ConjuntoFragmentos.cargarTodos(archivo + ".frg").puntos();
+            assertEquals(40, puntos.size());
+            assertTrue(compromisos.verificar(puntos.get(0)[0], puntos.get(0)[1]));
+            assertTrue(compromisos.verificarLote(puntos).isEmpty());
+
+            List<BigInteger> dañadas = Arrays.asList(puntos.get(7)[0], puntos.get(30)[0]);
+            puntos.get(7)[1] = puntos.get(7)[1].add(BigInteger.ONE);
+            puntos.get(30)[1] = puntos.get(30)[1].add(BigInteger.ONE);
+            assertFalse(compromisos.verificar(puntos.get(7)[0], puntos.get(7)[1]));
+            assertEquals(dañadas, compromisos.verificarLote(puntos));
+        }
+
+        // Un compromiso fuera del subgrupo de orden q se rechaza al leer
+        File archivo = new File(carpeta.getRoot(), "alterado.cmp");
+        CompromisosFeldman.generar(SecretoShamir.generaPolinomio(3, secreto), CampoFinito.P257).escribir(archivo);
+        List<String> lineas = Files.readAllLines(archivo.toPath(), StandardCharsets.UTF_8);
+        lineas.set(2, "2");
+        Files.write(archivo.toPath(), lineas, StandardCharsets.UTF_8);
+        try {
+            CompromisosFeldman.leer(archivo);
+            fail("Se esperaba un error por un compromiso inválido.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("compromisos"));
+        }
+        agregaPuntos(1);
+        aprobada();
+    }
 }
@@ -0,0 +1,120 @@
+package mx.unam.criptografia;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para el servidor local.
+ */
+public class ServidorShamirTest extends Calificador {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private final byte[] contraseña = ProcesadorContraseña.getSHA256("hola");
+
+    public ServidorShamirTest() {
+    }
+
+    private static List<String> enviar(ServidorShamir servidor, byte[] contraseña, String... argumentos) throws Exception {
+        return new ComandoCliente(servidor.getPuerto(), argumentos, contraseña, servidor.getArchivoToken()).enviar();
+    }
+
+    @Test
+    public void testOperaciones() throws Exception {
+        inicioPrueba("operaciones del servidor", 1);
+        File archivoToken = new File(carpeta.getRoot(), "servidor.token");
+        try (ServidorShamir servidor = new ServidorShamir(0, 2, archivoToken)) {
+            Thread hilo = new Thread(servidor::atender);
+            hilo.setDaemon(true);
+            hilo.start();
+
+            String base = new File(carpeta.getRoot(), "secreto").getPath();
+            assertEquals("OK", enviar(servidor, contraseña, "-dividir", base, "5", "3").get(0));
+            List<String> recuperado = enviar(servidor, null, "-recuperar", base + ".frg");
+            assertEquals("OK", recuperado.get(0));
+            assertEquals(ServidorShamir.hexadecimal(contraseña), recuperado.get(1));
+
+            File claro = carpeta.newFile("claro.txt");
+            byte[] datos = new byte[100000];
+            new Random(3).nextBytes(datos);
+            Files.write(claro.toPath(), datos);
+            String documento = new File(carpeta.getRoot(), "documento").getPath();
+            assertEquals("OK", enviar(servidor, contraseña, "-c", documento, "4", "2", claro.getPath()).get(0));
+            Files.delete(claro.toPath());
+            assertEquals("OK", enviar(servidor, null, "-d", documento + ".frg", documento + ".aes").get(0));
+            assertArrayEquals(datos, Files.readAllBytes(claro.toPath()));
+
+            // Con --verificable no se envía contraseña: se comparte una clave aleatoria
+            String verificable = new File(carpeta.getRoot(), "verificable").getPath();
+            List<String> cifrado = enviar(servidor, null, "-c", verificable, "4", "2", claro.getPath(), "--verificable");
+            assertEquals("OK", cifrado.get(0));
+            assertEquals(verificable + CompromisosFeldman.EXTENSION, cifrado.get(3));
+            assertFalse(Arrays.equals(contraseña, SecretoShamir.recuperaSecreto(verificable + ".frg")));
+            Files.delete(claro.toPath());
+            assertEquals("OK", enviar(servidor, null, "-d", verificable + ".frg", verificable + ".aes").get(0));
+            assertArrayEquals(datos, Files.readAllBytes(claro.toPath()));
+
+            // Con una contraseña dañada solo se descifra con --corregir
+            File fragmentos = new File(documento + ".frg");
+            List<BigInteger[]> puntos = SecretoShamir.obtenerPuntos(fragmentos.getPath());
+            List<String> lineas = Files.readAllLines(fragmentos.toPath(), StandardCharsets.UTF_8);
+            lineas.set(0, "(" + puntos.get(0)[0] + ", " + puntos.get(0)[1].add(BigInteger.ONE) + ")");
+            Files.write(fragmentos.toPath(), lineas, StandardCharsets.UTF_8);
+            Files.delete(claro.toPath());
+            assertTrue(enviar(servidor, null, "-d", documento + ".frg", documento + ".aes").get(0).startsWith("ERROR"));
+            assertEquals("OK", enviar(servidor, null, "-d", documento + ".frg", documento + ".aes", "--corregir").get(0));
+            assertArrayEquals(datos, Files.readAllBytes(claro.toPath()));
+
+            assertTrue(enviar(servidor, contraseña, "-dividir", base, "1", "3").get(0).startsWith("ERROR"));
+            assertTrue(enviar(servidor, null, "-desconocida", base).get(0).startsWith("ERROR"));
+
+            // Sin el token no se ejecuta ninguna operación
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals(PosixFilePermissions.fromString("rw-------"),
+                    Files.getPosixFilePermissions(archivoToken.toPath()));
+            }
+            File otroToken = carpeta.newFile("otro.token");
+            Files.write(otroToken.toPath(), "0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+            String[] recuperar = {"-recuperar", base + ".frg"};
+            List<String> rechazada = new ComandoCliente(servidor.getPuerto(), recuperar, null, otroToken).enviar();
+            assertEquals(Collections.singletonList("ERROR\tToken inválido."), rechazada);
+            // Una línea más larga que el token se rechaza aunque empiece con él
+            byte[] token = Files.readAllBytes(archivoToken.toPath());
+            Files.write(otroToken.toPath(), (new String(token, StandardCharsets.US_ASCII) + "0").getBytes(StandardCharsets.US_ASCII));
+            rechazada = new ComandoCliente(servidor.getPuerto(), recuperar, null, otroToken).enviar();
+            assertEquals(Collections.singletonList("ERROR\tToken inválido."), rechazada);
+
+            // Conexiones que nunca envían el token ocupan los dos hilos solo hasta que vence la espera
+            try (Socket ociosa1 = new Socket(InetAddress.getLoopbackAddress(), servidor.getPuerto());
+                 Socket ociosa2 = new Socket(InetAddress.getLoopbackAddress(), servidor.getPuerto())) {
+                Thread.sleep(100);
+                assertEquals("OK", enviar(servidor, null, "-recuperar", base + ".frg").get(0));
+                assertEquals(-1, ociosa1.getInputStream().read());
+            }
+
+            List<String> estadisticas = enviar(servidor, null, "-estadisticas");
+            assertEquals("OK", estadisticas.get(0));
+            assertEquals(5, estadisticas.size());
+            assertTrue(estadisticas.get(3).startsWith("-dividir\tn=2\tp50="));
+        }
+        assertFalse(archivoToken.exists());
+        agregaPuntos(1);
+        aprobada();
+    }
+}